@@ -0,0 +1,176 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import odml.core.Diagnostic.Severity;
+
+/**
+ * A {@link BatchLoad} loads a number of odML files concurrently on an {@link Executor} and hands out the
+ * {@link LoadResult}s in the order in which the files complete. Files are only submitted to the executor as long as
+ * fewer than the given number of trees are in flight, i.e. are parsed or wait to be taken. A result that has been
+ * taken with {@link #next()} counts as in flight until the next call, thus the heap needed is bounded by the trees
+ * of that many files.
+ * 
+ * A batch is meant to be consumed by a single thread:
+ * 
+ * <pre>
+ * BatchLoad batch = Reader.loadAll(files, executor);
+ * while (batch.hasNext()) {
+ *    LoadResult result = batch.next();
+ *    ...
+ * }
+ * </pre>
+ * 
+ * @see Reader#loadAll(Collection, Executor, int, int)
+ */
+public class BatchLoad {
+
+   private final Deque<Path>                files;
+   private final int                        total;
+   private final Executor                   executor;
+   private final int                        maxInFlight, option;
+   private final StringPool                 pool;
+   /** queued when a load ended with an {@link Error}, so that the consumer does not wait for it */
+   private static final LoadResult          ABORTED    = new LoadResult(null, null, null, null);
+   private final BlockingQueue<LoadResult>  completed = new LinkedBlockingQueue<LoadResult>();
+   private int                              submitted  = 0, taken = 0;
+   private volatile Error                   fatal      = null;
+
+
+   BatchLoad(Collection<Path> files, Executor executor, int maxInFlight, int option, StringPool pool) {
+      if (maxInFlight < 1) {
+         throw new IllegalArgumentException("BatchLoad: at least one file must be allowed in flight!");
+      }
+      this.files = new ArrayDeque<Path>(files);
+      this.total = this.files.size();
+      this.executor = executor;
+      this.maxInFlight = maxInFlight;
+      this.option = option;
+      this.pool = pool;
+   }
+
+
+   /**
+    * Returns whether there are results that have not been taken yet.
+    * 
+    * @return boolean: true if there are more results, false otherwise.
+    */
+   public boolean hasNext() {
+      return taken < total;
+   }
+
+
+   /**
+    * Returns the result of the next file that completes. Blocks until one is available. Calling this method releases
+    * the tree that was returned by the previous call for the in-flight limit.
+    * 
+    * @return {@link LoadResult}: the result of the next completed file.
+    * @throws InterruptedException if the thread is interrupted while waiting.
+    * @throws Error if loading a file ended with an {@link Error}, e.g. an {@link OutOfMemoryError}. The batch is not
+    *            continued then.
+    */
+   public LoadResult next() throws InterruptedException {
+      if (!hasNext()) {
+         throw new NoSuchElementException();
+      }
+      if (fatal != null) {
+         throw fatal;
+      }
+      while (!files.isEmpty() && submitted - taken < maxInFlight) {
+         submit(files.poll());
+      }
+      LoadResult result = completed.take();
+      if (result == ABORTED) {
+         throw fatal;
+      }
+      taken++;
+      return result;
+   }
+
+
+   /**
+    * Returns the number of files in this batch.
+    * 
+    * @return int: the number of files.
+    */
+   public int size() {
+      return total;
+   }
+
+
+   private void submit(final Path file) {
+      submitted++;
+      Runnable task = new Runnable() {
+         @Override
+         public void run() {
+            try {
+               completed.add(load(file, option, pool));
+            } catch (Error e) {
+               fatal = e;
+               completed.add(ABORTED);
+               throw e;
+            }
+         }
+      };
+      try {
+         executor.execute(task);
+      } catch (RuntimeException e) {
+         completed.add(new LoadResult(file, null, e, null));
+      }
+   }
+
+
+   /**
+    * Loads a single file with its own {@link Reader}, readers are not shared between threads but the pool is. The
+    * diagnostics of the file are collected in its report, a failed load is explained by the first error of it.
+    */
+   static LoadResult load(Path file, int option, StringPool pool) {
+      Reader reader = new Reader();
+      reader.setStringPool(pool);
+      reader.setReporting(true);
+      try {
+         Section root = reader.load(file, option, false);
+         if (root == null) {
+            return new LoadResult(file, null, failure(file, reader.getReport()), reader.getReport());
+         }
+         return new LoadResult(file, root, null, reader.getReport());
+      } catch (Exception e) {
+         return new LoadResult(file, null, e, reader.getReport());
+      }
+   }
+
+
+   private static Exception failure(Path file, ParseReport report) {
+      if (report != null) {
+         for (Diagnostic diagnostic : report.getDiagnostics()) {
+            if (diagnostic.getSeverity() == Severity.ERROR) {
+               return new Exception("Could not load file " + file + ": " + diagnostic.getMessage(),
+                     diagnostic.getCause());
+            }
+         }
+      }
+      return new Exception("Could not load file " + file + "!");
+   }
+}
@@ -0,0 +1,45 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The {@link Cancellation} is shared between an asynchronous operation and the {@link CompletableFuture} that
+ * represents it. Cancelling the future marks the cancellation so that the running operation stops at its next
+ * check, i.e. at the next read from or write to a wrapped stream or between sections and includes. It is also
+ * cancelled with the token of the reader or writer that started the operation.
+ */
+class Cancellation extends CancellationToken {
+
+   Cancellation(CancellationToken parent) {
+      super(parent);
+   }
+
+
+   /**
+    * Creates a future that marks this cancellation when it is cancelled.
+    */
+   <T> CompletableFuture<T> newFuture() {
+      return new CompletableFuture<T>() {
+         @Override
+         public boolean cancel(boolean mayInterruptIfRunning) {
+            Cancellation.this.cancel();
+            return super.cancel(mayInterruptIfRunning);
+         }
+      };
+   }
+}
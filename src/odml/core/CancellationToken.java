@@ -0,0 +1,157 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link CancellationToken} lets a caller stop a long running load, conversion or write. The token is handed to
+ * the {@link Reader}, {@link Writer} or {@link odml.util.Mapper}, which check it between sections, includes and
+ * links and while reading or writing their streams, and stop with a {@link CancellationException} once it is
+ * cancelled. A token can also be given a timeout, after which it counts as cancelled:
+ * 
+ * <pre>
+ * Reader reader = new Reader();
+ * reader.setCancellationToken(new CancellationToken(30, TimeUnit.SECONDS));
+ * Section root = reader.load(file, Reader.FULL_CONVERSION, false);
+ * </pre>
+ */
+public class CancellationToken {
+
+   private final CancellationToken parent;
+   private final long              deadline;
+   private final boolean           timed;
+   private volatile boolean        cancelled = false;
+
+
+   /**
+    * Creates a token that is cancelled by {@link #cancel()}.
+    */
+   public CancellationToken() {
+      this(null);
+   }
+
+
+   /**
+    * Creates a token that is cancelled by {@link #cancel()} or once the timeout has elapsed.
+    * 
+    * @param timeout long: the time after which the token counts as cancelled.
+    * @param unit {@link TimeUnit}: the unit of the timeout.
+    */
+   public CancellationToken(long timeout, TimeUnit unit) {
+      this.parent = null;
+      this.deadline = System.nanoTime() + unit.toNanos(timeout);
+      this.timed = true;
+   }
+
+
+   /**
+    * Creates a token that is also cancelled when the parent token is cancelled.
+    * 
+    * @param parent {@link CancellationToken}: the parent, may be null.
+    */
+   CancellationToken(CancellationToken parent) {
+      this.parent = parent;
+      this.deadline = 0;
+      this.timed = false;
+   }
+
+
+   /**
+    * Cancels the token.
+    */
+   public void cancel() {
+      cancelled = true;
+   }
+
+
+   /**
+    * Returns whether the token has been cancelled or its timeout has elapsed.
+    * 
+    * @return boolean: true if cancelled, false otherwise.
+    */
+   public boolean isCancelled() {
+      return cancelled || (timed && System.nanoTime() - deadline >= 0) || (parent != null && parent.isCancelled());
+   }
+
+
+   /**
+    * Throws a {@link CancellationException} if the token has been cancelled.
+    * 
+    * @throws CancellationException
+    */
+   public void throwIfCancelled() {
+      if (isCancelled()) {
+         throw new CancellationException("The operation was cancelled.");
+      }
+   }
+
+
+   /**
+    * Wraps the stream so that reading fails with an {@link InterruptedIOException} once cancelled.
+    */
+   InputStream wrap(InputStream stream) {
+      return new FilterInputStream(stream) {
+         @Override
+         public int read() throws IOException {
+            check();
+            return super.read();
+         }
+
+
+         @Override
+         public int read(byte[] b, int off, int len) throws IOException {
+            check();
+            return super.read(b, off, len);
+         }
+      };
+   }
+
+
+   /**
+    * Wraps the stream so that writing fails with an {@link InterruptedIOException} once cancelled.
+    */
+   OutputStream wrap(OutputStream stream) {
+      return new FilterOutputStream(stream) {
+         @Override
+         public void write(int b) throws IOException {
+            check();
+            out.write(b);
+         }
+
+
+         @Override
+         public void write(byte[] b, int off, int len) throws IOException {
+            check();
+            out.write(b, off, len);
+         }
+      };
+   }
+
+
+   private void check() throws InterruptedIOException {
+      if (isCancelled()) {
+         throw new InterruptedIOException("The operation was cancelled.");
+      }
+   }
+}
@@ -0,0 +1,81 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+
+/**
+ * The {@link DateCodec} converts the date, time and datetime values of odML between {@link Date}s and their
+ * {@link String} representation. Codecs are immutable and may be shared between threads, in contrast to
+ * {@link java.text.SimpleDateFormat}. Like the formats used before, parsing accepts fields with fewer digits and
+ * ignores trailing text, dates and times are interpreted in the default time zone and times refer to 1970-01-01.
+ */
+final class DateCodec {
+
+   static final DateCodec          DATE     = new DateCodec("yyyy-MM-dd", "y-M-d");
+   static final DateCodec          TIME     = new DateCodec("HH:mm:ss", "H:m:s");
+   static final DateCodec          DATETIME = new DateCodec("yyyy-MM-dd HH:mm:ss", "y-M-d H:m:s");
+
+   private static final LocalDate  EPOCH    = LocalDate.of(1970, 1, 1);
+   private final DateTimeFormatter formatter, parser;
+
+
+   private DateCodec(String formatPattern, String parsePattern) {
+      this.formatter = DateTimeFormatter.ofPattern(formatPattern);
+      this.parser = DateTimeFormatter.ofPattern(parsePattern);
+   }
+
+
+   /**
+    * Returns the representation of the date.
+    * 
+    * @param date {@link Object}: a {@link Date}.
+    * @return {@link String}: the formatted date.
+    */
+   String format(Object date) {
+      return formatter.format(((Date) date).toInstant().atZone(ZoneId.systemDefault()));
+   }
+
+
+   /**
+    * Parses the beginning of the text to a date.
+    * 
+    * @param text {@link String}: the text.
+    * @return {@link Date}: the date.
+    * @throws ParseException if the text does not start with a valid date.
+    */
+   Date parse(String text) throws ParseException {
+      try {
+         TemporalAccessor parsed = parser.parse(text, new ParsePosition(0));
+         LocalDate date = parsed.isSupported(ChronoField.EPOCH_DAY) ? LocalDate.from(parsed) : EPOCH;
+         LocalTime time = parsed.isSupported(ChronoField.NANO_OF_DAY) ? LocalTime.from(parsed) : LocalTime.MIDNIGHT;
+         return Date.from(date.atTime(time).atZone(ZoneId.systemDefault()).toInstant());
+      } catch (DateTimeException e) {
+         ParseException pe = new ParseException("Unparseable date: \"" + text + "\"", 0);
+         pe.initCause(e);
+         throw pe;
+      }
+   }
+}
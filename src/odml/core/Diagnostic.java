@@ -0,0 +1,104 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+/**
+ * A {@link Diagnostic} is a single message reported while reading, merging or mapping a document, e.g. a value that
+ * could not be converted or a link that could not be resolved. Besides the message it carries the severity, a code
+ * that names the reporting method, e.g. "Section.add", and the path of the affected section or property, if known.
+ * 
+ * @see Diagnostics
+ */
+public class Diagnostic {
+
+   /**
+    * The severity of a {@link Diagnostic}.
+    */
+   public enum Severity {
+      INFO, WARNING, ERROR
+   }
+
+   private final Severity  severity;
+   private final String    code;
+   private final String    path;
+   private final String    message;
+   private final Throwable cause;
+
+
+   Diagnostic(Severity severity, String code, String path, String message, Throwable cause) {
+      this.severity = severity;
+      this.code = code;
+      this.path = path;
+      this.message = message;
+      this.cause = cause;
+   }
+
+
+   /**
+    * Returns the severity of the diagnostic.
+    * 
+    * @return {@link Severity}: the severity.
+    */
+   public Severity getSeverity() {
+      return severity;
+   }
+
+
+   /**
+    * Returns the code of the diagnostic, i.e. the name of the reporting method, e.g. "Reader.load".
+    * 
+    * @return {@link String}: the code.
+    */
+   public String getCode() {
+      return code;
+   }
+
+
+   /**
+    * Returns the path of the section or property the diagnostic refers to.
+    * 
+    * @return {@link String}: the path or null if the diagnostic does not refer to a part of the tree.
+    */
+   public String getPath() {
+      return path;
+   }
+
+
+   /**
+    * Returns the message of the diagnostic.
+    * 
+    * @return {@link String}: the message.
+    */
+   public String getMessage() {
+      return message;
+   }
+
+
+   /**
+    * Returns the exception that caused the diagnostic.
+    * 
+    * @return {@link Throwable}: the cause or null if there is none.
+    */
+   public Throwable getCause() {
+      return cause;
+   }
+
+
+   @Override
+   public String toString() {
+      return severity + " " + code + (path != null ? " [" + path + "]" : "") + ": " + message;
+   }
+}
@@ -0,0 +1,31 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+/**
+ * A {@link DiagnosticListener} receives the {@link Diagnostic}s reported while reading, merging or mapping
+ * documents. Listeners are registered with {@link Diagnostics#addListener(DiagnosticListener)} and may be called from
+ * several threads at once.
+ */
+public interface DiagnosticListener {
+
+   /**
+    * Called for every reported diagnostic.
+    * 
+    * @param diagnostic {@link Diagnostic}: the diagnostic.
+    */
+   void report(Diagnostic diagnostic);
+}
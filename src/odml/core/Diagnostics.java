@@ -0,0 +1,205 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import odml.core.Diagnostic.Severity;
+
+/**
+ * The {@link Diagnostics} are the sink for all messages reported while reading, merging or mapping documents. The
+ * messages are passed as {@link Diagnostic}s to the registered {@link DiagnosticListener}s and to the
+ * {@link ParseReport} of the load running in the current thread, if the {@link Reader} collects one.
+ * <p>
+ * As long as nobody listens, reporting costs not much more than a check and only errors are printed to System.out.
+ * Register {@link #CONSOLE} to print all messages.
+ */
+public final class Diagnostics {
+
+   /**
+    * A listener that prints all diagnostics to System.out.
+    */
+   public static final DiagnosticListener CONSOLE = new DiagnosticListener() {
+      @Override
+      public void report(Diagnostic diagnostic) {
+         System.out.println(diagnostic);
+      }
+   };
+
+   private static final ThreadLocal<ParseReport> current   = new ThreadLocal<ParseReport>();
+   private static volatile DiagnosticListener[]  listeners = new DiagnosticListener[0];
+
+
+   private Diagnostics() {
+   }
+
+
+   /**
+    * Registers a listener that is notified of all diagnostics reported from now on.
+    * 
+    * @param listener {@link DiagnosticListener}: the listener.
+    */
+   public static synchronized void addListener(DiagnosticListener listener) {
+      DiagnosticListener[] extended = new DiagnosticListener[listeners.length + 1];
+      System.arraycopy(listeners, 0, extended, 0, listeners.length);
+      extended[listeners.length] = listener;
+      listeners = extended;
+   }
+
+
+   /**
+    * Removes a previously registered listener.
+    * 
+    * @param listener {@link DiagnosticListener}: the listener.
+    */
+   public static synchronized void removeListener(DiagnosticListener listener) {
+      for (int i = 0; i < listeners.length; i++) {
+         if (listeners[i] == listener) {
+            DiagnosticListener[] reduced = new DiagnosticListener[listeners.length - 1];
+            System.arraycopy(listeners, 0, reduced, 0, i);
+            System.arraycopy(listeners, i + 1, reduced, i, reduced.length - i);
+            listeners = reduced;
+            return;
+         }
+      }
+   }
+
+
+   /**
+    * Returns whether anybody listens to the diagnostics reported in the current thread. Checking this first avoids
+    * building expensive messages that would be dropped anyway.
+    * 
+    * @return boolean: true if there are listeners or a report is collected, false otherwise.
+    */
+   public static boolean isEnabled() {
+      return listeners.length > 0 || current.get() != null;
+   }
+
+
+   /**
+    * Reports an informative message, e.g. about progress or an automatic correction.
+    * 
+    * @param code {@link String}: the reporting method, e.g. "Section.add".
+    * @param subject {@link Object}: the {@link Section}, {@link Property}, {@link Value} or path the message refers
+    *           to. May be null.
+    * @param message {@link String}: the message.
+    */
+   public static void info(String code, Object subject, String message) {
+      report(Severity.INFO, code, subject, message, null);
+   }
+
+
+   /**
+    * Reports a problem that was handled, e.g. an invalid name that was replaced.
+    * 
+    * @param code {@link String}: the reporting method, e.g. "Section.add".
+    * @param subject {@link Object}: the {@link Section}, {@link Property}, {@link Value} or path the message refers
+    *           to. May be null.
+    * @param message {@link String}: the message.
+    */
+   public static void warning(String code, Object subject, String message) {
+      report(Severity.WARNING, code, subject, message, null);
+   }
+
+
+   /**
+    * Reports an error, i.e. an operation that failed.
+    * 
+    * @param code {@link String}: the reporting method, e.g. "Reader.load".
+    * @param subject {@link Object}: the {@link Section}, {@link Property}, {@link Value} or path the message refers
+    *           to. May be null.
+    * @param message {@link String}: the message.
+    */
+   public static void error(String code, Object subject, String message) {
+      report(Severity.ERROR, code, subject, message, null);
+   }
+
+
+   /**
+    * Reports an error that was caused by an exception.
+    * 
+    * @param code {@link String}: the reporting method, e.g. "Reader.load".
+    * @param subject {@link Object}: the {@link Section}, {@link Property}, {@link Value} or path the message refers
+    *           to. May be null.
+    * @param message {@link String}: the message.
+    * @param cause {@link Throwable}: the exception.
+    */
+   public static void error(String code, Object subject, String message, Throwable cause) {
+      report(Severity.ERROR, code, subject, message, cause);
+   }
+
+
+   private static void report(Severity severity, String code, Object subject, String message, Throwable cause) {
+      DiagnosticListener[] listeners = Diagnostics.listeners;
+      ParseReport report = current.get();
+      if (listeners.length == 0 && report == null) {
+         if (severity == Severity.ERROR) {
+            System.out.println(message);
+            if (cause != null) {
+               cause.printStackTrace();
+            }
+         }
+         return;
+      }
+      Diagnostic diagnostic = new Diagnostic(severity, code, pathOf(subject), message, cause);
+      if (report != null) {
+         report.add(diagnostic);
+      }
+      for (DiagnosticListener listener : listeners) {
+         listener.report(diagnostic);
+      }
+   }
+
+
+   private static String pathOf(Object subject) {
+      if (subject instanceof Section) {
+         return ((Section) subject).getPath();
+      } else if (subject instanceof Property) {
+         Property property = (Property) subject;
+         return property.getParent() != null ? property.getParent().getPath() + "#" + property.getName() : property
+               .getName();
+      } else if (subject instanceof Value) {
+         return ((Value) subject).getParent() != null ? pathOf(((Value) subject).getParent()) : null;
+      }
+      return subject != null ? subject.toString() : null;
+   }
+
+
+   /**
+    * Returns the report that collects the diagnostics of the current thread.
+    */
+   static ParseReport currentReport() {
+      return current.get();
+   }
+
+
+   /**
+    * Lets the report collect the diagnostics of the current thread until {@link #close(ParseReport)} is called with
+    * the returned previous report.
+    */
+   static ParseReport open(ParseReport report) {
+      ParseReport previous = current.get();
+      current.set(report);
+      return previous;
+   }
+
+
+   static void close(ParseReport previous) {
+      if (previous == null) {
+         current.remove();
+      } else {
+         current.set(previous);
+      }
+   }
+}
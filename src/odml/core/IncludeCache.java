@@ -0,0 +1,248 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The {@link IncludeCache} holds the files that are included while loading a document. Each distinct file, keyed by
+ * its URL and modification time, is parsed only once, even if many sections include it or several threads request
+ * it at the same time. The cached trees are only read, included content is copied when it is merged into a section.
+ * Files can be prefetched concurrently, prefetching must be ended with {@link #close()}.
+ */
+class IncludeCache {
+
+   /** the maximum number of threads of the pool that prefetches files if no executor is given */
+   private static final int                                     PREFETCH_THREADS = 4;
+   private final ConcurrentHashMap<String, FutureTask<Section>> files;
+   private final CancellationToken                              cancellation;
+   private final List<Prefetch>                                 prefetches       = new ArrayList<Prefetch>();
+   private ExecutorService                                      ownPool          = null;
+
+
+   IncludeCache() {
+      this(null);
+   }
+
+
+   /**
+    * @param cancellation {@link CancellationToken}: the token of the load, checked before each file is fetched, may
+    *           be null.
+    */
+   IncludeCache(CancellationToken cancellation) {
+      this.files = new ConcurrentHashMap<String, FutureTask<Section>>();
+      this.cancellation = cancellation;
+   }
+
+
+   /**
+    * Returns the root section of the included file, loading it if necessary.
+    * 
+    * @param fileUrl {@link URL}: the url of the file.
+    * @return {@link Section}: the root section or null if the file could not be read.
+    * @throws CancellationException if the load was cancelled.
+    */
+   Section get(final URL fileUrl) {
+      String key = key(fileUrl);
+      FutureTask<Section> task = files.get(key);
+      if (task == null) {
+         FutureTask<Section> created = new FutureTask<Section>(new Callable<Section>() {
+            @Override
+            public Section call() {
+               return load(fileUrl);
+            }
+         });
+         task = files.putIfAbsent(key, created);
+         if (task == null) {
+            task = created;
+            task.run();
+         }
+      }
+      try {
+         return task.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         return null;
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof CancellationException) {
+            // not cached, a cancelled load is no failure of the file
+            files.remove(key, task);
+            throw (CancellationException) e.getCause();
+         }
+         return null;
+      }
+   }
+
+
+   /**
+    * Starts loading the distinct files on the executor, the results are taken with {@link #get(URL)}. Fetching
+    * blocks on file or network IO, thus without an executor a small pool of daemon threads is created for this
+    * cache, shared pools like {@link java.util.concurrent.ForkJoinPool#commonPool()} are not used.
+    * 
+    * @param fileUrls {@link Collection} of {@link URL}s: the files to load.
+    * @param executor {@link Executor}: the executor that loads the files, null for a pool of this cache.
+    */
+   void prefetch(Collection<URL> fileUrls, Executor executor) {
+      Set<URL> distinct = new LinkedHashSet<URL>();
+      Set<String> forms = new LinkedHashSet<String>();
+      for (URL fileUrl : fileUrls) {
+         if (fileUrl != null && forms.add(fileUrl.toExternalForm()) && !files.containsKey(key(fileUrl))) {
+            distinct.add(fileUrl);
+         }
+      }
+      // the first file is fetched on the calling thread, which needs it first
+      if (distinct.size() < 2) {
+         return;
+      }
+      if (executor == null) {
+         ownPool = Executors.newFixedThreadPool(Math.min(distinct.size(), PREFETCH_THREADS), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+               Thread thread = new Thread(runnable, "odml-include-prefetch");
+               thread.setDaemon(true);
+               return thread;
+            }
+         });
+         executor = ownPool;
+      }
+      ParseReport report = Diagnostics.currentReport();
+      for (URL fileUrl : distinct) {
+         Prefetch prefetch = new Prefetch(fileUrl, report);
+         prefetches.add(prefetch);
+         executor.execute(prefetch);
+      }
+   }
+
+
+   /**
+    * Ends prefetching. Prefetches that have not started yet are dropped, running ones are waited for, so that no
+    * file is fetched or reported on after the load returned. The pool of this cache is shut down.
+    */
+   void close() {
+      try {
+         for (Prefetch prefetch : prefetches) {
+            prefetch.finish();
+         }
+      } finally {
+         prefetches.clear();
+         if (ownPool != null) {
+            ownPool.shutdown();
+            ownPool = null;
+         }
+      }
+   }
+
+
+   private boolean isCancelled() {
+      return cancellation != null && cancellation.isCancelled();
+   }
+
+
+   private Section load(URL fileUrl) {
+      Section includeRoot = null;
+      try {
+         Reader r = new Reader();
+         r.setCancellationToken(cancellation);
+         includeRoot = r.load(fileUrl, Reader.NO_CONVERSION, false);
+      } catch (CancellationException e) {
+         throw e;
+      } catch (Exception e) {
+         Diagnostics.error("IncludeCache.load", null, "Could not read file from the include location: "
+                 + fileUrl);
+      }
+      return includeRoot;
+   }
+
+
+   private static String key(URL fileUrl) {
+      long modified = 0;
+      if ("file".equals(fileUrl.getProtocol())) {
+         try {
+            modified = new File(fileUrl.toURI()).lastModified();
+         } catch (Exception e) {
+            modified = 0;
+         }
+      }
+      return fileUrl.toExternalForm() + "@" + modified;
+   }
+
+
+   /**
+    * Fetches one file unless the load is cancelled. A prefetch runs at most once, either on the executor or not at
+    * all once it was finished before it started.
+    */
+   private final class Prefetch implements Runnable {
+
+      private final URL            fileUrl;
+      private final ParseReport    report;
+      private final AtomicBoolean  claimed = new AtomicBoolean(false);
+      private final CountDownLatch done    = new CountDownLatch(1);
+
+
+      private Prefetch(URL fileUrl, ParseReport report) {
+         this.fileUrl = fileUrl;
+         this.report = report;
+      }
+
+
+      @Override
+      public void run() {
+         if (!claimed.compareAndSet(false, true)) {
+            return;
+         }
+         ParseReport previous = Diagnostics.open(report);
+         try {
+            if (!isCancelled()) {
+               get(fileUrl);
+            }
+         } catch (CancellationException e) {
+            // the loading thread notices the cancellation itself
+         } finally {
+            Diagnostics.close(previous);
+            done.countDown();
+         }
+      }
+
+
+      private void finish() {
+         if (claimed.compareAndSet(false, true)) {
+            return;
+         }
+         try {
+            done.await();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }
+   }
+}
@@ -0,0 +1,251 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The {@link JsonOutput} writes a JSON document token by token to a stream, without building the document in memory
+ * first. The output is UTF-8, indented by two spaces with line feeds unless it is compact. Control characters and
+ * unpaired surrogates are escaped, so that every string is read back exactly.
+ */
+final class JsonOutput {
+
+   private static final int    INDENT    = 2;
+   private final Writer        out;
+   private final boolean       compact;
+   private int                 depth     = 0;
+   private boolean             empty     = true, named = false;
+   /** a line feed followed by the indentation of the deepest level so far */
+   private char[]              lineBreak = { '\n' };
+
+
+   JsonOutput(OutputStream stream, int bufferSize, boolean compact) {
+      this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), bufferSize);
+      this.compact = compact;
+   }
+
+
+   void beginObject() throws IOException {
+      begin('{');
+   }
+
+
+   void endObject() throws IOException {
+      end('}');
+   }
+
+
+   void beginArray() throws IOException {
+      begin('[');
+   }
+
+
+   void endArray() throws IOException {
+      end(']');
+   }
+
+
+   /**
+    * Writes the name of the next member of the current object. Names are the keys of the odML maps and are written
+    * without escaping.
+    */
+   void name(String name) throws IOException {
+      beginValue();
+      out.write('"');
+      out.write(name);
+      out.write(compact ? "\":" : "\": ");
+      named = true;
+   }
+
+
+   /**
+    * Writes a member of the current object, unless its value is null or empty. As in the XML serialization such
+    * members are left out, they are read back as the defaults of the sections, properties and values.
+    */
+   void member(String name, Object value) throws IOException {
+      if (value == null) {
+         return;
+      }
+      if (value instanceof String) {
+         if (((String) value).isEmpty()) {
+            return;
+         }
+         name(name);
+         value((String) value);
+      } else {
+         String text = value.toString();
+         if (text.isEmpty()) {
+            return;
+         }
+         name(name);
+         value(value);
+      }
+   }
+
+
+   /**
+    * Writes a string value, or null.
+    */
+   void value(String value) throws IOException {
+      beginValue();
+      if (value == null) {
+         out.write("null");
+      } else {
+         string(value);
+      }
+   }
+
+
+   /**
+    * Writes a number or a boolean as a literal, other objects are written as the string of their text. Numbers that
+    * have no literal, i.e. infinity and NaN, are written as strings as well.
+    */
+   void value(Object value) throws IOException {
+      if (value instanceof Boolean || value instanceof Number && isFinite((Number) value)) {
+         beginValue();
+         out.write(value.toString());
+      } else {
+         value(value == null ? null : value.toString());
+      }
+   }
+
+
+   void flush() throws IOException {
+      out.flush();
+   }
+
+
+   private void begin(char bracket) throws IOException {
+      beginValue();
+      out.write(bracket);
+      depth++;
+      empty = true;
+   }
+
+
+   private void end(char bracket) throws IOException {
+      depth--;
+      if (!empty) {
+         newLine();
+      }
+      out.write(bracket);
+      empty = false;
+      if (depth == 0 && !compact) {
+         out.write('\n');
+      }
+   }
+
+
+   /**
+    * Separates the next value from the previous one and moves to its line, unless it follows the name of a member.
+    */
+   private void beginValue() throws IOException {
+      if (named) {
+         named = false;
+         return;
+      }
+      if (!empty) {
+         out.write(',');
+      }
+      empty = false;
+      if (depth > 0) {
+         newLine();
+      }
+   }
+
+
+   private void newLine() throws IOException {
+      if (compact) {
+         return;
+      }
+      if (lineBreak.length < depth * INDENT + 1) {
+         lineBreak = new char[2 * depth * INDENT + 1];
+         Arrays.fill(lineBreak, ' ');
+         lineBreak[0] = '\n';
+      }
+      out.write(lineBreak, 0, depth * INDENT + 1);
+   }
+
+
+   private void string(String text) throws IOException {
+      out.write('"');
+      int start = 0;
+      for (int i = 0; i < text.length(); i++) {
+         char c = text.charAt(i);
+         String replacement;
+         switch (c) {
+            case '"':
+               replacement = "\\\"";
+               break;
+            case '\\':
+               replacement = "\\\\";
+               break;
+            case '\n':
+               replacement = "\\n";
+               break;
+            case '\r':
+               replacement = "\\r";
+               break;
+            case '\t':
+               replacement = "\\t";
+               break;
+            default:
+               if (c < 0x20 || Character.isSurrogate(c) && !isPaired(text, i)) {
+                  replacement = String.format("\\u%04x", (int) c);
+               } else {
+                  if (Character.isHighSurrogate(c)) {
+                     // the low surrogate of the pair follows
+                     i++;
+                  }
+                  continue;
+               }
+         }
+         out.write(text, start, i - start);
+         out.write(replacement);
+         start = i + 1;
+      }
+      out.write(text, start, text.length() - start);
+      out.write('"');
+   }
+
+
+   /**
+    * Returns whether the surrogate at the given index is part of a surrogate pair.
+    */
+   private static boolean isPaired(String text, int index) {
+      char c = text.charAt(index);
+      if (Character.isHighSurrogate(c)) {
+         return index + 1 < text.length() && Character.isLowSurrogate(text.charAt(index + 1));
+      }
+      return index > 0 && Character.isHighSurrogate(text.charAt(index - 1));
+   }
+
+
+   private static boolean isFinite(Number number) {
+      if (number instanceof Double || number instanceof Float) {
+         double d = number.doubleValue();
+         return !Double.isNaN(d) && !Double.isInfinite(d);
+      }
+      return true;
+   }
+}
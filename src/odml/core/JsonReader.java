@@ -0,0 +1,517 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * The {@link JsonReader} reads odML trees from JSON documents as written by the {@link JsonWriter}. The document is
+ * parsed as a stream, the sections, properties and values are created directly while it is read, no maps are built.
+ * The members of the objects may come in any order, unknown members are skipped. A reader can be used for any number
+ * of documents, also concurrently.
+ */
+public class JsonReader {
+
+   private static final int BUFFER_SIZE = 1 << 16;
+   private StringPool       pool        = null;
+
+
+   /**
+    * Sets the pool through which the type, name, reference and definition strings of the sections, properties and
+    * values are shared, see {@link Reader#setStringPool(StringPool)}.
+    *
+    * @param pool {@link StringPool}: the pool or null.
+    */
+   public void setStringPool(StringPool pool) {
+      this.pool = pool;
+   }
+
+
+   /**
+    * Reads the document at the given path. Gzip and deflate (zlib) compressed files are detected by their header
+    * bytes and decompressed on the fly.
+    *
+    * @param file {@link Path}: the file.
+    * @return {@link Section}: the root section of the loaded document.
+    * @throws IOException if the file cannot be read or is not a valid JSON document.
+    */
+   public Section load(Path file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         Section root = load(Reader.decompress(Channels.newInputStream(channel)));
+         root.setFileUrl(file.toUri().toURL());
+         return root;
+      }
+   }
+
+
+   /**
+    * Reads the document from the given stream. The stream is not closed.
+    *
+    * @param stream {@link InputStream}: the UTF-8 encoded document.
+    * @return {@link Section}: the root section of the loaded document.
+    * @throws IOException if the stream cannot be read or does not hold a valid JSON document.
+    */
+   public Section load(InputStream stream) throws IOException {
+      return new Parser(new InputStreamReader(stream, StandardCharsets.UTF_8)).document();
+   }
+
+
+   /**
+    * Parses one document, the tokens are read from a buffer that is refilled from the character stream.
+    */
+   private class Parser {
+
+      private final java.io.Reader in;
+      private final char[]         buffer = new char[BUFFER_SIZE];
+      private final StringBuilder  text   = new StringBuilder();
+      private int                  position, limit;
+      private long                 offset;
+
+
+      Parser(java.io.Reader in) {
+         this.in = in;
+      }
+
+
+      /**
+       * Reads the document object, i.e. the document information and the root section.
+       */
+      Section document() throws IOException {
+         String author = null, date = null, version = null, repository = null;
+         Section root = null;
+         expect('{');
+         if (!consume('}')) {
+            do {
+               String name = name();
+               if (name.equals("section")) {
+                  root = section(true);
+               } else if (name.equals("author")) {
+                  author = scalar();
+               } else if (name.equals("date")) {
+                  date = scalar();
+               } else if (name.equals("version")) {
+                  version = scalar();
+               } else if (name.equals("repository")) {
+                  repository = scalar();
+               } else {
+                  skip();
+               }
+            } while (consume(','));
+            expect('}');
+         }
+         if (peek() != -1) {
+            throw error("unexpected content after the document");
+         }
+         if (root == null) {
+            root = new Section();
+         }
+         // the repository of the document is that of the root section, which it must not remove
+         URL own = root.getRepository();
+         Reader.setDocumentInfo(root, author, date, version, repository);
+         if (root.getRepository() == null) {
+            root.setRepository(own);
+         }
+         return root;
+      }
+
+
+      /**
+       * Reads a section object with its properties and subsections.
+       *
+       * @param root boolean: whether the section is the root section, which may have no type.
+       * @return {@link Section}: the section or null if it could not be created.
+       */
+      private Section section(boolean root) throws IOException {
+         String type = null, name = null, reference = null, definition = null, mapping = null, repository = null,
+               link = null, include = null;
+         List<Property> properties = new ArrayList<Property>();
+         List<Section> subsections = new ArrayList<Section>();
+         expect('{');
+         if (!consume('}')) {
+            do {
+               String member = name();
+               if (member.equals("property")) {
+                  expect('[');
+                  if (!consume(']')) {
+                     do {
+                        properties.add(property());
+                     } while (consume(','));
+                     expect(']');
+                  }
+               } else if (member.equals("section")) {
+                  expect('[');
+                  if (!consume(']')) {
+                     do {
+                        subsections.add(section(false));
+                     } while (consume(','));
+                     expect(']');
+                  }
+               } else if (member.equals("type")) {
+                  type = scalar();
+               } else if (member.equals("name")) {
+                  name = scalar();
+               } else if (member.equals("reference")) {
+                  reference = scalar();
+               } else if (member.equals("definition")) {
+                  definition = scalar();
+               } else if (member.equals("mapping")) {
+                  mapping = scalar();
+               } else if (member.equals("repository")) {
+                  repository = scalar();
+               } else if (member.equals("link")) {
+                  link = scalar();
+               } else if (member.equals("include")) {
+                  include = scalar();
+               } else {
+                  skip();
+               }
+            } while (consume(','));
+            expect('}');
+         }
+         Section section;
+         if (root && type == null) {
+            section = new Section();
+            section.setDefinition(definition);
+            section.setReference(reference);
+            if (repository != null && !repository.isEmpty()) {
+               section.setRepository(repository);
+            }
+            if (mapping != null && !mapping.isEmpty()) {
+               section.setMapping(mapping);
+            }
+            section.setLink(link, true);
+            section.setInclude(include);
+         } else {
+            section = Reader.createSection(pool, type, name, reference, definition, mapping, repository, link,
+                  include);
+            if (section == null) {
+               return null;
+            }
+         }
+         for (Property property : properties) {
+            if (property != null) {
+               section.add(property);
+            }
+         }
+         for (Section subsection : subsections) {
+            if (subsection != null) {
+               section.add(subsection);
+            }
+         }
+         return section;
+      }
+
+
+      /**
+       * Reads a property object with its values.
+       */
+      private Property property() throws IOException {
+         String name = null, definition = null, dependency = null, dependencyValue = null, mapping = null;
+         Vector<Value> values = new Vector<Value>();
+         expect('{');
+         if (!consume('}')) {
+            do {
+               String member = name();
+               if (member.equals("value")) {
+                  expect('[');
+                  if (!consume(']')) {
+                     do {
+                        Value value = value();
+                        if (value != null) {
+                           values.add(value);
+                        }
+                     } while (consume(','));
+                     expect(']');
+                  }
+               } else if (member.equals("name")) {
+                  name = scalar();
+               } else if (member.equals("definition")) {
+                  definition = scalar();
+               } else if (member.equals("dependency")) {
+                  dependency = scalar();
+               } else if (member.equals("dependencyValue")) {
+                  dependencyValue = scalar();
+               } else if (member.equals("mapping")) {
+                  mapping = scalar();
+               } else {
+                  skip();
+               }
+            } while (consume(','));
+            expect('}');
+         }
+         return Reader.createProperty(pool, name, values, definition, dependency, dependencyValue, mapping);
+      }
+
+
+      /**
+       * Reads a value object, numbers and booleans are converted to the type of the value like their text in XML.
+       */
+      private Value value() throws IOException {
+         String content = null, unit = null, uncertainty = null, type = null, filename = null, definition = null,
+               reference = null, encoder = null, checksum = null;
+         expect('{');
+         if (!consume('}')) {
+            do {
+               String member = name();
+               if (member.equals("content")) {
+                  content = scalar();
+               } else if (member.equals("type")) {
+                  type = scalar();
+               } else if (member.equals("unit")) {
+                  unit = scalar();
+               } else if (member.equals("uncertainty")) {
+                  uncertainty = scalar();
+               } else if (member.equals("filename")) {
+                  filename = scalar();
+               } else if (member.equals("definition")) {
+                  definition = scalar();
+               } else if (member.equals("reference")) {
+                  reference = scalar();
+               } else if (member.equals("encoder")) {
+                  encoder = scalar();
+               } else if (member.equals("checksum")) {
+                  checksum = scalar();
+               } else {
+                  skip();
+               }
+            } while (consume(','));
+            expect('}');
+         }
+         Value value = Reader.createValue(pool, content, unit, uncertainty, type, filename, definition, reference,
+               encoder, checksum);
+         if (value != null) {
+            // not taken over by the constructor
+            value.setEncoder(encoder);
+            value.setChecksum(checksum);
+         }
+         return value;
+      }
+
+
+      /**
+       * Reads the name of an object member and the following colon.
+       */
+      private String name() throws IOException {
+         if (peek() != '"') {
+            throw error("expected the name of a member");
+         }
+         String name = string();
+         expect(':');
+         return name;
+      }
+
+
+      /**
+       * Reads a string, number, boolean or null. Numbers and booleans are returned as their literal text.
+       */
+      private String scalar() throws IOException {
+         int c = peek();
+         if (c == '"') {
+            return string();
+         }
+         if (c == '{' || c == '[' || c == -1) {
+            throw error("expected a string, number, boolean or null");
+         }
+         String literal = literal();
+         return literal.equals("null") ? null : literal;
+      }
+
+
+      /**
+       * Skips a value of any kind.
+       */
+      private void skip() throws IOException {
+         int c = peek();
+         if (c == '"') {
+            string();
+         } else if (c == '{' || c == '[') {
+            char close = c == '{' ? '}' : ']';
+            position++;
+            if (!consume(close)) {
+               do {
+                  if (close == '}') {
+                     name();
+                  }
+                  skip();
+               } while (consume(','));
+               expect(close);
+            }
+         } else {
+            literal();
+         }
+      }
+
+
+      private String literal() throws IOException {
+         text.setLength(0);
+         while (true) {
+            if (position == limit && !fill()) {
+               break;
+            }
+            char c = buffer[position];
+            if (c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '+' || c == '.' || c == 'E') {
+               text.append(c);
+               position++;
+            } else {
+               break;
+            }
+         }
+         String literal = text.toString();
+         if (literal.isEmpty()) {
+            throw error("unexpected character");
+         }
+         if (!literal.equals("null") && !literal.equals("true") && !literal.equals("false")
+               && !(literal.charAt(0) == '-' || literal.charAt(0) >= '0' && literal.charAt(0) <= '9')) {
+            throw error("invalid literal " + literal);
+         }
+         return literal;
+      }
+
+
+      /**
+       * Reads a string, the opening quote is the next character.
+       */
+      private String string() throws IOException {
+         position++;
+         text.setLength(0);
+         while (true) {
+            int start = position;
+            while (position < limit && buffer[position] != '"' && buffer[position] != '\\') {
+               position++;
+            }
+            text.append(buffer, start, position - start);
+            if (position == limit) {
+               if (!fill()) {
+                  throw error("unterminated string");
+               }
+               continue;
+            }
+            if (buffer[position++] == '"') {
+               return text.toString();
+            }
+            char escaped = next();
+            switch (escaped) {
+               case '"':
+               case '\\':
+               case '/':
+                  text.append(escaped);
+                  break;
+               case 'b':
+                  text.append('\b');
+                  break;
+               case 'f':
+                  text.append('\f');
+                  break;
+               case 'n':
+                  text.append('\n');
+                  break;
+               case 'r':
+                  text.append('\r');
+                  break;
+               case 't':
+                  text.append('\t');
+                  break;
+               case 'u':
+                  int code = 0;
+                  for (int i = 0; i < 4; i++) {
+                     int digit = Character.digit(next(), 16);
+                     if (digit < 0) {
+                        throw error("invalid unicode escape");
+                     }
+                     code = code << 4 | digit;
+                  }
+                  text.append((char) code);
+                  break;
+               default:
+                  throw error("invalid escape \\" + escaped);
+            }
+         }
+      }
+
+
+      /**
+       * Skips whitespace and consumes the given character if it is the next one.
+       */
+      private boolean consume(char c) throws IOException {
+         if (peek() == c) {
+            position++;
+            return true;
+         }
+         return false;
+      }
+
+
+      private void expect(char c) throws IOException {
+         if (!consume(c)) {
+            throw error("expected '" + c + "'");
+         }
+      }
+
+
+      /**
+       * Skips whitespace and returns the next character without consuming it, or -1 at the end of the document.
+       */
+      private int peek() throws IOException {
+         while (true) {
+            if (position == limit && !fill()) {
+               return -1;
+            }
+            char c = buffer[position];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+               return c;
+            }
+            position++;
+         }
+      }
+
+
+      private char next() throws IOException {
+         if (position == limit && !fill()) {
+            throw error("unexpected end of the document");
+         }
+         return buffer[position++];
+      }
+
+
+      private boolean fill() throws IOException {
+         offset += limit;
+         position = 0;
+         limit = 0;
+         int n = in.read(buffer, 0, buffer.length);
+         if (n <= 0) {
+            return false;
+         }
+         limit = n;
+         return true;
+      }
+
+
+      private IOException error(String message) {
+         return new IOException("JsonReader: " + message + " at character " + (offset + position) + "!");
+      }
+   }
+}
@@ -0,0 +1,100 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+
+/**
+ * The {@link JsonWriter} writes odML trees as JSON documents. The document has the members of
+ * {@link Writer#getMap()}, i.e. the document information and the root section, and the sections, properties and
+ * values have the members of their {@code getMap} methods, values have their content in addition. The tree is written
+ * while it is traversed, no maps are built, and it is not changed. Members that are null or empty are left out like
+ * the elements of the XML serialization, but unlike there empty properties and values are written as well, so the
+ * {@link JsonReader} reads the document back into an identical tree.
+ */
+public class JsonWriter {
+
+   private final Section odmlTree;
+   private boolean       compact    = false;
+   private int           bufferSize = 1 << 16;
+
+
+   /**
+    * Creates a writer for the tree of the given root section.
+    *
+    * @param rootSection {@link Section}: the root section of the metadata tree.
+    */
+   public JsonWriter(Section rootSection) {
+      this.odmlTree = rootSection;
+   }
+
+
+   /**
+    * Switches compact output on or off. Compact documents contain neither line breaks nor indentation. Default is
+    * false, i.e. the output is indented.
+    *
+    * @param compact boolean: true for compact output, false for indented output.
+    */
+   public void setCompact(boolean compact) {
+      this.compact = compact;
+   }
+
+
+   /**
+    * Sets the size of the buffer through which the document is encoded. Default is 64 KiB.
+    *
+    * @param size int: the buffer size in bytes, at least 1.
+    */
+   public void setBufferSize(int size) {
+      if (size < 1) {
+         throw new IllegalArgumentException("JsonWriter.setBufferSize: the buffer size must be positive!");
+      }
+      this.bufferSize = size;
+   }
+
+
+   /**
+    * Writes the JSON serialization to the given output stream. The stream is not closed.
+    *
+    * @param stream {@link OutputStream}: output stream to which to write the document
+    * @return {@link Boolean} true if operation was successful, false otherwise.
+    */
+   public boolean write(OutputStream stream) {
+      if (odmlTree == null) {
+         Diagnostics.error("JsonWriter.write", null, "there is no metadata to write!");
+         return false;
+      }
+      try {
+         JsonOutput json = new JsonOutput(stream, bufferSize, compact);
+         json.beginObject();
+         Date date = odmlTree.getDocumentDate();
+         json.member("date", date == null ? null : DateCodec.DATE.format(date));
+         json.member("author", odmlTree.getDocumentAuthor());
+         json.member("version", odmlTree.getDocumentVersion());
+         json.member("repository", odmlTree.getRepository());
+         json.name("section");
+         odmlTree.writeJson(json);
+         json.endObject();
+         json.flush();
+      } catch (IOException e) {
+         Diagnostics.error("JsonWriter.write", null, "write to stream failed: " + e.getMessage(), e);
+         return false;
+      }
+      return true;
+   }
+}
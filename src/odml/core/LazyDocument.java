@@ -0,0 +1,117 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The {@link LazyDocument} creates the content of lazily loaded {@link Section}s on first access. It holds the
+ * document together with a {@link SectionIndex} of all its sections. When a section is materialized only its own
+ * part of the document is parsed, i.e. its fields and properties, and its subsections are created from their fields
+ * alone, again waiting to be materialized.
+ * 
+ * @see Reader#setLazy(boolean)
+ */
+class LazyDocument {
+
+   private final SectionIndex index;
+   private final StringPool   pool;
+
+
+   LazyDocument(SectionIndex index, StringPool pool) {
+      this.index = index;
+      this.pool = pool;
+   }
+
+
+   /**
+    * Reads the properties of the section and creates its subsections. Late fields, i.e. fields that follow the first
+    * property, have already been read when the section was created.
+    * 
+    * @param section {@link Section}: the section, the root if id is {@link SectionIndex#ROOT}.
+    * @param id int: the id of the section in the index.
+    */
+   synchronized void materialize(Section section, int id) {
+      try {
+         if (id != SectionIndex.ROOT) {
+            XMLStreamReader xml = open(id);
+            while (OdmlEventReader.nextChild(xml)) {
+               if (xml.getLocalName().equals("property")) {
+                  section.add(OdmlEventReader.parseProperty(xml, pool));
+               } else {
+                  OdmlEventReader.skipElement(xml);
+               }
+            }
+            xml.close();
+         }
+         for (int child = index.firstChild(id); child != SectionIndex.NONE; child = index.nextSibling(child)) {
+            Section subsection = header(child);
+            if (subsection != null) {
+               subsection.setLazySource(this, child);
+               section.add(subsection);
+            }
+         }
+      } catch (XMLStreamException xse) {
+         Diagnostics.error("LazyDocument.materialize", null, "parsing failed! " + xse.getMessage());
+      }
+   }
+
+
+   /**
+    * Creates a section from its fields. Usually these precede the first property, the properties are only read
+    * past if the index found fields that follow them.
+    */
+   private Section header(int id) throws XMLStreamException {
+      XMLStreamReader xml = open(id);
+      Map<String, String> fields = new HashMap<String, String>();
+      boolean late = index.hasLateFields(id);
+      while (OdmlEventReader.nextChild(xml)) {
+         String element = xml.getLocalName();
+         if (element.equals("property")) {
+            if (!late) {
+               break;
+            }
+            OdmlEventReader.skipElement(xml);
+         } else if (element.equals("section")) {
+            OdmlEventReader.skipElement(xml);
+         } else {
+            OdmlEventReader.putField(fields, element, OdmlEventReader.readText(xml));
+         }
+      }
+      xml.close();
+      return Reader.createSection(pool, fields.get("type"), fields.get("name"), fields.get("reference"),
+            fields.get("definition"), fields.get("mapping"), fields.get("repository"), fields.get("link"),
+            fields.get("include"));
+   }
+
+
+   /**
+    * Opens the content of the section and positions the reader at the start tag of the section.
+    */
+   private XMLStreamReader open(int id) throws XMLStreamException {
+      XMLStreamReader xml = Reader.getInputFactory().createXMLStreamReader(index.content(id));
+      while (xml.next() != XMLStreamConstants.START_ELEMENT) {
+         // skip the prolog
+      }
+      xml.nextTag();
+      return xml;
+   }
+}
@@ -0,0 +1,90 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.nio.file.Path;
+
+/**
+ * The {@link LoadResult} holds the outcome of loading a single file in a batch, i.e. either the root {@link Section}
+ * of the file or the error that occurred.
+ * 
+ * @see Reader#loadAll(java.util.Collection, java.util.concurrent.Executor)
+ */
+public class LoadResult {
+
+   private final Path        file;
+   private final Section     root;
+   private final Exception   error;
+   private final ParseReport report;
+
+
+   LoadResult(Path file, Section root, Exception error, ParseReport report) {
+      this.file = file;
+      this.root = root;
+      this.error = error;
+      this.report = report;
+   }
+
+
+   /**
+    * Returns the file this result belongs to.
+    * 
+    * @return {@link Path}: the file.
+    */
+   public Path getFile() {
+      return file;
+   }
+
+
+   /**
+    * Returns the root section of the loaded file.
+    * 
+    * @return {@link Section}: the root section or null if loading failed.
+    */
+   public Section getRootSection() {
+      return root;
+   }
+
+
+   /**
+    * Returns the error that occurred while loading the file.
+    * 
+    * @return {@link Exception}: the error or null if the file was loaded.
+    */
+   public Exception getError() {
+      return error;
+   }
+
+
+   /**
+    * Returns the diagnostics reported while loading the file.
+    * 
+    * @return {@link ParseReport}: the report or null if loading did not start.
+    */
+   public ParseReport getReport() {
+      return report;
+   }
+
+
+   /**
+    * Returns whether the file was loaded successfully.
+    * 
+    * @return boolean: true if the root section is available, false otherwise.
+    */
+   public boolean isSuccessful() {
+      return root != null;
+   }
+}
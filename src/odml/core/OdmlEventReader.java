@@ -0,0 +1,660 @@
+package odml.core;
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Vector;
+
+/**
+ * The {@link OdmlEventReader} reads an odML document as a sequence of events in document order without building
+ * the odML tree. This allows to count, filter or forward the content of very large files in constant memory.
+ * There are three kinds of events:
+ * <ol>
+ * <li>SECTION_START - a section begins, {@link #getSection()} returns the new section without its properties and
+ * subsections.</li>
+ * <li>PROPERTY - a property of the current section, {@link #getProperty()} returns the property with all its
+ * {@link Value}s.</li>
+ * <li>SECTION_END - the current section ends.</li>
+ * </ol>
+ * Sections and properties are created with the same field semantics as the {@link Reader}. They are, however, not
+ * attached to their parents, thus {@link Section#getPath()} is not available and the event reader provides the path
+ * with {@link #getPath()} instead. A typical loop looks like:
+ * 
+ * <pre>
+ * OdmlEventReader events = new OdmlEventReader(stream);
+ * while (events.hasNext()) {
+ *    if (events.next() == OdmlEventReader.SECTION_START) {
+ *       System.out.println(events.getPath());
+ *    }
+ * }
+ * events.close();
+ * </pre>
+ * 
+ * The section start event is issued as soon as the first property or subsection of a section is read. Section
+ * fields that follow later in the document are applied to the already issued section. A section whose type is
+ * not known by then is started once its type is read, its properties and subsections are held back until then.
+ * 
+ * The events can be restricted to certain branches of the document with
+ * {@link #setSectionFilter(String[], String[])}. Sections that are not selected are skipped by the parser without
+ * creating any objects for them.
+ */
+public class OdmlEventReader {
+
+   public static final int           SECTION_START  = 1, PROPERTY = 2, SECTION_END = 3;
+   private final XMLStreamReader     xml;
+   private final Section             root           = new Section();
+   private final Map<String, String> documentFields = new HashMap<String, String>();
+   private final Deque<Frame>        frames         = new ArrayDeque<Frame>();
+   private final Deque<Event>        pending        = new ArrayDeque<Event>();
+   private Event                     current        = null;
+   private boolean                   finished       = false;
+   private String[]                  filterPaths    = null, filterTypes = null;
+   private StringPool                pool           = null;
+   private int                       waiting        = 0;
+
+
+   /**
+    * Creates an event reader for the odML document in the given stream.
+    * 
+    * @param stream {@link InputStream}: the input stream.
+    * @throws XMLStreamException
+    */
+   public OdmlEventReader(InputStream stream) throws XMLStreamException {
+      this(createStreamReader(stream));
+   }
+
+
+   /**
+    * Creates an event reader on top of an {@link XMLStreamReader}. The reader is expected to be positioned before
+    * the odML root element.
+    * 
+    * @param xml {@link XMLStreamReader}: the stream reader of the document.
+    * @throws XMLStreamException
+    */
+   public OdmlEventReader(XMLStreamReader xml) throws XMLStreamException {
+      this.xml = xml;
+      while (xml.next() != XMLStreamConstants.START_ELEMENT) {
+         // skip the prolog, including a document type declaration
+      }
+      String odmlVersion = xml.getAttributeValue(null, "version");
+      if (odmlVersion == null || Float.parseFloat(odmlVersion) != 1.0) {
+         Diagnostics.error("OdmlEventReader", null, "Can not handle odmlVersion: " + odmlVersion
+                 + " stopping further processing!");
+         finished = true;
+      }
+   }
+
+
+   private static XMLStreamReader createStreamReader(InputStream stream) throws XMLStreamException {
+      return Reader.getInputFactory().createXMLStreamReader(stream);
+   }
+
+
+   /**
+    * Restricts the events to certain branches of the document. A section is selected if its absolute path matches
+    * one of the paths or if it is of one of the types (super-types match their derived types, see
+    * {@link Section#getSectionsByType(String)}). Selected sections are read with their properties and whole
+    * subtree. Their ancestors are issued without properties to preserve the path, all other sections are skipped.
+    * Matching is case-insensitive and is done on the names as they appear in the document. Must be called before the
+    * first event is read.
+    * 
+    * @param paths {@link String}[]: absolute section paths like /Recording/Stimulus, may be null.
+    * @param types {@link String}[]: section types, may be null.
+    */
+   public void setSectionFilter(String[] paths, String[] types) {
+      filterPaths = null;
+      filterTypes = null;
+      if (paths != null && paths.length > 0) {
+         filterPaths = new String[paths.length];
+         for (int i = 0; i < paths.length; i++) {
+            String path = paths[i].trim();
+            if (path.contains("#")) {
+               path = path.substring(0, path.indexOf("#"));
+            }
+            if (path.endsWith("/")) {
+               path = path.substring(0, path.length() - 1);
+            }
+            filterPaths[i] = path.startsWith("/") ? path : "/" + path;
+         }
+      }
+      if (types != null && types.length > 0) {
+         filterTypes = types.clone();
+         if (filterPaths == null) {
+            filterPaths = new String[0];
+         }
+      } else if (filterPaths != null) {
+         filterTypes = new String[0];
+      }
+   }
+
+
+   /**
+    * Sets the pool through which the names, types, units, definitions and references of the sections, properties
+    * and values are passed. Must be called before the first event is read.
+    * 
+    * @param pool {@link StringPool}: the pool or null for no pooling.
+    * @see Reader#setStringPool(StringPool)
+    */
+   public void setStringPool(StringPool pool) {
+      this.pool = pool;
+   }
+
+
+   /**
+    * Returns whether there are more events in the document.
+    * 
+    * @return boolean: true if {@link #next()} can be called.
+    * @throws XMLStreamException
+    */
+   public boolean hasNext() throws XMLStreamException {
+      while (pending.isEmpty() && !finished) {
+         int event = xml.next();
+         if (event == XMLStreamConstants.START_ELEMENT) {
+            startElement(xml.getLocalName());
+         } else if (event == XMLStreamConstants.END_ELEMENT) {
+            endElement();
+         } else if (event == XMLStreamConstants.END_DOCUMENT) {
+            finished = true;
+         }
+      }
+      return !pending.isEmpty();
+   }
+
+
+   /**
+    * Moves to the next event and returns its kind.
+    * 
+    * @return int: one of SECTION_START, PROPERTY or SECTION_END.
+    * @throws XMLStreamException
+    */
+   public int next() throws XMLStreamException {
+      if (!hasNext()) {
+         throw new NoSuchElementException("OdmlEventReader.next: there are no more events!");
+      }
+      current = pending.poll();
+      return current.type;
+   }
+
+
+   /**
+    * Returns the section of the current event. For PROPERTY events this is the section the property belongs to.
+    * 
+    * @return {@link Section}: the section, which has no parent, subsections or properties.
+    */
+   public Section getSection() {
+      return current == null ? null : current.frame.section;
+   }
+
+
+   /**
+    * Returns the property of the current event.
+    * 
+    * @return {@link Property}: the property if the current event is a PROPERTY event, null otherwise.
+    */
+   public Property getProperty() {
+      return current == null ? null : current.property;
+   }
+
+
+   /**
+    * Returns the absolute path of the section of the current event. Names of sibling sections are not made unique
+    * as it is done when they are added to a tree.
+    * 
+    * @return {@link String}: the path, e.g. /Recording/Stimulus.
+    */
+   public String getPath() {
+      return current == null ? null : current.frame.path;
+   }
+
+
+   /**
+    * Returns the level of the section of the current event. Sections directly below the root have level 1.
+    * 
+    * @return int: the level.
+    */
+   public int getLevel() {
+      return current == null ? 0 : current.frame.level;
+   }
+
+
+   /**
+    * Returns a root section that carries the document information, i.e. author, date, version and repository. The
+    * information is filled in while the document is read and is complete once the first section was started. The
+    * root section does not get any subsections.
+    * 
+    * @return {@link Section}: the root section.
+    */
+   public Section getRootSection() {
+      return root;
+   }
+
+
+   /**
+    * Closes the underlying {@link XMLStreamReader}. The input stream itself is not closed.
+    * 
+    * @throws XMLStreamException
+    */
+   public void close() throws XMLStreamException {
+      finished = true;
+      pending.clear();
+      xml.close();
+   }
+
+
+   private void startElement(String element) throws XMLStreamException {
+      Frame frame = frames.peek();
+      boolean isSection = element.equals("section");
+      if (frame == null) {
+         if (isSection) {
+            frames.push(new Frame(null));
+         } else if (putField(documentFields, element, readText(xml))) {
+            Reader.setDocumentInfo(root, documentFields.get("author"), documentFields.get("date"),
+                  documentFields.get("version"), documentFields.get("repository"));
+         }
+         return;
+      }
+      if (isSection || element.equals("property")) {
+         if (frame.path == null) {
+            start(frame);
+         }
+         if (frame.section == null && !frame.descend && frame.held == null) {
+            // the section could not be created or is filtered, skip this element and the rest of the section
+            skipElement(xml);
+            skipElement(xml);
+            frames.pop();
+         } else if (isSection) {
+            frames.push(new Frame(frame));
+         } else if (!frame.selected) {
+            skipElement(xml);
+         } else {
+            Property property = parseProperty(xml, pool);
+            if (property != null) {
+               issue(new Event(PROPERTY, frame, property));
+            }
+         }
+      } else {
+         String text = readText(xml);
+         if (putField(frame.fields, element, text)) {
+            if (frame.section != null) {
+               setSectionField(frame.section, element, text, pool);
+            } else if (frame.held != null && element.equals("type") && !text.isEmpty()) {
+               release(frame);
+            }
+         }
+      }
+   }
+
+
+   private void endElement() {
+      Frame frame = frames.poll();
+      if (frame == null) {
+         finished = true;
+         return;
+      }
+      if (frame.path == null) {
+         start(frame);
+      }
+      if (frame.section != null) {
+         issue(new Event(SECTION_END, frame, null));
+      } else if (frame.held != null) {
+         Diagnostics.error("OdmlEventReader", frame.path, "a section has no type, it is skipped with its "
+               + "properties and subsections!");
+         frame.held = null;
+         waiting--;
+      }
+   }
+
+
+   /**
+    * Decides on a section once the fields collected so far are complete, i.e. on its first property, subsection or
+    * its end tag. Selected sections are created and issued, others are only descended into if they may contain
+    * selected subsections.
+    */
+   private void start(Frame frame) {
+      String parentPath = frame.parent == null ? "" : frame.parent.path;
+      if (filterPaths == null) {
+         frame.selected = true;
+         create(frame);
+         frame.path = frame.section == null ? parentPath : parentPath + "/" + frame.section.getName();
+         return;
+      }
+      String type = frame.fields.get("type");
+      String name = frame.fields.get("name");
+      if (type == null || type.isEmpty()) {
+         Diagnostics.error("OdmlEventReader", parentPath, "the type of a section must precede its properties and "
+               + "subsections when a section filter is used, the section is skipped!");
+         frame.path = parentPath;
+         return;
+      }
+      if (name == null || name.isEmpty()) {
+         name = type;
+      }
+      frame.path = parentPath + "/" + Section.checkNameStyle(name);
+      if ((frame.parent != null && frame.parent.selected) || isSelected(frame.path, Section.checkTypeStyle(type))) {
+         frame.selected = true;
+         create(frame);
+      } else {
+         frame.descend = mayContainSelected(frame.path);
+      }
+   }
+
+
+   /**
+    * Creates the section of a frame from its fields and issues the SECTION_START event. Ancestors that have not been
+    * issued so far are created first.
+    */
+   private void create(Frame frame) {
+      if (frame.parent != null && frame.parent.section == null && frame.parent.held == null) {
+         create(frame.parent);
+      }
+      Map<String, String> fields = frame.fields;
+      String type = fields.get("type");
+      if (filterPaths == null && (type == null || type.isEmpty())) {
+         // the type may still follow, see release
+         frame.held = new ArrayList<Event>();
+         waiting++;
+         return;
+      }
+      frame.section = Reader.createSection(pool, type, fields.get("name"), fields.get("reference"),
+            fields.get("definition"), fields.get("mapping"), fields.get("repository"), fields.get("link"),
+            fields.get("include"));
+      if (frame.section != null) {
+         issue(new Event(SECTION_START, frame, null));
+      }
+   }
+
+
+   /**
+    * Creates the section of a frame whose type was read after its first property or subsection and issues the
+    * events that were held back. The paths of the held sections are completed as they depend on its name.
+    */
+   private void release(Frame frame) {
+      List<Event> held = frame.held;
+      frame.held = null;
+      waiting--;
+      create(frame);
+      if (frame.section == null) {
+         return;
+      }
+      frame.path = (frame.parent == null ? "" : frame.parent.path) + "/" + frame.section.getName();
+      for (Event event : held) {
+         if (event.type == SECTION_START) {
+            event.frame.path = event.frame.parent.path + "/" + event.frame.section.getName();
+         }
+         issue(event);
+      }
+   }
+
+
+   /**
+    * Queues an event. Events within a section that waits for its type are held back by the innermost such section,
+    * which passes them on when it is released.
+    */
+   private void issue(Event event) {
+      Frame holder = null;
+      for (Frame frame = event.frame; waiting > 0 && frame != null && holder == null; frame = frame.parent) {
+         if (frame.held != null) {
+            holder = frame;
+         }
+      }
+      if (holder != null) {
+         holder.held.add(event);
+      } else {
+         pending.add(event);
+      }
+   }
+
+
+   private boolean isSelected(String path, String type) {
+      for (String filterPath : filterPaths) {
+         if (filterPath.equalsIgnoreCase(path)) {
+            return true;
+         }
+      }
+      for (String filterType : filterTypes) {
+         if (type.equalsIgnoreCase(filterType) || (type.contains("/")
+               && type.substring(0, type.indexOf("/")).equalsIgnoreCase(filterType))) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+
+   private boolean mayContainSelected(String path) {
+      if (filterTypes.length > 0) {
+         return true;
+      }
+      for (String filterPath : filterPaths) {
+         if (filterPath.length() > path.length() && filterPath.charAt(path.length()) == '/'
+               && filterPath.regionMatches(true, 0, path, 0, path.length())) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+
+   /**
+    * Applies a section field that appears in the stream only after the section has been started, i.e. after its
+    * first property or subsection.
+    * 
+    * @param section {@link Section}: the section.
+    * @param field {@link String}: the name of the field element.
+    * @param text {@link String}: the text content of the field element.
+    * @param pool {@link StringPool}: the pool for the type, name, reference and definition, may be null.
+    */
+   static void setSectionField(Section section, String field, String text, StringPool pool) {
+      if (pool != null && (field.equals("name") || field.equals("type") || field.equals("reference")
+            || field.equals("definition"))) {
+         text = pool.intern(text);
+      }
+      if (field.equals("name")) {
+         section.setName(text);
+      } else if (field.equals("type")) {
+         section.setType(text);
+      } else if (field.equals("reference")) {
+         section.setReference(text);
+      } else if (field.equals("definition")) {
+         section.setDefinition(text);
+      } else if (field.equals("mapping") && !text.isEmpty()) {
+         section.setMapping(text);
+      } else if (field.equals("repository") && !text.isEmpty()) {
+         section.setRepository(text);
+      } else if (field.equals("link")) {
+         section.setLink(text, true);
+      } else if (field.equals("include")) {
+         section.setInclude(text);
+      }
+   }
+
+
+   /**
+    * Parses a property from the stream reader and creates the odMLProperty representation of it. The reader must be
+    * positioned on the start tag of the property and is left on its end tag.
+    * 
+    * @param xml - {@link XMLStreamReader}: the reader positioned on the property
+    * @param pool - {@link StringPool}: the pool for the strings of the property and its values, may be null
+    * @return {@link Property} the {@link Property} representation of the xml property
+    * @throws XMLStreamException
+    */
+   static Property parseProperty(XMLStreamReader xml, StringPool pool) throws XMLStreamException {
+      Map<String, String> fields = new HashMap<String, String>();
+      Vector<Value> tmpValues = new Vector<Value>();
+      while (nextChild(xml)) {
+         String element = xml.getLocalName();
+         if (element.equals("value")) {
+            tmpValues.add(parseValue(xml, pool));
+         } else {
+            putField(fields, element, readText(xml));
+         }
+      }
+      String name = fields.get("name");
+      return Reader.createProperty(pool, name == null ? null : name.trim(), tmpValues, fields.get("definition"),
+            fields.get("dependency"), fields.get("dependencyValue"), fields.get("mapping"));
+   }
+
+
+   /**
+    * Parses a value from the stream reader and creates the odMLValue representation of it. The reader must be
+    * positioned on the start tag of the value and is left on its end tag.
+    * 
+    * @param xml - {@link XMLStreamReader}: the reader positioned on the value
+    * @param pool - {@link StringPool}: the pool for the strings of the value, may be null
+    * @return {@link Value} the {@link Value} representation of the xml value
+    * @throws XMLStreamException
+    */
+   private static Value parseValue(XMLStreamReader xml, StringPool pool) throws XMLStreamException {
+      Map<String, String> fields = new HashMap<String, String>();
+      StringBuilder content = new StringBuilder();
+      int event = xml.next();
+      while (event != XMLStreamConstants.END_ELEMENT) {
+         if (event == XMLStreamConstants.START_ELEMENT) {
+            putField(fields, xml.getLocalName(), readText(xml));
+         } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+               || event == XMLStreamConstants.SPACE) {
+            content.append(xml.getText());
+         }
+         event = xml.next();
+      }
+      return Reader.createValue(pool, content.toString().trim(), fields.get("unit"), fields.get("uncertainty"),
+            fields.get("type"), fields.get("filename"), fields.get("definition"), fields.get("reference"),
+            fields.get("encoder"), fields.get("checksum"));
+   }
+
+
+   /**
+    * Moves the stream reader to the next child element of the current element.
+    * 
+    * @param xml {@link XMLStreamReader}: the reader.
+    * @return boolean: true if the reader is positioned on the start tag of a child element, false if the end tag of
+    *         the current element was reached.
+    * @throws XMLStreamException
+    */
+   static boolean nextChild(XMLStreamReader xml) throws XMLStreamException {
+      while (xml.hasNext()) {
+         int event = xml.next();
+         if (event == XMLStreamConstants.START_ELEMENT) {
+            return true;
+         } else if (event == XMLStreamConstants.END_ELEMENT) {
+            return false;
+         }
+      }
+      return false;
+   }
+
+
+   /**
+    * Returns the text of the current element, like {@link org.jdom2.Element#getText()} only direct text content is
+    * collected, nested elements are skipped. The reader is left on the end tag of the element.
+    * 
+    * @param xml {@link XMLStreamReader}: the reader positioned on a start tag.
+    * @return {@link String} the text content, may be empty.
+    * @throws XMLStreamException
+    */
+   static String readText(XMLStreamReader xml) throws XMLStreamException {
+      StringBuilder text = new StringBuilder();
+      int event = xml.next();
+      while (event != XMLStreamConstants.END_ELEMENT) {
+         if (event == XMLStreamConstants.START_ELEMENT) {
+            skipElement(xml);
+         } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+               || event == XMLStreamConstants.SPACE) {
+            text.append(xml.getText());
+         }
+         event = xml.next();
+      }
+      return text.toString();
+   }
+
+
+   /**
+    * Skips the rest of the current element including all its content. The reader is left on the end tag of the
+    * element.
+    * 
+    * @param xml {@link XMLStreamReader}: the reader positioned on a start tag or inside the element.
+    * @throws XMLStreamException
+    */
+   static void skipElement(XMLStreamReader xml) throws XMLStreamException {
+      int depth = 1;
+      while (depth > 0) {
+         int event = xml.next();
+         if (event == XMLStreamConstants.START_ELEMENT) {
+            depth++;
+         } else if (event == XMLStreamConstants.END_ELEMENT) {
+            depth--;
+         }
+      }
+   }
+
+
+   /**
+    * Stores the text of a field element unless the field was already found. Like
+    * {@link org.jdom2.Element#getChildText(String)} the first occurrence of an element wins.
+    * 
+    * @return boolean: true if the field was stored, false if it was already present.
+    */
+   static boolean putField(Map<String, String> fields, String element, String text) {
+      if (fields.containsKey(element)) {
+         return false;
+      }
+      fields.put(element, text);
+      return true;
+   }
+
+
+   /**
+    * The state of a section that is currently open in the document.
+    */
+   private static class Frame {
+      private final Frame               parent;
+      private final int                 level;
+      private final Map<String, String> fields = new HashMap<String, String>();
+      private Section                   section;
+      private String                    path;
+      private List<Event>               held;
+      private boolean                   selected, descend;
+
+
+      private Frame(Frame parent) {
+         this.parent = parent;
+         this.level = parent == null ? 1 : parent.level + 1;
+      }
+   }
+
+
+   private static class Event {
+      private final int      type;
+      private final Frame    frame;
+      private final Property property;
+
+
+      private Event(int type, Frame frame, Property property) {
+         this.type = type;
+         this.frame = frame;
+         this.property = property;
+      }
+   }
+}
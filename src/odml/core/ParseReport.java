@@ -0,0 +1,116 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import odml.core.Diagnostic.Severity;
+
+/**
+ * The {@link ParseReport} collects the {@link Diagnostic}s reported while a {@link Reader} loads a document,
+ * including its includes, link resolution and mapping. All diagnostics are counted, but only the first
+ * {@link #MAX_DIAGNOSTICS} are kept.
+ * 
+ * @see Reader#setReporting(boolean)
+ */
+public class ParseReport {
+
+   /**
+    * The maximum number of diagnostics kept by a report.
+    */
+   public static final int            MAX_DIAGNOSTICS = 1000;
+
+   private final List<Diagnostic>     diagnostics     = new ArrayList<Diagnostic>();
+   private final Map<String, Integer> codeCounts      = new LinkedHashMap<String, Integer>();
+   private final int[]                severityCounts  = new int[Severity.values().length];
+
+
+   synchronized void add(Diagnostic diagnostic) {
+      severityCounts[diagnostic.getSeverity().ordinal()]++;
+      Integer count = codeCounts.get(diagnostic.getCode());
+      codeCounts.put(diagnostic.getCode(), count == null ? 1 : count + 1);
+      if (diagnostics.size() < MAX_DIAGNOSTICS) {
+         diagnostics.add(diagnostic);
+      }
+   }
+
+
+   /**
+    * Returns the collected diagnostics in the order they were reported.
+    * 
+    * @return {@link List}: the first {@link #MAX_DIAGNOSTICS} diagnostics.
+    */
+   public synchronized List<Diagnostic> getDiagnostics() {
+      return Collections.unmodifiableList(new ArrayList<Diagnostic>(diagnostics));
+   }
+
+
+   /**
+    * Returns the number of diagnostics of the given severity.
+    * 
+    * @param severity {@link Severity}: the severity.
+    * @return int: the number of diagnostics.
+    */
+   public synchronized int getCount(Severity severity) {
+      return severityCounts[severity.ordinal()];
+   }
+
+
+   /**
+    * Returns the number of diagnostics per code.
+    * 
+    * @return {@link Map}: the counts by code in the order the codes first occurred.
+    */
+   public synchronized Map<String, Integer> getCounts() {
+      return Collections.unmodifiableMap(new LinkedHashMap<String, Integer>(codeCounts));
+   }
+
+
+   /**
+    * Returns the total number of diagnostics.
+    * 
+    * @return int: the number of diagnostics.
+    */
+   public synchronized int size() {
+      int size = 0;
+      for (int count : severityCounts) {
+         size += count;
+      }
+      return size;
+   }
+
+
+   /**
+    * Returns whether errors were reported.
+    * 
+    * @return boolean: true if there was at least one error, false otherwise.
+    */
+   public boolean hasErrors() {
+      return getCount(Severity.ERROR) > 0;
+   }
+
+
+   @Override
+   public synchronized String toString() {
+      return "ParseReport: " + severityCounts[Severity.ERROR.ordinal()] + " errors, "
+            + severityCounts[Severity.WARNING.ordinal()] + " warnings, " + severityCounts[Severity.INFO.ordinal()]
+            + " infos " + codeCounts;
+   }
+}
@@ -0,0 +1,198 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Progress} tracks a running load or write: the current phase, the number of bytes read or written and the
+ * number of sections, properties and values created or written so far. It is passed to the {@link ProgressListener}
+ * whenever the phase changes and regularly in between, the counters are updated while the operation runs.
+ * 
+ * @see Reader#setProgressListener(ProgressListener)
+ * @see Writer#setProgressListener(ProgressListener)
+ */
+public class Progress {
+
+   /**
+    * The phases of a load or write.
+    */
+   public enum Phase {
+      PARSE, INCLUDES, LINKS, MAP, WRITE, DONE
+   }
+
+   private static final long      BYTES_STEP    = 1 << 16;
+   private static final long      SECTIONS_STEP = 1 << 10;
+   private final ProgressListener listener;
+   private volatile Phase         phase;
+   private final AtomicLong       bytes         = new AtomicLong(), sections = new AtomicLong(),
+                                  properties    = new AtomicLong(), values = new AtomicLong();
+
+
+   Progress(ProgressListener listener, Phase phase) {
+      this.listener = listener;
+      this.phase = phase;
+   }
+
+
+   /**
+    * Returns the current phase.
+    * 
+    * @return {@link Phase}: the phase.
+    */
+   public Phase getPhase() {
+      return phase;
+   }
+
+
+   /**
+    * Returns the number of bytes read from the document or written to the stream so far.
+    * 
+    * @return long: the number of bytes.
+    */
+   public long getBytes() {
+      return bytes.get();
+   }
+
+
+   /**
+    * Returns the number of sections created or written so far.
+    * 
+    * @return long: the number of sections.
+    */
+   public long getSections() {
+      return sections.get();
+   }
+
+
+   /**
+    * Returns the number of properties created or written so far.
+    * 
+    * @return long: the number of properties.
+    */
+   public long getProperties() {
+      return properties.get();
+   }
+
+
+   /**
+    * Returns the number of values created or written so far.
+    * 
+    * @return long: the number of values.
+    */
+   public long getValues() {
+      return values.get();
+   }
+
+
+   @Override
+   public String toString() {
+      return phase + ": " + bytes + " bytes, " + sections + " sections, " + properties + " properties, " + values
+            + " values";
+   }
+
+
+   /**
+    * Enters the phase and notifies the listener.
+    */
+   void setPhase(Phase phase) {
+      this.phase = phase;
+      notifyListener();
+   }
+
+
+   void addBytes(long count) {
+      long total = bytes.addAndGet(count);
+      if (total / BYTES_STEP != (total - count) / BYTES_STEP) {
+         notifyListener();
+      }
+   }
+
+
+   void addSection() {
+      if (sections.incrementAndGet() % SECTIONS_STEP == 0) {
+         notifyListener();
+      }
+   }
+
+
+   void addProperty(int valueCount) {
+      properties.incrementAndGet();
+      values.addAndGet(valueCount);
+   }
+
+
+   /**
+    * Wraps the stream so that the bytes read are counted.
+    */
+   InputStream wrap(InputStream stream) {
+      return new FilterInputStream(stream) {
+         @Override
+         public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+               addBytes(1);
+            }
+            return b;
+         }
+
+
+         @Override
+         public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+               addBytes(read);
+            }
+            return read;
+         }
+      };
+   }
+
+
+   /**
+    * Wraps the stream so that the bytes written are counted.
+    */
+   OutputStream wrap(OutputStream stream) {
+      return new FilterOutputStream(stream) {
+         @Override
+         public void write(int b) throws IOException {
+            out.write(b);
+            addBytes(1);
+         }
+
+
+         @Override
+         public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            addBytes(len);
+         }
+      };
+   }
+
+
+   private void notifyListener() {
+      try {
+         listener.progress(this);
+      } catch (RuntimeException e) {
+         Diagnostics.error("Progress.notify", null, "the progress listener failed: " + e.getMessage(), e);
+      }
+   }
+}
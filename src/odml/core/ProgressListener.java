@@ -0,0 +1,30 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+/**
+ * A {@link ProgressListener} is notified about the {@link Progress} of a load or write. When a document is parsed in
+ * parallel, the listener may be called from several threads.
+ */
+public interface ProgressListener {
+
+   /**
+    * Called when the phase changes and regularly while a phase runs.
+    * 
+    * @param progress {@link Progress}: the progress, its counters keep changing after the call.
+    */
+   void progress(Progress progress);
+}
@@ -144,7 +144,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
       try {
          initialize(name, values, definition, dependency, dependencyValue, mapping);
       } catch (Exception l) {
-         System.out.println("Could not create property: " + l.getLocalizedMessage());
+         Diagnostics.error("Property", null, "Could not create property: " + l.getLocalizedMessage());
       }
    }
 
@@ -181,7 +181,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
                valueDefinition, reference));
          initialize(name, theValues, definition, dependency, dependencyValue, mapping);
       } catch (Exception l) {
-         System.out.println("Could not create property: " + l.getLocalizedMessage());
+         Diagnostics.error("Property", null, "Could not create property: " + l.getLocalizedMessage());
       }
    }
 
@@ -238,7 +238,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
                   tmpFileNames, definition, tmpReference);
             theValues.add(value);
          } catch (Exception e) {
-            System.out.println("Error during creation of value: " + e.getLocalizedMessage());
+            Diagnostics.error("Property", null, "Error during creation of value: " + e.getLocalizedMessage());
          }
       }
       initialize(name, theValues, definition, dependency, dependencyValue, mapping);
@@ -294,6 +294,16 @@ public class Property implements Serializable, Cloneable, TreeNode {
    }
 
 
+   /**
+    * Marks the parent section as modified, see {@link Section#markModified()}.
+    */
+   void markModified() {
+      if (parentSection != null) {
+         parentSection.markModified();
+      }
+   }
+
+
    /**
     * Set the name of the property
     *
@@ -301,6 +311,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public void setName(String name) {
       this.name = name;
+      markModified();
    }
 
 
@@ -325,6 +336,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
          this.definition = definition;
       else
          this.definition = "";
+      markModified();
    }
 
 
@@ -391,7 +403,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
       try {
          return (myDF.parse(getValue(i).toString())).doubleValue();
       } catch (ParseException e) {
-         System.out.println("Value " + i + " can not be converted to float!");
+         Diagnostics.error("Property.getNumber", this, "Value " + i + " can not be converted to float!");
          return Double.NaN;
       }
    }
@@ -439,7 +451,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
       try {
          return sdf.parse(getValue(i).toString());
       } catch (Exception e) {
-         System.out.println("Value could not be converted to a date entry.");
+         Diagnostics.error("Property.getDate", this, "Value could not be converted to a date entry.");
          return null;
       }
    }
@@ -466,7 +478,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
       try {
          return sdf.parse(getValue(i).toString());
       } catch (Exception e) {
-         System.out.println("Value could not be converted to a time entry.");
+         Diagnostics.error("Property.getTime", this, "Value could not be converted to a time entry.");
          return null;
       }
    }
@@ -515,7 +527,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
    public boolean addValue(Object value, String id, String unit, Object uncertainty, String type,
                            String filename, String comment) {
       if (value == null) {
-         System.out.println("! the value to add must not be null or empty!");
+         Diagnostics.warning("Property.addValue", this, "the value to add must not be null or empty!");
          return false;
       }
       try {
@@ -525,14 +537,15 @@ public class Property implements Serializable, Cloneable, TreeNode {
          Value toAdd = new Value(value, unit, uncertainty, type, filename, comment, id);
          toAdd.setAssociatedProperty(this);
          if (values.contains(toAdd)) {
-            System.out.println("! value to add already existing in property!");
+            Diagnostics.warning("Property.addValue", this, "value to add already existing in property!");
             return false;
          }
          values.add(toAdd);
+         markModified();
          if (type != null && (!type.isEmpty())) {
             if ((values.get(0).getType() != null) && (!values.get(0).getType().isEmpty())
                   && (!type.equalsIgnoreCase(values.get(0).getType()))) {
-               System.out.println("! type of newly added value (" + type
+               Diagnostics.warning("Property.addValue", this, "type of newly added value (" + type
                      + ") differs from the one of the first value "
                      + "of the proprty (" + values.get(0).getType()
                      + ") > should be the same! index of newly "
@@ -543,7 +556,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
             }
          }
       } catch (Exception e) {
-         System.out.println("! error trying to initialize value: " + e.getMessage());
+         Diagnostics.error("Property.addValue", this, "error trying to initialize value: " + e.getMessage());
       }
       return true;
    }
@@ -561,6 +574,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
          val.setAssociatedProperty(this);
          this.values.add(val);
       }
+      markModified();
    }
 
 
@@ -573,7 +587,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public boolean setValue(Object value) {
       if (this.values.size() > 1) {
-         System.out.println("! property has more than one value > index must be specified to know which one shall be set");
+         Diagnostics.warning("Property.setValue", this, "property has more than one value > index must be specified "
+                 + "to know which one shall be set");
          return false;
       }
       return setValueAt(value, 0);
@@ -590,14 +605,16 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public boolean setValueAt(Object value, int index) {
       if (index < 0 || index >= this.valueCount()) {
-         System.out.println("Property.setValueAt: specified index out of range!");
+         Diagnostics.warning("Property.setValueAt", this, "specified index out of range!");
          return false;
       }
       try {
          Value toAdd = new Value(value, null);
+         toAdd.setAssociatedProperty(this);
          this.values.set(index, toAdd);
+         markModified();
       } catch (Exception e) {
-         System.out.println("Property.setValueAt: An exception occurred! " + e.getMessage());
+         Diagnostics.error("Property.setValueAt", this, "An exception occurred! " + e.getMessage());
       }
       if (this.name.equalsIgnoreCase("name") && value instanceof String) {
          this.parentSection.setName((String) value);
@@ -681,7 +698,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
       try {
          return this.values.get(index).getContent();
       } catch (Exception e) {
-         System.out.println(e.getMessage());
+         Diagnostics.error("Property.getValue", this, e.getMessage());
          return null;
       }
    }
@@ -707,7 +724,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
       try {
          return this.values.get(index);
       } catch (Exception e) {
-         System.out.println(e.getMessage());
+         Diagnostics.error("Property.getWholeValue", this, e.getMessage());
          return null;
       }
    }
@@ -731,6 +748,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
          return false;
       }
       this.values.remove(index);
+      markModified();
       return true;
    }
 
@@ -749,6 +767,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
          return false;
       }
       this.values.remove(index);
+      markModified();
       return true;
    }
 
@@ -790,7 +809,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public boolean setValueReference(String reference) {
       if (this.values.size() > 1) {
-         System.out.println("! property has more than one value > index must be specified to know which id to set!");
+         Diagnostics.warning("Property.setValueReference", this, "property has more than one value > index must be "
+                 + "specified to know which id to set!");
          return false;
       }
       setValueReferenceAt(reference, 0);
@@ -837,7 +857,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public boolean setValueReferenceAt(String reference, int index) {
       if (this.values.size() <= index || index < 0) {
-         System.out.println("! specified index for settingValueId out of range!");
+         Diagnostics.warning("Property.setValueReferenceAt", this, "specified index for settingValueId out of range!");
          return false;
       }
       this.values.get(index).setReference(reference);
@@ -886,7 +906,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
          }
          return reference;
       } catch (Exception e) {
-         System.out.println("! fetching id for given value specified by it's index failed: " + e.getMessage());
+         Diagnostics.error("Property.getValueReference", this, "fetching id for given value specified by it's index "
+                 + "failed: " + e.getMessage());
          return null;
       }
    }
@@ -901,7 +922,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public boolean setValueUncertainty(Object uncertainty) {
       if (this.values.size() > 1) {
-         System.out.println("! property has more than one value > index must be specified to know which uncertainty to set!");
+         Diagnostics.warning("Property.setValueUncertainty", this, "property has more than one value > index must "
+                 + "be specified to know which uncertainty to set!");
          return false;
       }
       return setValueUncertaintyAt(uncertainty, 0);
@@ -917,7 +939,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public boolean setValueUncertaintyAt(Object uncertainty, int index) {
       if (this.values.size() <= index || index < 0) {
-         System.out.println("! given index for setting uncertainty out of range!");
+         Diagnostics.warning("Property.setValueUncertaintyAt", this, "given index for setting uncertainty out of "
+                 + "range!");
          return false;
       }
       this.values.get(index).setUncertainty(uncertainty);
@@ -947,7 +970,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public Object getValueUncertainty() {
       if (values.size() > 1) {
-         System.out.println("! more than one value existing > index of value must be specified to know "
+         Diagnostics.warning("Property.getValueUncertainty", this, "more than one value existing > index of value "
+                 + "must be specified to know "
                + "which uncertainty shall be returned!");
          return null;
       }
@@ -973,7 +997,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
             return uncertainty;
          }
       } catch (Exception e) {
-         System.out.println(e.getMessage());
+         Diagnostics.error("Property.getValueUncertainty", this, e.getMessage());
          return null;
       }
    }
@@ -988,7 +1012,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public boolean setValueDefinition(String definition) {
       if (this.values.size() > 1) {
-         System.out.println("! property has more than one value > index must be specified to know which valueComment to set!");
+         Diagnostics.warning("Property.setValueDefinition", this, "property has more than one value > index must be "
+                 + "specified to know which valueComment to set!");
          return false;
       }
       return setValueDefinitionAt(definition, 0);
@@ -1004,7 +1029,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public boolean setValueDefinitionAt(String definition, int index) {
       if (this.values.size() <= index || index < 0) {
-         System.out.println("! given index for setting valueComment out of range!");
+         Diagnostics.warning("Property.setValueDefinitionAt", this, "given index for setting valueComment out of "
+                 + "range!");
          return false;
       }
       this.values.get(index).setDefinition(definition);
@@ -1041,7 +1067,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
          }
          return comment;
       } catch (Exception e) {
-         System.out.println(e.getMessage());
+         Diagnostics.error("Property.getValueDefinition", this, e.getMessage());
          return null;
       }
    }
@@ -1064,27 +1090,28 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public void merge(Property otherProperty, int mergeOption) {
       if (!this.name.equalsIgnoreCase(otherProperty.getName())) {
-         System.out.println("Property.merge error: cannot merge properties of different names!");
+         Diagnostics.error("Property.merge", this, "cannot merge properties of different names!");
          return;
       }
       if ((this.getType() != null && otherProperty.getType() != null)
             && !this.getType().equalsIgnoreCase(otherProperty.getType())) {
-         System.out.println("Property.merge error: cannot merge properties based with different data types!");
+         Diagnostics.error("Property.merge", this, "cannot merge properties based with different data types!");
          return;
       }
       if ((this.getMapping() != null && otherProperty.getMapping() != null)
             && !this.getMapping().sameFile(otherProperty.getMapping())) {
-         System.out.println("Property.merge error: cannot merge properties mapping to different properties!");
+         Diagnostics.error("Property.merge", this, "cannot merge properties mapping to different properties!");
          return;
       }
       if ((this.getDefinition() != null && otherProperty.getDefinition() != null)
             && !this.getDefinition().equalsIgnoreCase(otherProperty.getDefinition())) {
-         System.out.println("Property.merge error: cannot merge properties having different nameDefinitions!");
+         Diagnostics.error("Property.merge", this, "cannot merge properties having different nameDefinitions!");
          return;
       }
       if ((this.getUnit(0) != null && otherProperty.getUnit(0) != null)
             && !this.getUnit(0).equalsIgnoreCase(otherProperty.getUnit(0))) {
-         System.out.println("Property.merge error: cannot merge properties having different units! Maybe the next version can...");
+         Diagnostics.error("Property.merge", this, "cannot merge properties having different units! Maybe the next "
+                 + "version can...");
          return;
       }
       // actually merge: first the easy ones, i.e. those that can occur only once
@@ -1145,7 +1172,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
    public void validate(Property terminologyProperty) {
       if (definition != null && !definition.isEmpty()) {
          if (!this.definition.equalsIgnoreCase(terminologyProperty.getDefinition())) {
-            System.out.println("Property: "
+            Diagnostics.warning("Property.validate", this, "Property: "
                         + this.getName()
                         + "contains a 'definition' that differs from terminology! Kept original definition!");
          }
@@ -1154,10 +1181,10 @@ public class Property implements Serializable, Cloneable, TreeNode {
             && !terminologyProperty.getDependency().isEmpty()) {
          if (this.getParent() != null
                && !this.getParent().containsProperty(terminologyProperty.getDependency())) {
-            System.out.println("Validation error on Property: " + this.getParent().getPath() + "#"
+            Diagnostics.warning("Property.validate", this, "Validation error on Property: "
+                  + this.getParent().getPath() + "#"
                   + this.getName() + "! \n Terminology requests a sibling property with the name: "
-                  +
-                  terminologyProperty.getName() + " which was not found!");
+                  + terminologyProperty.getName() + " which was not found!");
          } else {
             if (terminologyProperty.getDependencyValue() != null
                   && !terminologyProperty.getDependencyValue().isEmpty() && this.getParent() != null) {
@@ -1174,8 +1201,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
                   }
                }
                if (!match)
-                  System.out.println("Validation error on Property: " + this.getParent().getPath()
-                        + "#" + this.getName()
+                  Diagnostics.warning("Property.validate", this, "Validation error on Property: "
+                        + this.getParent().getPath() + "#" + this.getName()
                         + "! \n Terminology requests a sibling property with the name: " +
                         terminologyProperty.getName() + " that contains the value: "
                         + dependencyValue + "! No match was found!");
@@ -1295,13 +1322,14 @@ public class Property implements Serializable, Cloneable, TreeNode {
          name = name.substring(0, name.indexOf(" "))
                + name.substring(name.indexOf(" ") + 1, name.indexOf(" ") + 2).toUpperCase()
                + name.substring(name.indexOf(" ") + 2);
-         System.out.println("Invalid property name:\tgenerating CamelCase by removing blanks");
+         Diagnostics.warning("Property.checkNameStyle", null, "Invalid property name:\tgenerating CamelCase by "
+                 + "removing blanks");
       }
 
       String nameRegex = "^[a-zA-Z].*"; // checking beginning: normal letter, than anything
       if (!name.matches(nameRegex)) {
          name = "P_" + name;
-         System.out.println("Invalid property name:\t'p_' prefix added.");
+         Diagnostics.warning("Property.checkNameStyle", null, "Invalid property name:\t'p_' prefix added.");
       }
       return name;
    }
@@ -1381,7 +1409,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
          propertyVector.add(mappingURL);
          return propertyVector;
       } catch (Exception e) {
-         System.out.println(e.getMessage());
+         Diagnostics.error("Property.getPropertyAsVector", this, e.getMessage());
          return null;
       }
    }
@@ -1395,7 +1423,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public String getUnit() {
       if (values.size() > 1) {
-         System.out.println("! property '" + this.getName()
+         Diagnostics.warning("Property.getUnit", this, "property '" + this.getName()
                + "' has more than one value > index must be specified to know which unit shall be"
                + " returned!");
          return null;
@@ -1450,7 +1478,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public String getValueFilename() {
       if (values.size() > 1) {
-         System.out.println("! property has more than one value > index for returning filename must be specified");
+         Diagnostics.warning("Property.getValueFilename", this, "property has more than one value > index for "
+                 + "returning filename must be specified");
          return null;
       }
       return getValueFilename(0);
@@ -1471,7 +1500,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
          }
          return filename;
       } catch (Exception e) {
-         System.out.println(e.getMessage());
+         Diagnostics.error("Property.getValueFilename", this, e.getMessage());
          return null;
       }
    }
@@ -1533,6 +1562,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public void setMapping(URL mappingURL) {
       this.mappingURL = mappingURL;
+      markModified();
    }
 
 
@@ -1546,7 +1576,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
       try {
          url = new URL(mappingURL);
       } catch (MalformedURLException m) {
-         System.out.println("Property.setPropertyMapping: " + m.getMessage());
+         Diagnostics.error("Property.setMapping", this, m.getMessage());
       }
       this.setMapping(url);
    }
@@ -1557,6 +1587,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public void removePropertyMapping() {
       this.mappingURL = null;
+      markModified();
    }
 
 
@@ -1567,7 +1598,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public void setUnit(String unit) {
       if (valueCount() > 1)
-         System.out.println("You ask me to set the unit but there are many values. Changed the units for all values!");
+         Diagnostics.warning("Property.setUnit", this, "You ask me to set the unit but there are many values. "
+                 + "Changed the units for all values!");
          for (Value value : values) {
              value.setUnit(unit);
       }
@@ -1617,6 +1649,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
          this.dependency = dependency;
       else
          this.dependency = "";
+      markModified();
    }
 
 
@@ -1630,6 +1663,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
          this.dependencyValue = dependencyValue;
       else
          this.dependencyValue = "";
+      markModified();
    }
 
 
@@ -1641,7 +1675,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public boolean setReference(String reference) {
       if (this.values.size() > 1) {
-         System.out.println("! Property has more than one value > index must be specified to know which reference shall be set!");
+         Diagnostics.warning("Property.setReference", this, "Property has more than one value > index must be "
+                 + "specified to know which reference shall be set!");
          return false;
       }
       return setReferenceAt(reference, 0);
@@ -1706,11 +1741,13 @@ public class Property implements Serializable, Cloneable, TreeNode {
    @Deprecated
    public boolean setDefaultFileNameAt(String filename, int index) {
       if (this.values.size() <= index || index < 0) {
-         System.out.println("! index of value for setting filename out of range!");
+         Diagnostics.warning("Property.setDefaultFileNameAt", this, "index of value for setting filename out of "
+                 + "range!");
          return false;
       }
       if (!this.values.get(0).getType().equalsIgnoreCase("binary")) {
-         System.out.println("! type of property must be binary if filename shall be set!");
+         Diagnostics.warning("Property.setDefaultFileNameAt", this, "type of property must be binary if filename "
+                 + "shall be set!");
          return false;
       }
       this.values.get(index).setFilename(filename);
@@ -1729,11 +1766,12 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public boolean setValueFilenameAt(String filename, int index) {
       if (this.values.size() <= index || index < 0) {
-         System.out.println("! index of value for setting filename out of range!");
+         Diagnostics.warning("Property.setValueFilenameAt", this, "index of value for setting filename out of range!");
          return false;
       }
       if (!this.values.get(0).getType().equalsIgnoreCase("binary")) {
-         System.out.println("! type of property must be binary if filename shall be set!");
+         Diagnostics.warning("Property.setValueFilenameAt", this, "type of property must be binary if filename "
+                 + "shall be set!");
          return false;
       }
       this.values.get(index).setFilename(filename);
@@ -1784,7 +1822,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
          File outFile = new File(filename);
          writeBinary(outFile, index);
       } catch (Exception e) {
-         System.out.println("could not create File from string: " + filename + e.getMessage());
+         Diagnostics.error("Property.writeBinaryToDisc", this, "could not create File from string: " + filename
+                 + e.getMessage());
       }
    }
 
@@ -1800,7 +1839,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
          File outFile = new File(fileUrl.toURI());
          writeBinary(outFile, 0);
       } catch (Exception e) {
-         System.out.println("could not create File from URL: " + fileUrl + e.getMessage());
+         Diagnostics.error("Property.writeBinaryToDisc", this, "could not create File from URL: " + fileUrl
+                 + e.getMessage());
       }
    }
 
@@ -1816,7 +1856,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
          File outFile = new File(fileUrl.toURI());
          writeBinary(outFile, index);
       } catch (Exception e) {
-         System.out.println("could not create File from URL: " + fileUrl + e.getMessage());
+         Diagnostics.error("Property.writeBinaryToDisc", this, "could not create File from URL: " + fileUrl
+                 + e.getMessage());
       }
    }
 
@@ -1832,7 +1873,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
          File outFile = new File(fileUri);
          writeBinary(outFile, 0);
       } catch (Exception e) {
-         System.out.println("could not create File from the specified URI: " + fileUri + e.getMessage());
+         Diagnostics.error("Property.writeBinaryToDisc", this, "could not create File from the specified URI: "
+                 + fileUri + e.getMessage());
       }
    }
 
@@ -1848,7 +1890,8 @@ public class Property implements Serializable, Cloneable, TreeNode {
          File outFile = new File(fileUri);
          writeBinary(outFile, index);
       } catch (Exception e) {
-         System.out.println("could not create File from the specified URI: " + fileUri + e.getMessage());
+         Diagnostics.error("Property.writeBinaryToDisc", this, "could not create File from the specified URI: "
+                 + fileUri + e.getMessage());
       }
    }
 
@@ -1861,14 +1904,14 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    private void writeBinary(File outFile, int index) throws Exception {
       if (!this.values.get(0).getType().equalsIgnoreCase("binary")) {
-         System.out.println("Property value is not of type binary!");
+         Diagnostics.warning("Property.writeBinary", this, "Property value is not of type binary!");
          return;
       }
       if (index < 0) {
-         System.out.println("!index specified for writing value to disc out of range!");
+         Diagnostics.warning("Property.writeBinary", this, "index specified for writing value to disc out of range!");
          return;
       } else if (index > values.size() - 1) {
-         System.out.println("!index specified for writing value to disc out of range!");
+         Diagnostics.warning("Property.writeBinary", this, "index specified for writing value to disc out of range!");
          return;
       }
       if (outFile.exists()) {
@@ -1941,11 +1984,11 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    public static int match(Object anObject, Object anotherObject, String type) {
       if (anObject == null || anotherObject == null || type == null) {
-         System.out.println("match returns error, object1, object2 or type is null.");
+         Diagnostics.error("Property.match", null, "match returns error, object1, object2 or type is null.");
          return MATCH_ERROR;
       }
       if (type.isEmpty()) {
-         System.out.println("match returns error, type is empty.");
+         Diagnostics.error("Property.match", null, "match returns error, type is empty.");
          return MATCH_ERROR;
       }
 
@@ -1966,7 +2009,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
                return MATCH_NO;
             }
          } catch (Exception e) {
-            System.out.println(e.getMessage());
+            Diagnostics.error("Property.match", null, e.getMessage());
             return MATCH_ERROR;
          }
       } else if (type.equalsIgnoreCase("float")) {
@@ -1977,7 +2020,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
                return MATCH_NO;
             }
          } catch (Exception e) {
-            System.out.println(e.getMessage());
+            Diagnostics.error("Property.match", null, e.getMessage());
             return MATCH_ERROR;
          }
       } else if (type.equalsIgnoreCase("date")) {
@@ -1988,7 +2031,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
                return MATCH_NO;
             }
          } catch (Exception e) {
-            System.out.println(e.getMessage());
+            Diagnostics.error("Property.match", null, e.getMessage());
             return MATCH_ERROR;
          }
       } else if (type.equalsIgnoreCase("time")) {
@@ -1999,7 +2042,7 @@ public class Property implements Serializable, Cloneable, TreeNode {
                return MATCH_NO;
             }
          } catch (Exception e) {
-            System.out.println(e.getMessage());
+            Diagnostics.error("Property.match", null, e.getMessage());
             return MATCH_ERROR;
          }
       }
@@ -2035,11 +2078,11 @@ public class Property implements Serializable, Cloneable, TreeNode {
     */
    private static int nameMatch(String name1, String name2) {
       if (name1 == null || name2 == null) {
-         System.out.println("nameMatch return error, one of the names is null");
+         Diagnostics.error("Property.nameMatch", null, "nameMatch return error, one of the names is null");
          return MATCH_ERROR;
       }
       if (name1.isEmpty() || name2.isEmpty()) {
-         System.out.println("nameMatch return error, one of the names is empty");
+         Diagnostics.error("Property.nameMatch", null, "nameMatch return error, one of the names is empty");
          return MATCH_ERROR;
       }
       String firstName1, firstName2, lastName1, lastName2;
@@ -2175,10 +2218,11 @@ public class Property implements Serializable, Cloneable, TreeNode {
             if (this.getWholeValue(j).equals(voo))
                return j;
          }
-         System.out.println("wanted TreeNode (of type Value) not existent");
+         Diagnostics.warning("Property.getIndex", this, "wanted TreeNode (of type Value) not existent");
          return -1;
       } else {
-         System.out.println("!should not happen as TreeNode type Property can only have childen of TreeNode type Value! "
+         Diagnostics.warning("Property.getIndex", this, "should not happen as TreeNode type Property can only have "
+                 + "childen of TreeNode type Value! "
                      + "Here we have: " + node.getClass());
          return -1;
       }
@@ -2262,4 +2306,26 @@ public class Property implements Serializable, Cloneable, TreeNode {
         self.put("dependencyValue", dependencyValue);
         return self;
     }
+
+
+    /**
+     * Writes this property and its values as a JSON object with the members of {@link #getMap()}.
+     *
+     * @param json {@link JsonOutput}: the output.
+     */
+    void writeJson(JsonOutput json) throws IOException {
+        json.beginObject();
+        json.member("name", name);
+        json.name("value");
+        json.beginArray();
+        for (Value value : values) {
+            value.writeJson(json);
+        }
+        json.endArray();
+        json.member("definition", definition);
+        json.member("mapping", mappingURL);
+        json.member("dependency", dependency);
+        json.member("dependencyValue", dependencyValue);
+        json.endObject();
+    }
 }
@@ -17,24 +17,65 @@ package odml.core;
 import odml.util.Mapper;
 import org.jdom2.Document;
 import org.jdom2.Element;
+import org.jdom2.input.JDOMParseException;
 import org.jdom2.input.SAXBuilder;
-import org.jdom2.input.sax.XMLReaderJDOMFactory;
-import org.jdom2.input.sax.XMLReaderXSDFactory;
+import org.jdom2.input.sax.XMLReaderSchemaFactory;
+import org.xml.sax.SAXException;
 
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.net.URL;
-import java.text.SimpleDateFormat;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 
 /**
  * The {@link Reader} class reads an xml-file, applies the schema, if wanted and provides the tools to extract the
  * stored information.
  * 
+ * By default the file is first parsed into a JDOM {@link Document} which is then converted into the odML tree. For
+ * large files the Reader can be switched to streaming mode (see {@link #setStreaming(boolean)}) in which the
+ * {@link Section}s, {@link Property}s and {@link Value}s are created directly from StAX parser events without
+ * building the intermediate document. To process a document without building the tree at all use the
+ * {@link OdmlEventReader}. Large documents can be parsed on several cores by splitting them at the top-level sections
+ * (see {@link #setParallel(ForkJoinPool)}). For browsing large files the sections can be loaded lazily on first
+ * access (see {@link #setLazy(boolean)}).
+ * 
  * @since 08.2009
  * 
  * @author Jan Grewe, Christine Seitz, Jakub Krauz
@@ -49,6 +90,33 @@ public class Reader implements Serializable {
    Vector<Section>               includes         = new Vector<Section>();
    private URL                   fileUrl;
    boolean                       loadIncludes     = false;
+   private boolean               streaming        = false;
+   private String[]              filterPaths      = null, filterTypes = null;
+   private volatile CancellationToken cancellation = null;
+   private ProgressListener      progressListener = null;
+   private Progress              progress         = null;
+   private ForkJoinPool          parallel         = null;
+   private Executor              includeExecutor  = null;
+   private boolean               lazy             = false;
+   private boolean               reporting        = false;
+   private ParseReport           report           = null, previousReport = null;
+   private StringPool            pool             = null;
+   private static final int      BUFFER_SIZE      = 1 << 16;
+   private static final ConcurrentHashMap<List<String>, Schema> schemas = new ConcurrentHashMap<List<String>, Schema>();
+   private static final ThreadLocal<XMLInputFactory> inputFactories = new ThreadLocal<XMLInputFactory>() {
+      @Override
+      protected XMLInputFactory initialValue() {
+         XMLInputFactory factory = XMLInputFactory.newInstance();
+         factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+         return factory;
+      }
+   };
+   private static final ThreadLocal<Map<Schema, SAXBuilder>> builders = new ThreadLocal<Map<Schema, SAXBuilder>>() {
+      @Override
+      protected Map<Schema, SAXBuilder> initialValue() {
+         return new HashMap<Schema, SAXBuilder>();
+      }
+   };
    public static int             NO_CONVERSION = 1, FULL_CONVERSION = 3, LOAD_AND_RESOLVE = 2, NO_VALIDATION = 4, VALIDATE = 5;
 
 
@@ -66,6 +134,147 @@ public class Reader implements Serializable {
    public Reader(URL[] schemaLocations) {
       this.schemaLocations = schemaLocations;
    }
+
+
+   /**
+    * Defines whether documents are parsed in streaming mode. In streaming mode the odML tree is built directly from
+    * the StAX events of the parser and no JDOM {@link Document} is created, which roughly halves the peak memory
+    * consumption for large files. Default is false.
+    * 
+    * @param streaming boolean: true to use the streaming parser, false to use the DOM based one.
+    */
+   public void setStreaming(boolean streaming) {
+      this.streaming = streaming;
+   }
+
+
+   /**
+    * Returns whether this reader parses documents in streaming mode.
+    * 
+    * @return boolean: true if the streaming parser is used, false otherwise.
+    */
+   public boolean isStreaming() {
+      return streaming;
+   }
+
+
+   /**
+    * Switches parallel parsing on or off. In parallel mode the document is split at the boundaries of its top-level
+    * sections, which are then parsed concurrently by {@link ForkJoinTask}s on the given pool and attached to the
+    * root section in document order. The document is held in memory as a whole, files loaded via
+    * {@link #load(Path, int, boolean)} are memory-mapped. Documents that can not be split, e.g. because they declare
+    * a document type or are UTF-16 encoded, are parsed on the calling thread. Validation is not supported and section
+    * filters take precedence.
+    * 
+    * @param pool {@link ForkJoinPool}: the pool on which the sections are parsed, e.g.
+    *            {@link ForkJoinPool#commonPool()}, null to parse on the calling thread.
+    */
+   public void setParallel(ForkJoinPool pool) {
+      this.parallel = pool;
+   }
+
+
+   /**
+    * Switches lazy loading on or off. In lazy mode the document is only scanned for the byte ranges of its sections
+    * when it is loaded. The sections are created from their fields when their parent is accessed, their properties
+    * and subsections are read when {@link Section#getSection(String)}, {@link Section#getProperty(String)},
+    * {@link Section#getSections()} or any other method accessing them is first called. Memory and time thus scale
+    * with the part of the document that is accessed. The document is held in memory, files loaded via
+    * {@link #load(Path, int, boolean)} are memory-mapped. Documents that can not be indexed are loaded completely.
+    * Lazy loading is only done with the {@link #NO_CONVERSION} option, documents loaded with the other options are
+    * loaded completely as their includes and links are resolved. Validation is not supported and section filters
+    * take precedence.
+    * 
+    * @param lazy boolean: true to load sections on first access, false to load the whole document.
+    */
+   public void setLazy(boolean lazy) {
+      this.lazy = lazy;
+   }
+
+
+   /**
+    * Restricts loading to certain branches of the document. Only sections whose absolute path matches one of the
+    * paths or that are of one of the types are loaded, together with their whole subtree. Their ancestors are
+    * created without properties so that {@link Section#getPath()} is preserved. All other sections are skipped
+    * while parsing without creating objects for them. A filtered load always uses the streaming parser. See
+    * {@link OdmlEventReader#setSectionFilter(String[], String[])} for details.
+    * 
+    * @param paths {@link String}[]: absolute section paths like /Recording/Stimulus, may be null.
+    * @param types {@link String}[]: section types like cell, may be null.
+    */
+   public void setSectionFilter(String[] paths, String[] types) {
+      this.filterPaths = paths;
+      this.filterTypes = types;
+   }
+
+
+   /**
+    * Sets the executor on which included files are prefetched, see {@link #loadIncludes()}. Fetching blocks on file
+    * or network IO, thus the pool given to {@link #setParallel(ForkJoinPool)} is not used for it. Default is null,
+    * i.e. each load with includes from several files uses a small pool of its own that is shut down afterwards.
+    * 
+    * @param executor {@link Executor}: the executor or null.
+    */
+   public void setIncludeExecutor(Executor executor) {
+      this.includeExecutor = executor;
+   }
+
+
+   /**
+    * Sets the pool through which the names, types, units, definitions and references of the loaded sections,
+    * properties and values are passed, so that equal strings share one instance. The pool may be shared by several
+    * readers. Default is null, i.e. no pooling.
+    * 
+    * @param pool {@link StringPool}: the pool or null.
+    */
+   public void setStringPool(StringPool pool) {
+      this.pool = pool;
+   }
+
+
+   /**
+    * Defines whether the diagnostics reported while loading a document are collected in a {@link ParseReport}.
+    * Diagnostics are collected from the reader and from the includes, links and mappings it processes. Default is
+    * false.
+    * 
+    * @param reporting boolean: true to collect a report per load, false otherwise.
+    * @see #getReport()
+    */
+   public void setReporting(boolean reporting) {
+      this.reporting = reporting;
+   }
+
+
+   /**
+    * Returns the report of the last load.
+    * 
+    * @return {@link ParseReport}: the report or null if reporting is not enabled.
+    */
+   public ParseReport getReport() {
+      return report;
+   }
+
+
+   /**
+    * Sets the token that is checked while loading, i.e. while parsing, between includes, links and while mapping. A
+    * load whose token is cancelled stops with a {@link CancellationException}. Default is null, i.e. loads cannot be
+    * cancelled.
+    * 
+    * @param token {@link CancellationToken}: the token or null.
+    */
+   public void setCancellationToken(CancellationToken token) {
+      this.cancellation = token;
+   }
+
+
+   /**
+    * Sets the listener that is notified about the {@link Progress} of each load. Default is null.
+    * 
+    * @param listener {@link ProgressListener}: the listener or null.
+    */
+   public void setProgressListener(ProgressListener listener) {
+      this.progressListener = listener;
+   }
    
    
    /**
@@ -134,6 +343,118 @@ public class Reader implements Serializable {
    }
 
 
+   /**
+    * Reads only those branches of a metadata file that are selected by section paths or types and returns the root
+    * section of the partial tree. Includes, links and mappings are not handled. See
+    * {@link #setSectionFilter(String[], String[])}.
+    * 
+    * @param file {@link String} the file url.
+    * @param paths {@link String}[]: absolute section paths like /Recording/Stimulus, may be null.
+    * @param types {@link String}[]: section types like cell, may be null.
+    * @return {@link Section} the root section of the partial tree.
+    * @throws Exception
+    */
+   public Section load(String file, String[] paths, String[] types) throws Exception {
+      String[] oldPaths = filterPaths, oldTypes = filterTypes;
+      setSectionFilter(paths, types);
+      try {
+         return load(file, NO_CONVERSION, false);
+      } finally {
+         setSectionFilter(oldPaths, oldTypes);
+      }
+   }
+
+
+   /**
+    * Loads the file identified by the {@link URL} asynchronously on the given {@link Executor}, see
+    * {@link #load(URL, int, boolean)}. Cancelling the returned future stops parsing as well as the loading of
+    * includes at the next opportunity. The reader must not be used for other documents until the future is
+    * completed.
+    * 
+    * @param fileURL {@link URL}: the URL of the file.
+    * @param option int: the load option as described in {@link #load(String, int)}.
+    * @param validate boolean: defines whether the file should be validated against the schema.
+    * @param executor {@link Executor}: the executor on which the file is loaded.
+    * @return {@link CompletableFuture}: the future root section, null if the file could not be loaded.
+    */
+   public CompletableFuture<Section> loadAsync(final URL fileURL, final int option, final boolean validate,
+         Executor executor) {
+      final CancellationToken previous = cancellation;
+      final Cancellation token = new Cancellation(previous);
+      final CompletableFuture<Section> future = token.newFuture();
+      Runnable task = new Runnable() {
+         @Override
+         public void run() {
+            if (future.isDone()) {
+               return;
+            }
+            cancellation = token;
+            try {
+               future.complete(load(fileURL, option, validate));
+            } catch (Exception e) {
+               future.completeExceptionally(e);
+            } finally {
+               cancellation = previous;
+            }
+         }
+      };
+      try {
+         executor.execute(task);
+      } catch (RuntimeException e) {
+         future.completeExceptionally(e);
+      }
+      return future;
+   }
+
+
+   /**
+    * Loads a number of files concurrently on the given {@link Executor}, see
+    * {@link #loadAll(Collection, Executor, int, int)}. At most twice as many trees as there are processors are in
+    * flight and the files are loaded with the {@link #NO_CONVERSION} option.
+    * 
+    * @param files {@link Collection} of {@link Path}s: the files to load.
+    * @param executor {@link Executor}: the executor that runs the parsing, e.g. a thread pool.
+    * @return {@link BatchLoad}: the batch from which the results are taken as they complete.
+    */
+   public static BatchLoad loadAll(Collection<Path> files, Executor executor) {
+      return loadAll(files, executor, 2 * Runtime.getRuntime().availableProcessors(), NO_CONVERSION);
+   }
+
+
+   /**
+    * Loads a number of files concurrently on the given {@link Executor}. Each file is read by its own {@link Reader}
+    * and the per-file {@link LoadResult}s, holding either the root section or the error, are taken from the returned
+    * {@link BatchLoad} in the order in which the files complete. Not more than maxInFlight files are parsed or wait
+    * to be taken at any time, which keeps the heap usage predictable for large batches.
+    * 
+    * @param files {@link Collection} of {@link Path}s: the files to load.
+    * @param executor {@link Executor}: the executor that runs the parsing, e.g. a thread pool.
+    * @param maxInFlight int: the maximum number of trees in flight.
+    * @param option int: the load option as described in {@link #load(String, int)}.
+    * @return {@link BatchLoad}: the batch from which the results are taken as they complete.
+    */
+   public static BatchLoad loadAll(Collection<Path> files, Executor executor, int maxInFlight, int option) {
+      return loadAll(files, executor, maxInFlight, option, null);
+   }
+
+
+   /**
+    * Loads a number of files concurrently like {@link #loadAll(Collection, Executor, int, int)}. The readers share
+    * the given {@link StringPool}, so that strings repeated across the files share one instance as well.
+    * 
+    * @param files {@link Collection} of {@link Path}s: the files to load.
+    * @param executor {@link Executor}: the executor that loads the files.
+    * @param maxInFlight int: the maximum number of files that are loaded or waiting to be taken.
+    * @param option int: the load option as described in load(String ...).
+    * @param pool {@link StringPool}: the pool shared by the readers, may be null.
+    * @return {@link BatchLoad}: the results in order of completion.
+    */
+   public static BatchLoad loadAll(Collection<Path> files, Executor executor, int maxInFlight, int option,
+                                   StringPool pool) {
+      return new BatchLoad(files, executor, maxInFlight, option, pool);
+   }
+
+
    /**
     * 
     * @param file a string containing the file name.
@@ -166,18 +487,133 @@ public class Reader implements Serializable {
     */
    public Section load(URL fileURL, int option, boolean validate) throws Exception {
        this.fileUrl = fileURL;
-       try {
-           InputStream stream = fileURL.openStream();
-          System.out.println("Parsing the xml file: " + fileURL.toString() + "...");
-           return load(stream, option, validate);
+       boolean opened = openReport();
+       try (InputStream stream = decompress(fileURL.openStream())) {
+          Diagnostics.info("Reader.load", null, "Parsing the xml file: " + fileURL.toString() + "...");
+           return load(fileURL, stream, option, validate);
        } catch (IOException e) {
-          System.out.println("Could not open file at specified url: " +
-                  fileURL.toString() + ". Verify connection! " + e.getMessage());
+          Diagnostics.error("Reader.load", null, "Could not open file at specified url: " +
+                  fileURL.toString() + ". Verify connection! " + e.getMessage(), e);
            return null;
+       } finally {
+          closeReport(opened);
        }
    }
 
 
+   /**
+    * Reads the metadata file at the given path and returns the root section of the odml tree. Function does not
+    * load includes, resolve links or apply mapping information.
+    * 
+    * @param file {@link Path}: the file.
+    * @return {@link Section}: the root section of the loaded file.
+    * @throws Exception
+    */
+   public Section load(Path file) throws Exception {
+      return load(file, NO_CONVERSION, false);
+   }
+
+
+   /**
+    * Reads the metadata file at the given path through a file channel. Gzip and deflate (zlib) compressed files are
+    * detected by their header bytes and decompressed on the fly.
+    * 
+    * @param file {@link Path}: the file.
+    * @param option load option as described in load(String ...)
+    * @param validate defines whether the file should be validated against a schema.
+    * @return {@link Section}: the root section of the loaded file.
+    * @throws Exception
+    */
+   public Section load(Path file, int option, boolean validate) throws Exception {
+      this.fileUrl = file.toUri().toURL();
+      boolean opened = openReport();
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         Diagnostics.info("Reader.load", null, "Parsing the xml file: " + file.toString() + "...");
+         if ((isLazy(option) || isParallel()) && channel.size() > 2 && channel.size() < Integer.MAX_VALUE) {
+            MappedByteBuffer document = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (!isCompressed(document.get(0) & 0xff, document.get(1) & 0xff)) {
+               if (validate && schemaLocations != null) {
+                  Diagnostics.warning("Reader.load", null, "validation is not supported in lazy and parallel mode "
+                        + "and is skipped.");
+               }
+               startProgress();
+               if (progress != null) {
+                  progress.addBytes(channel.size());
+               }
+               if (isLazy(option) ? !lazyXML(document) : !parallelXML(document)) {
+                  return failed();
+               }
+               return convert(option);
+            }
+         }
+         return load(this.fileUrl, decompress(Channels.newInputStream(channel)), option, validate);
+      } catch (IOException e) {
+         Diagnostics.error("Reader.load", null, "Could not open file: " + file.toString() + ". " + e.getMessage(),
+               e);
+         return null;
+      } finally {
+         closeReport(opened);
+      }
+   }
+
+
+   /**
+    * Load the odML document from the given channel. The channel is read through a large buffer, gzip and deflate
+    * compressed documents are detected by their header bytes and decompressed on the fly. The channel is not closed.
+    * 
+    * @param channel {@link ReadableByteChannel}: the channel.
+    * @param option load option as described in load(String ...)
+    * @param validate defines whether the file should be validated against a schema.
+    * @return {@link Section}: the root section of the loaded file.
+    * @throws Exception
+    */
+   public Section load(ReadableByteChannel channel, int option, boolean validate) throws Exception {
+      return load(decompress(Channels.newInputStream(channel)), option, validate);
+   }
+
+
+   /**
+    * Buffers the stream and, if it starts with the gzip magic bytes or a zlib header, decompresses it.
+    * 
+    * @param stream {@link InputStream}: the raw stream.
+    * @return {@link InputStream}: the buffered, decompressed stream.
+    * @throws IOException
+    */
+   static InputStream decompress(InputStream stream) throws IOException {
+      BufferedInputStream buffered = new BufferedInputStream(stream, BUFFER_SIZE);
+      buffered.mark(2);
+      int first = buffered.read(), second = buffered.read();
+      buffered.reset();
+      if (isGzip(first, second)) {
+         return new BufferedInputStream(new GZIPInputStream(buffered, BUFFER_SIZE), BUFFER_SIZE);
+      }
+      if (isDeflate(first, second)) {
+         return new BufferedInputStream(new InflaterInputStream(buffered), BUFFER_SIZE);
+      }
+      return buffered;
+   }
+
+
+   private static boolean isCompressed(int first, int second) {
+      return isGzip(first, second) || isDeflate(first, second);
+   }
+
+
+   private static boolean isGzip(int first, int second) {
+      return first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >> 8);
+   }
+
+
+   /**
+    * Checks for a zlib header, i.e. the deflate method with a window of at most 32 KiB and a valid check sum. No
+    * XML document starts with such bytes.
+    */
+   private static boolean isDeflate(int first, int second) {
+      return first >= 0 && second >= 0 && (first & 0x0f) == 8 && (first >> 4) <= 7
+            && ((first << 8) | second) % 31 == 0;
+   }
+
+
    /**
     * Load the odML document from the given input stream.
     * 
@@ -188,35 +624,153 @@ public class Reader implements Serializable {
     * @throws Exception
     */
    public Section load(InputStream stream, int option, boolean validate) throws Exception {
-      boolean isValid = true;
-      Section s;
-      Document dom = parseXML(stream);
-      if (dom == null) {
-         this.root = null;
-         return null;
+      return load(null, stream, option, validate);
+   }
+
+
+   /**
+    * Loads the document from the stream, relative includes are resolved against the given file.
+    */
+   private Section load(URL fileUrl, InputStream stream, int option, boolean validate) throws Exception {
+      this.fileUrl = fileUrl;
+      boolean opened = openReport();
+      try {
+         return read(stream, option, validate);
+      } finally {
+         closeReport(opened);
+      }
+   }
+
+
+   /**
+    * Starts a new report if reporting is enabled and the report of this reader is not already collecting.
+    * 
+    * @return boolean: true if a report was started and has to be closed, false otherwise.
+    */
+   private boolean openReport() {
+      if (!reporting || (report != null && Diagnostics.currentReport() == report)) {
+         return false;
       }
-      if (validate && schemaLocations != null) {
-         isValid = validateXML(stream);
+      report = new ParseReport();
+      previousReport = Diagnostics.open(report);
+      return true;
+   }
+
+
+   private void closeReport(boolean opened) {
+      if (opened) {
+         Diagnostics.close(previousReport);
+         previousReport = null;
       }
-      
-      if (isValid) {
-         createTree(dom);
+   }
+
+
+   private Section read(InputStream stream, int option, boolean validate) throws Exception {
+      CancellationToken token = cancellation;
+      startProgress();
+      if (progress != null && stream != null) {
+         stream = progress.wrap(stream);
+      }
+      if (token != null && stream != null) {
+         stream = token.wrap(stream);
+      }
+      if (isLazy(option)) {
+         if (validate && schemaLocations != null) {
+            Diagnostics.warning("Reader.load", null, "validation is not supported in lazy mode and is skipped.");
+         }
+         if (stream == null || !lazyXML(readAll(stream))) {
+            return failed();
+         }
+      } else if (isParallel()) {
+         if (validate && schemaLocations != null) {
+            Diagnostics.warning("Reader.load", null, "validation is not supported in parallel mode and is skipped.");
+         }
+         if (stream == null || !parallelXML(readAll(stream))) {
+            return failed();
+         }
+      } else if (streaming || filterPaths != null || filterTypes != null) {
+         if (validate && schemaLocations != null) {
+            Diagnostics.warning("Reader.load", null, "validation is not supported in streaming mode and is skipped.");
+         }
+         if (!streamXML(stream)) {
+            return failed();
+         }
       } else {
-         System.out.println("Validation failed.");
+         Document dom = parseXML(stream, validate && schemaLocations != null);
+         if (dom == null) {
+            return failed();
+         }
+         createTree(dom);
       }
-      
-      if (option == LOAD_AND_RESOLVE || option == FULL_CONVERSION) {
-         loadIncludes();
+      return convert(option);
+   }
+
+
+   /**
+    * Starts tracking the progress of a load if a listener is set.
+    */
+   private void startProgress() {
+      progress = progressListener != null ? new Progress(progressListener, Progress.Phase.PARSE) : null;
+      if (progress != null) {
+         progress.setPhase(Progress.Phase.PARSE);
       }
-      if (option == LOAD_AND_RESOLVE || option == FULL_CONVERSION) {
+   }
+
+
+   private void setPhase(Progress.Phase phase) {
+      if (progress != null) {
+         progress.setPhase(phase);
+      }
+   }
+
+
+   /**
+    * Throws a {@link CancellationException} if the token of this reader has been cancelled.
+    */
+   private void checkCancelled() {
+      CancellationToken token = cancellation;
+      if (token != null) {
+         token.throwIfCancelled();
+      }
+   }
+
+
+   /**
+    * Handles a document that could not be read. If the load was cancelled, a {@link CancellationException} is thrown
+    * instead of returning null.
+    * 
+    * @return always null.
+    */
+   private Section failed() {
+      this.root = null;
+      checkCancelled();
+      return null;
+   }
+
+
+   /**
+    * Loads the includes, resolves the links and applies the mappings of the tree just read, as requested by the load
+    * option.
+    */
+   private Section convert(int option) throws Exception {
+      Section s;
+      checkCancelled();
+      if (lazy && resolves(option) && filterPaths == null && filterTypes == null) {
+         Diagnostics.warning("Reader.load", null, "lazy loading is not supported for options that resolve includes "
+               + "and links, the document was loaded completely.");
+      }
+      if (resolves(option)) {
+         loadIncludes();
+         checkCancelled();
          resolveLinks();
+         checkCancelled();
       }
       if (option == FULL_CONVERSION) {
          s = map();
       } else {
          s = this.getRootSection();
       }
-      
+      setPhase(Progress.Phase.DONE);
       return s;
    }
 
@@ -227,93 +781,374 @@ public class Reader implements Serializable {
     * @param dom - {@link Document}: the document to parse
     */
    public void createTree(Document dom) {
-      root = new Section();
+      reset();
       if (dom == null) {
          return;
       }
       Element rootElement = dom.getRootElement();
       String odmlVersion = rootElement.getAttribute("version").getValue();
       if (Float.parseFloat(odmlVersion) != 1.0) {
-         System.out.println("Can not handle odmlVersion: " + odmlVersion
+         Diagnostics.error("Reader.createTree", null, "Can not handle odmlVersion: " + odmlVersion
                  + " stopping further processing!");
          return;
       }
 
-      String author = rootElement.getChildText("author");
+      setDocumentInfo(root, rootElement.getChildText("author"), rootElement.getChildText("date"),
+            rootElement.getChildText("version"), rootElement.getChildText("repository"));
+      root.setFileUrl(this.fileUrl);
+
+      for (Element domSection : rootElement.getChildren("section")) {
+         checkCancelled();
+         if (rootElement.isAncestor(domSection)) {
+            root.add(parseSection(domSection));
+         }
+      }
+      confirmLinks(root);
+   }
+
+
+   /**
+    * Converts the metadata-file to the tree like odML structure while it is read by the {@link XMLStreamReader}. No
+    * intermediate document is created, the tree is assembled from the events of an {@link OdmlEventReader}. The
+    * reader is expected to be positioned before the odML root element.
+    * 
+    * @param xml - {@link XMLStreamReader}: the stream reader of the document.
+    * @throws XMLStreamException
+    */
+   public void createTree(XMLStreamReader xml) throws XMLStreamException {
+      buildTree(xml);
+      confirmLinks(root);
+   }
+
+
+   /**
+    * Assembles the tree from the events of the stream reader and registers links and includes without confirming
+    * the links.
+    */
+   private void buildTree(XMLStreamReader xml) throws XMLStreamException {
+      reset();
+      if (xml == null) {
+         return;
+      }
+      OdmlEventReader events = new OdmlEventReader(xml);
+      events.setSectionFilter(filterPaths, filterTypes);
+      events.setStringPool(pool);
+      root = events.getRootSection();
+      root.setFileUrl(this.fileUrl);
+      Section parent = root;
+      Deque<int[]> marks = new ArrayDeque<int[]>();
+      while (events.hasNext()) {
+         int event = events.next();
+         if (event == OdmlEventReader.SECTION_START) {
+            checkCancelled();
+            parent.add(events.getSection());
+            parent = events.getSection();
+            if (progress != null) {
+               progress.addSection();
+            }
+            // registered in document order like in DOM mode, the positions are kept for late fields
+            marks.push(new int[] { links.size(), includes.size() });
+            register(parent);
+         } else if (event == OdmlEventReader.PROPERTY) {
+            parent.add(events.getProperty());
+            if (progress != null && events.getProperty() != null) {
+               progress.addProperty(events.getProperty().valueCount());
+            }
+         } else {
+            registerLate(parent, marks.pop());
+            parent = parent.getParent();
+         }
+      }
+   }
+
+
+   /**
+    * Sets the document information of the root section.
+    * 
+    * @param root {@link Section}: the root section.
+    * @param author {@link String}: the document author, may be null.
+    * @param date {@link String}: the document date in the form yyyy-MM-dd, may be null.
+    * @param version {@link String}: the document version, may be null.
+    * @param repository {@link String}: the repository url, may be null.
+    */
+   static void setDocumentInfo(Section root, String author, String date, String version, String repository) {
       root.setDocumentAuthor(author);
-      Date date;
-      String temp = rootElement.getChildText("date");
-      SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+      Date documentDate;
       try {
-         date = sdf.parse(temp);
+         documentDate = DateCodec.DATE.parse(date);
       } catch (Exception e) {
-         date = null;
+         documentDate = null;
       }
-      root.setDocumentDate(date);
-      String version = rootElement.getChildText("version");
+      root.setDocumentDate(documentDate);
       root.setDocumentVersion(version);
       URL url = null;
-      temp = rootElement.getChildText("repository");
-      if (temp != null && !temp.isEmpty()) {
+      if (repository != null && !repository.isEmpty()) {
          try {
-            url = new URL(temp);
+            url = new URL(repository);
          } catch (Exception e) {
-            System.out.println("Reader.parseSection.repository: " + e);
+            Diagnostics.warning("Reader.setDocumentInfo", null, "repository: " + e);
          }
       }
       root.setRepository(url);
-      root.setFileUrl(this.fileUrl);
-
-      for (Element domSection : rootElement.getChildren("section")) {
-         if (rootElement.isAncestor(domSection)) {
-            root.add(parseSection(domSection));
-         }
-      }
-      confirmLinks(root);
    }
 
 
    /**
-    * Parses the xml file and creates the DOM representation of it.
+    * Parses the xml file and creates the DOM representation of it. If validation is requested the document is
+    * validated against the schema in the same pass.
     * @param stream - an {@link java.io.InputStream}
-    * @return Document - returns the Document (dom) representation of the xml-file or null if an error occurred.
+    * @param validate - boolean whether the document should be validated against the schema.
+    * @return Document - the document or null if parsing or validation failed.
     */
-   private Document parseXML(InputStream stream) {
+   private Document parseXML(InputStream stream, boolean validate) {
       if (stream == null) {
          return null;
       }
       try {
-         SAXBuilder builder = new SAXBuilder();
-         return builder.build(stream);
+         return getBuilder(validate).build(stream);
+      } catch (SAXException se) {
+         Diagnostics.error("Reader.parseXML", null, "Loading the schema failed! " + se.getMessage(), se);
+         return null;
+      } catch (JDOMParseException jpe) {
+         Diagnostics.error("Reader.parseXML", null, (validate ? "Validation failed! " : "Parsing failed! ")
+                 + jpe.getMessage(), jpe);
+         return null;
       } catch (IOException ioe) {
-         System.out.println("Parsing failed! " + ioe.getMessage());
+         if (cancellation == null || !cancellation.isCancelled()) {
+            Diagnostics.error("Reader.parseXML", null, "Parsing failed! " + ioe.getMessage(), ioe);
+         }
          return null;
       } catch (Exception e) {
-         System.out.println(e.getMessage());
+         Diagnostics.error("Reader.parseXML", null, e.getMessage(), e);
          return null;
       }
    }
 
 
    /**
-    * Validates the the metadata xml-file against a schema and returns true if the file is valid or false if validation
-    * fails.
-    * @param stream - the input stream.
-    * @return - boolean true or false if validation succeeded or failed, respectively.
+    * Returns the compiled schema for the schema locations of this reader. A schema is compiled only once for each set
+    * of locations and is then shared by all readers, {@link Schema} instances are immutable and thread-safe.
+    * @return Schema - the compiled schema.
+    * @throws SAXException if a schema could not be read or compiled.
     */
-   private boolean validateXML(InputStream stream) {
+   private Schema getSchema() throws SAXException {
+      List<String> key = new ArrayList<String>(schemaLocations.length);
       for (URL schemaLocation : schemaLocations) {
+         key.add(schemaLocation.toExternalForm());
+      }
+      Schema schema = schemas.get(key);
+      if (schema == null) {
+         Source[] sources = new Source[key.size()];
+         for (int i = 0; i < sources.length; i++) {
+            sources[i] = new StreamSource(key.get(i));
+         }
+         schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(sources);
+         Schema cached = schemas.putIfAbsent(key, schema);
+         if (cached != null) {
+            schema = cached;
+         }
+      }
+      return schema;
+   }
+
+
+   /**
+    * Parses the xml file with a StAX parser and directly creates the odML tree from it.
+    * @param stream - an {@link java.io.InputStream}
+    * @return boolean - true if the tree was created, false if an error occurred.
+    */
+   private boolean streamXML(InputStream stream) {
+      if (stream == null) {
+         return false;
+      }
+      XMLStreamReader xml = null;
+      try {
+         xml = getInputFactory().createXMLStreamReader(stream);
+         createTree(xml);
+         return true;
+      } catch (XMLStreamException xse) {
+         Diagnostics.error("Reader.streamXML", null, "Parsing failed! " + xse.getMessage(), xse);
+         return false;
+      } catch (CancellationException e) {
+         throw e;
+      } catch (Exception e) {
+         Diagnostics.error("Reader.streamXML", null, e.getMessage());
+         return false;
+      } finally {
+         if (xml != null) {
+            try {
+               xml.close();
+            } catch (XMLStreamException e) {
+               Diagnostics.error("Reader.streamXML", null, e.getMessage());
+            }
+         }
+      }
+   }
+
+
+   private boolean isParallel() {
+      return parallel != null && filterPaths == null && filterTypes == null;
+   }
+
+
+   /**
+    * Includes and links are only registered while the whole tree is built, thus documents that are to be resolved
+    * are loaded completely, see {@link #convert(int)}.
+    */
+   private boolean isLazy(int option) {
+      return lazy && filterPaths == null && filterTypes == null && !resolves(option);
+   }
+
+
+   private static boolean resolves(int option) {
+      return option == LOAD_AND_RESOLVE || option == FULL_CONVERSION;
+   }
+
+
+   /**
+    * Scans the document for its sections and creates the root section, whose subsections are created on first
+    * access.
+    * @param document - {@link ByteBuffer}: the whole document.
+    * @return boolean - true if the tree was created, false if an error occurred.
+    */
+   private boolean lazyXML(ByteBuffer document) {
+      SectionIndex index = SectionIndex.scan(document, true);
+      if (index == null) {
+         return streamXML(SectionIndex.stream(document, document.position(), document.limit()));
+      }
+      XMLStreamReader xml = null;
+      try {
+         xml = getInputFactory().createXMLStreamReader(index.skeleton());
+         buildTree(xml);
+         root.setLazySource(new LazyDocument(index, pool), SectionIndex.ROOT);
+         return true;
+      } catch (XMLStreamException xse) {
+         Diagnostics.error("Reader.lazyXML", null, "Parsing failed! " + xse.getMessage(), xse);
+         return false;
+      } finally {
+         if (xml != null) {
+            try {
+               xml.close();
+            } catch (XMLStreamException e) {
+               Diagnostics.error("Reader.lazyXML", null, e.getMessage());
+            }
+         }
+      }
+   }
+
+
+   /**
+    * Splits the document at its top-level sections and parses these concurrently on the pool. The skeleton of the
+    * document, i.e. the document information, is parsed on the calling thread.
+    * @param document - {@link ByteBuffer}: the whole document.
+    * @return boolean - true if the tree was created, false if an error occurred.
+    */
+   private boolean parallelXML(ByteBuffer document) {
+      SectionIndex index = SectionIndex.scan(document);
+      if (index == null) {
+         return streamXML(SectionIndex.stream(document, document.position(), document.limit()));
+      }
+      XMLStreamReader xml = null;
+      try {
+         xml = getInputFactory().createXMLStreamReader(index.skeleton());
+         buildTree(xml);
+         long threshold = Math.max(BUFFER_SIZE, index.length(0, Math.max(index.size(), 1))
+               / (4 * parallel.getParallelism()));
+         List<Reader> parts = index.size() == 0 ? new ArrayList<Reader>()
+               : parallel.invoke(new ParseTask(index, 0, index.size(), threshold, Diagnostics.currentReport()));
+         for (Reader part : parts) {
+            for (Section section : part.root.getSections()) {
+               root.add(section);
+            }
+            links.addAll(part.links);
+            includes.addAll(part.includes);
+         }
+         confirmLinks(root);
+         return true;
+      } catch (XMLStreamException xse) {
+         Diagnostics.error("Reader.parallelXML", null, "Parsing failed! " + xse.getMessage(), xse);
+         return false;
+      } catch (CancellationException e) {
+         throw e;
+      } catch (Exception e) {
+         Diagnostics.error("Reader.parallelXML", null, e.getMessage());
+         return false;
+      } finally {
+         if (xml != null) {
+            try {
+               xml.close();
+            } catch (XMLStreamException e) {
+               Diagnostics.error("Reader.parallelXML", null, e.getMessage());
+            }
+         }
+      }
+   }
+
+
+   private static ByteBuffer readAll(InputStream stream) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = stream.read(buffer)) >= 0) {
+         bytes.write(buffer, 0, read);
+      }
+      return ByteBuffer.wrap(bytes.toByteArray());
+   }
+
+
+   /**
+    * Parses a range of top-level sections, each leaf by a separate {@link Reader} that collects the sections with
+    * their links and includes. The results are returned in document order.
+    */
+   private class ParseTask extends RecursiveTask<List<Reader>> {
+
+      private static final long  serialVersionUID = 1L;
+      private final SectionIndex index;
+      private final int          from, to;
+      private final long         threshold;
+      private final ParseReport  report;
+
+
+      ParseTask(SectionIndex index, int from, int to, long threshold, ParseReport report) {
+         this.index = index;
+         this.from = from;
+         this.to = to;
+         this.threshold = threshold;
+         this.report = report;
+      }
+
+
+      @Override
+      protected List<Reader> compute() {
+         if (to - from > 1 && index.length(from, to) > threshold) {
+            int middle = (from + to) >>> 1;
+            ParseTask second = new ParseTask(index, middle, to, threshold, report);
+            second.fork();
+            List<Reader> parts = new ParseTask(index, from, middle, threshold, report).compute();
+            parts.addAll(second.join());
+            return parts;
+         }
+         List<Reader> parts = new ArrayList<Reader>();
+         checkCancelled();
+         XMLStreamReader xml = null;
+         ParseReport previous = Diagnostics.open(report);
          try {
-            File xsdfile = new File("schema.xsd");
-            XMLReaderJDOMFactory schemafac = new XMLReaderXSDFactory(xsdfile);
-            SAXBuilder builder = new SAXBuilder(schemafac);
-            Document validdoc = builder.build(stream);
-         } catch (Exception e) {
-            System.out.println(e.getMessage());
-            return false;
+            xml = getInputFactory().createXMLStreamReader(index.fragment(from, to));
+            Reader part = new Reader();
+            part.fileUrl = fileUrl;
+            part.pool = pool;
+            part.progress = progress;
+            part.cancellation = cancellation;
+            part.buildTree(xml);
+            parts.add(part);
+            xml.close();
+         } catch (XMLStreamException xse) {
+            throw new IllegalStateException("Parsing failed! " + xse.getMessage(), xse);
+         } finally {
+            Diagnostics.close(previous);
          }
+         return parts;
       }
-      return true;
    }
 
 
@@ -325,32 +1160,60 @@ public class Reader implements Serializable {
     * @return {@link Section}: the Section representation of the dom section
     */
    private Section parseSection(Element domSection) {
-      String type = domSection.getChildText("type");
-      String name = domSection.getChildText("name");
-      String reference = domSection.getChildText("reference");
-      String definition = domSection.getChildText("definition");
+      Section section = createSection(pool, domSection.getChildText("type"), domSection.getChildText("name"),
+            domSection.getChildText("reference"), domSection.getChildText("definition"),
+            domSection.getChildText("mapping"), domSection.getChildText("repository"),
+            domSection.getChildText("link"), domSection.getChildText("include"));
+      if (section == null) {
+         return null;
+      }
+      checkCancelled();
+      if (progress != null) {
+         progress.addSection();
+      }
+      register(section);
+      for (Element element : domSection.getChildren("property")) {
+         section.add(parseProperty(element));
+      }
+      for (Element element : domSection.getChildren("section")) {
+         section.add(parseSection(element));
+      }
+      return section;
+   }
+
+
+   /**
+    * Creates a section from the content of its xml elements.
+    * 
+    * @param pool {@link StringPool}: the pool for the type, name, reference and definition, may be null.
+    * @return {@link Section}: the new section or null if the section could not be created.
+    */
+   static Section createSection(StringPool pool, String type, String name, String reference, String definition,
+                                String mapping, String repository, String link, String include) {
+      if (pool != null) {
+         type = pool.intern(type);
+         name = pool.intern(name);
+         reference = pool.intern(reference);
+         definition = pool.intern(definition);
+      }
       URL mapURL = null;
-      String temp = domSection.getChildText("mapping");
-      if (temp != null && !temp.isEmpty()) {
+      if (mapping != null && !mapping.isEmpty()) {
          try {
-            mapURL = new URL(temp);
+            mapURL = new URL(mapping);
          } catch (Exception e) {
-            System.out.println("odml.core.Reader.parseSection.mappingURL handling: " + e.getMessage());
+            Diagnostics.warning("Reader.createSection", null, "mappingURL handling: " + e.getMessage());
          }
       }
 
       URL url = null;
-      temp = domSection.getChildText("repository");
-      if (temp != null && !temp.isEmpty()) {
+      if (repository != null && !repository.isEmpty()) {
          try {
-            url = new URL(domSection.getChildText("repository"));
+            url = new URL(repository);
          } catch (Exception e) {
             url = null;
-            System.out.println("Reader.parseSection.repository: " + e.getMessage());
+            Diagnostics.warning("Reader.createSection", null, "repository: " + e.getMessage());
          }
       }
-      String link = domSection.getChildText("link");
-      String include = domSection.getChildText("include");
       Section section;
       try {
          section = new Section(name, type, reference);
@@ -358,25 +1221,83 @@ public class Reader implements Serializable {
          section.setRepository(url);
          section.setMapping(mapURL);
          section.setLink(link, true);
-         if (link != null) {
-            links.add(section);
-         }
          section.setInclude(include);
-         if (include != null) {
-            includes.add(section);
-         }
       } catch (Exception e) {
-         System.out.println("Reader.parseSection: exception while creating section: " + e.getMessage());
+         Diagnostics.error("Reader.createSection", null, "exception while creating section: " + e.getMessage());
          return null;
       }
-      Property tempProp;
-      for (Element element : domSection.getChildren("property")) {
-         section.add(parseProperty(element));
+      return section;
+   }
+
+
+   /**
+    * Resets the state of the previous document, i.e. the tree and the registered links and includes, so that the
+    * reader can be used for any number of documents.
+    */
+   private void reset() {
+      root = new Section();
+      links.clear();
+      includes.clear();
+   }
+
+
+   /**
+    * Returns the StAX input factory of the current thread. Creating a factory involves a service lookup, the
+    * factories are therefore kept per thread and reused for all documents read in that thread.
+    * 
+    * @return {@link XMLInputFactory}: the coalescing input factory of the current thread.
+    */
+   static XMLInputFactory getInputFactory() {
+      return inputFactories.get();
+   }
+
+
+   /**
+    * Returns the SAX builder of the current thread, either a plain one or one that validates against the schema.
+    * The builders reuse their SAX parser for all documents built in the thread.
+    */
+   private SAXBuilder getBuilder(boolean validate) throws SAXException {
+      Schema schema = validate ? getSchema() : null;
+      Map<Schema, SAXBuilder> threadBuilders = builders.get();
+      SAXBuilder builder = threadBuilders.get(schema);
+      if (builder == null) {
+         builder = schema != null ? new SAXBuilder(new XMLReaderSchemaFactory(schema)) : new SAXBuilder();
+         builder.setReuseParser(true);
+         threadBuilders.put(schema, builder);
       }
-      for (Element element : domSection.getChildren("section")) {
-         section.add(parseSection(element));
+      return builder;
+   }
+
+
+   /**
+    * Registers linked and including sections for later resolution.
+    * 
+    * @param section {@link Section}: a newly read section.
+    */
+   private void register(Section section) {
+      if (section.getLink() != null) {
+         links.add(section);
+      }
+      if (section.getInclude() != null) {
+         includes.add(section);
+      }
+   }
+
+
+   /**
+    * Registers a link or include that was set by a late field, i.e. one that follows the first property or
+    * subsection, at the position the section had when it was started.
+    * 
+    * @param section {@link Section}: a section that has been read completely.
+    * @param mark int[]: the number of registered links and includes when the section was started.
+    */
+   private void registerLate(Section section, int[] mark) {
+      if (section.getLink() != null && (mark[0] == links.size() || links.get(mark[0]) != section)) {
+         links.add(mark[0], section);
+      }
+      if (section.getInclude() != null && (mark[1] == includes.size() || includes.get(mark[1]) != section)) {
+         includes.add(mark[1], section);
       }
-      return section;
    }
 
 
@@ -387,38 +1308,47 @@ public class Reader implements Serializable {
     * @return {@link Property} the {@link Property} representation of this domElement
     */
    private Property parseProperty(Element domProperty) {
-      String name;
-      name = domProperty.getChildTextTrim("name");
-      String dependency;
-      String dependencyValue;
-      String definition;
-      URL mapURL = null;
+      Vector<Value> tmpValues = new Vector<Value>();
+      for (Element element : domProperty.getChildren("value")) {
+         tmpValues.add(parseValue(element));
+      }
+      if (progress != null) {
+         progress.addProperty(tmpValues.size());
+      }
+      return createProperty(pool, domProperty.getChildTextTrim("name"), tmpValues,
+            domProperty.getChildText("definition"), domProperty.getChildText("dependency"),
+            domProperty.getChildText("dependencyValue"), domProperty.getChildText("mapping"));
+   }
 
-      String temp = domProperty.getChildText("mapping");
 
-      if (temp != null && !temp.isEmpty() && !temp.endsWith("?")) {
+   /**
+    * Creates a property from the content of its xml elements.
+    * 
+    * @param pool {@link StringPool}: the pool for the name, definition and dependency, may be null.
+    * @return {@link Property}: the new property or null if it could not be created.
+    */
+   static Property createProperty(StringPool pool, String name, Vector<Value> values, String definition,
+                                  String dependency, String dependencyValue, String mapping) {
+      if (pool != null) {
+         name = pool.intern(name);
+         definition = pool.intern(definition);
+         dependency = pool.intern(dependency);
+         dependencyValue = pool.intern(dependencyValue);
+      }
+      URL mapURL = null;
+      if (mapping != null && !mapping.isEmpty() && !mapping.endsWith("?")) {
          try {
-            mapURL = new URL(temp);
+            mapURL = new URL(mapping);
          } catch (Exception e) {
-            System.out.println("odml.core.Reader.parseProperty.mappingURL handling: \n"
-                    + " \t> tried to form URL out of: '"
-                    + domProperty.getChildText("mapping")
-                    + "'\n\t= mapURL of Property named: " + name + e.getMessage());
+            Diagnostics.warning("Reader.createProperty", name, "mappingURL handling: tried to form URL out of: '"
+                    + mapping + "'. " + e.getMessage());
          }
       }
-      definition = domProperty.getChildText("definition");
-      dependency = domProperty.getChildText("dependency");
-      dependencyValue = domProperty.getChildText("dependencyValue");
-      Vector<Value> tmpValues = new Vector<Value>();
-      for (Element element : domProperty.getChildren("value")) {
-         tmpValues.add(parseValue(element));
-      }
-
       Property property;
       try {
-         property = new Property(name, tmpValues, definition, dependency, dependencyValue, mapURL);
+         property = new Property(name, values, definition, dependency, dependencyValue, mapURL);
       } catch (Exception e){
-         System.out.println("odml.core.Reader.parseProperty: create new prop failed. " + e.getMessage());
+         Diagnostics.error("Reader.createProperty", null, "create new prop failed. " + e.getMessage());
          property = null;
       }
       return property;
@@ -433,34 +1363,38 @@ public class Reader implements Serializable {
     * @return {@link Value} the {@link Value} representation of this domElement
     */
    private Value parseValue(Element domValue) {
-      Value value;
+      return createValue(pool, domValue.getTextTrim(), domValue.getChildText("unit"),
+            domValue.getChildText("uncertainty"), domValue.getChildText("type"),
+            domValue.getChildText("filename"), domValue.getChildText("definition"),
+            domValue.getChildText("reference"), domValue.getChildText("encoder"),
+            domValue.getChildText("checksum"));
+   }
+
 
-      String content;
-      String unit;
-      Object uncertainty;
-      String type;
-      String filename;
-      String definition;
-      String reference;
-      String encoder;
-      String checksum;
-      content = domValue.getTextTrim();
+   /**
+    * Creates a value from the content of its xml elements.
+    * 
+    * @param pool {@link StringPool}: the pool for the unit, type, definition, reference and encoder, may be null.
+    * @return {@link Value}: the new value or null if it could not be created.
+    */
+   static Value createValue(StringPool pool, String content, String unit, Object uncertainty, String type,
+                            String filename, String definition, String reference, String encoder, String checksum) {
+      Value value;
       if (content == null) {
          content = "";
       }
-      unit = domValue.getChildText("unit");
-      uncertainty = domValue.getChildText("uncertainty");
-      type = domValue.getChildText("type");
-      filename = domValue.getChildText("filename");
-      definition = domValue.getChildText("definition");
-      reference = domValue.getChildText("reference");
-      checksum = domValue.getChildText("checksum");
-      encoder = domValue.getChildText("encoder");
+      if (pool != null) {
+         unit = pool.intern(unit);
+         type = pool.intern(type);
+         definition = pool.intern(definition);
+         reference = pool.intern(reference);
+         encoder = pool.intern(encoder);
+      }
       try {
          value = new Value(content, unit, uncertainty, type, filename, definition, reference,
                encoder, checksum);
       } catch (Exception e) {
-         System.out.println("odml.core.Reader.parseValue: create Value failed. " + e.getMessage());
+         Diagnostics.error("Reader.createValue", null, "create Value failed. " + e.getMessage());
          return null;
       }
       return value;
@@ -485,10 +1419,14 @@ public class Reader implements Serializable {
     *            {@link Section} the root section of the odml - tree.
     */
    private void confirmLinks(Section root) {
+      if (links.isEmpty()) {
+         return;
+      }
+      Map<String, Section> index = Section.indexPaths(root);
       for (Section link : links) {
-         if (link.getSection(link.getLink()) == null
-                 && link.getType().equals(link.getSection(link.getLink()).getType())) {
-            System.out.println("Reader.confirmLinks: The link stored in section '"
+         Section linkedSection = link.getLinkedSection(index);
+         if (linkedSection == null || !link.getType().equalsIgnoreCase(linkedSection.getType())) {
+            Diagnostics.warning("Reader.confirmLinks", link, "The link stored in section '"
                     + link.toString()
                     + "' could not be confirmed and was removed!");
             link.setLink(null, true);
@@ -504,10 +1442,25 @@ public class Reader implements Serializable {
     * the absolute path of the target section. 
     * When loading an included section, the section is extended by the content of target
     * section (including subsections and their properties). 
+    * Each distinct file is parsed only once, independent files are prefetched in parallel, see
+    * {@link #setIncludeExecutor(Executor)}. Prefetching has ended when this method returns.
+    * Stops with a {@link CancellationException} if the token of this reader is cancelled.
     */
    public void loadIncludes() {
+      setPhase(Progress.Phase.INCLUDES);
+      IncludeCache cache = new IncludeCache(cancellation);
+      Vector<URL> fileUrls = new Vector<URL>();
       for (Section include : includes) {
-         include.loadInclude();
+         fileUrls.add(include.getIncludeFileURL());
+      }
+      cache.prefetch(fileUrls, includeExecutor);
+      try {
+         for (Section include : includes) {
+            checkCancelled();
+            include.loadInclude(cache);
+         }
+      } finally {
+         cache.close();
       }
    }
 
@@ -518,7 +1471,9 @@ public class Reader implements Serializable {
     * @throws Exception
     */
    public Section map() throws Exception {
+      setPhase(Progress.Phase.MAP);
       Mapper m = new Mapper(root);
+      m.setCancellationToken(cancellation);
       return m.map();
    }
 
@@ -528,9 +1483,11 @@ public class Reader implements Serializable {
     * linking section are extended with the content of the section that is
     * referenced in the linking section. Links can only be established
     *  within the same file.
+    * Stops with a {@link CancellationException} if the token of this reader is cancelled.
     */
    public void resolveLinks() {
-      root.resolveAllLinks();
+      setPhase(Progress.Phase.LINKS);
+      root.resolveAllLinks(cancellation);
    }
 
 }
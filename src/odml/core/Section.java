@@ -54,6 +54,10 @@ public class Section extends Object implements Serializable, TreeNode {
    protected int             level;
    private boolean           isTerminology              = false;
    protected Vector<Section> subsections = new Vector<Section>();
+   private transient volatile LazyDocument lazyDocument = null;
+   private transient int     lazyId;
+   private transient boolean materializing = false;
+   private transient Writer.Fragment serialized = null;
 
 
    /**
@@ -233,7 +237,7 @@ public class Section extends Object implements Serializable, TreeNode {
       name = name.trim();
       while (name.contains("/")) {
          name = name.replace("/", "-");
-         System.out.println("Invalid section name:\treplacing slashes '/' by '-'");
+         Diagnostics.warning("Section.checkNameStyle", null, "Invalid section name:\treplacing slashes '/' by '-'");
       }
       return name;
    }
@@ -250,7 +254,8 @@ public class Section extends Object implements Serializable, TreeNode {
          if (this.getDefinition() == null || (this.getDefinition().isEmpty())) {
             this.setDefinition(this.terminology.getDefinition());
          } else if (!this.terminology.getDefinition().equalsIgnoreCase(this.getDefinition())) {
-            System.out.println("Section definition deviates from the definition in the terminology! "
+            Diagnostics.warning("Section.validateSection", this, "Section definition deviates from the definition "
+                    + "in the terminology! "
                     + "No changes applied. Please double check to avoid conflicts!");
          }
       }
@@ -258,10 +263,11 @@ public class Section extends Object implements Serializable, TreeNode {
             && (!this.terminology.getMapping().toString().isEmpty())) {
          if (this.getMapping() == null || (this.getMapping().toString().isEmpty())) {
             this.setMapping(this.terminology.getMapping());
-            System.out.println("mappingURL set to one used in terminology");
+            Diagnostics.info("Section.validateSection", this, "mappingURL set to one used in terminology");
          } else if (!this.terminology.getMapping().toString().equalsIgnoreCase(
                this.getMapping().toString())) {
-            System.out.println("Section mapping different from the one specified in terminology! "
+            Diagnostics.warning("Section.validateSection", this, "Section mapping different from the one specified "
+                    + "in terminology! "
                     + "No changes applied. Please double check to avoid conflicts!");
          }
       }
@@ -270,11 +276,13 @@ public class Section extends Object implements Serializable, TreeNode {
          if (this.getRepository() == null
                || (this.getRepository().toString().isEmpty())) {
             this.setRepository(this.terminology.getRepository());
-            System.out.println("Section repository information updated with terminology information!");
+            Diagnostics.info("Section.validateSection", this, "Section repository information updated with "
+                    + "terminology information!");
          }
       }
       if (this.getProperty("name") != null) {
-         System.out.println("Warning: Section " + this.name + " contains a *name* property. Possible ambiguity with section name?");
+         Diagnostics.warning("Section.validateSection", this, "Warning: Section " + this.name
+                 + " contains a *name* property. Possible ambiguity with section name?");
       }
    }
 
@@ -288,10 +296,12 @@ public class Section extends Object implements Serializable, TreeNode {
     *         is last), -1 otherwise.
     */
    public int add(Section section) {
+      materialize();
       int index = -1;
       if (section != null) {
          if (this.containsSection(section.name, section.type)) {
-            System.out.println("There already exists a section with that name! Will append an index to the name!");
+            Diagnostics.warning("Section.add", this, "There already exists a section with that name! Will append an "
+                    + "index to the name!");
             section.setName(section.getName() + this.getSectionsByType(section.getType()).size());
          }
          section.setParent(this);
@@ -305,12 +315,54 @@ public class Section extends Object implements Serializable, TreeNode {
    }
 
 
+   /**
+    * Marks the section as lazily loaded, its properties and subsections are read from the document on first access.
+    * 
+    * @param document {@link LazyDocument}: the document.
+    * @param id int: the id of this section in the document.
+    */
+   void setLazySource(LazyDocument document, int id) {
+      this.lazyId = id;
+      this.lazyDocument = document;
+   }
+
+
+   /**
+    * Reads the properties and subsections of a lazily loaded section, if not yet done. The section is only
+    * published as loaded when it is complete, other threads wait for it on the document. Calls made while it is
+    * read, e.g. by adding the properties, return immediately.
+    */
+   private void materialize() {
+      LazyDocument document = lazyDocument;
+      if (document != null) {
+         synchronized (document) {
+            if (lazyDocument != null && !materializing) {
+               materializing = true;
+               try {
+                  document.materialize(this, lazyId);
+               } finally {
+                  materializing = false;
+                  lazyDocument = null;
+               }
+            }
+         }
+      }
+   }
+
+
+   private void writeObject(ObjectOutputStream out) throws IOException {
+      materialize();
+      out.defaultWriteObject();
+   }
+
+
    /**
     * Returns the number of subsections.
     * 
     * @return - int: the number of subsections. I.e. the size of the subsections vector.
     */
    public int sectionCount() {
+      materialize();
       return subsections.size();
    }
 
@@ -321,6 +373,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return - {@link String}[]: an array containing the types of all fist level subsections.
     */
    public String[] subsectionsNames() {
+      materialize();
       String[] types = new String[subsections.size()];
       for (int i = 0; i < subsections.size(); i++) {
          types[i] = subsections.get(i).getName();
@@ -335,10 +388,11 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return the section of that index or null if index not valid.
     */
    public Section getSection(int index) {
+      materialize();
       if (index < subsections.size()) {
          return subsections.get(index);
       } else {
-         System.out.println("Section: Index exceeds number of subsections.");
+         Diagnostics.warning("Section.getSection", this, "Index exceeds number of subsections.");
          return null;
       }
    }
@@ -351,12 +405,13 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return the first section matching with its name
     */
    public  Section getSection(String name) {
+      materialize();
       if (name == null || name.isEmpty())
          return null;
       if(isPath(name)){
          SectionPath sp = new SectionPath(name);
          if( !sp.isValid()){
-            System.out.println("Section.getSection: provided path is invalid!");
+            Diagnostics.warning("Section.getSection", this, "provided path is invalid!");
             return null;  
          }
          if(sp.isAbsolute()){
@@ -378,7 +433,7 @@ public class Section extends Object implements Serializable, TreeNode {
             }
          }
       }
-      System.out.println("Section.getSection(): could not locate section: " + name + " in the tree!");
+      Diagnostics.warning("Section.getSection", this, "could not locate section: " + name + " in the tree!");
       return null;
    }
 
@@ -389,6 +444,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return Vector of {@link Section}: the subsections or null if no subsections.
     */
    public Vector<Section> getSections() {
+      materialize();
       if (subsections.size() == 0) {
          return null;
       }
@@ -422,6 +478,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return Vector of {@link Section} the matching sections or an empty {@link Vector}.
     */
    public Vector<Section> getSectionsByType(String type) {
+      materialize();
       Vector<Section> temp = new Vector<Section>();
        for (Section subsection : subsections) {
            String subsectionType = subsection.getType();
@@ -444,6 +501,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return The found section or null.
     */
    public Section findSection(String name) {
+      materialize();
       Section found = getSection(name);
       if (found == null) {
          for (int i = 0; i < sectionCount(); i++) {
@@ -465,6 +523,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return {@link Section} the section or null;
     */
    public Section findSectionByType(String type) {
+      materialize();
       Section found = getSectionByType(type);
       if (found == null) {
          for (int i = 0; i < sectionCount(); i++) {
@@ -487,6 +546,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return {@link Vector} of {@link Section}s, may be empty
     */
    public Vector<Section> findSectionsByType(String type) {
+      materialize();
       Vector<Section> temp = getSectionsByType(type);
       for (int i = 0; i < sectionCount(); i++) {
          temp.addAll(subsections.get(i).findSectionsByType(type));
@@ -571,11 +631,13 @@ public class Section extends Object implements Serializable, TreeNode {
     * @param index {@link Integer} the index of the section.
     */
    public boolean removeSection(int index) {
+      materialize();
       try {
          subsections.removeElementAt(index);
          return true;
       } catch (ArrayIndexOutOfBoundsException a) {
-         System.out.println("Invalid index! Index '" + index + "' exceeds the bounds of Section array.");
+         Diagnostics.warning("Section.removeSection", this, "Invalid index! Index '" + index
+                 + "' exceeds the bounds of Section array.");
          return false;
       }
    }
@@ -588,6 +650,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return {@link Boolean} true if operation succeeded. False otherwise.
     */
    public boolean removeSection(Section section) {
+      materialize();
       return subsections.remove(section);
    }
 
@@ -599,6 +662,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return boolean: true if removing successful, false otherwise
     */
    public boolean removeSection(String name) {
+      materialize();
       if(isPath(name)){
          Section s = getSection(name);
          s.getParent().removeSection(this);
@@ -626,8 +690,9 @@ public class Section extends Object implements Serializable, TreeNode {
          this.level = this.getParent().getLevel() + 1;
       }
       if (this.subsections != null) {
-         for (int i = 0; i < this.sectionCount(); i++) {
-            this.getSection(i).updateLevel();
+         // the subsections are accessed directly, otherwise a lazily loaded section would be read
+         for (Section subsection : this.subsections) {
+            subsection.updateLevel();
          }
       }
    }
@@ -641,10 +706,11 @@ public class Section extends Object implements Serializable, TreeNode {
     */
    public boolean setType(String type) {
       if (type == null || type.isEmpty()) {
-         System.out.println("Section.setType: type must not be null");
+         Diagnostics.warning("Section.setType", this, "type must not be null");
          return false;
       }
       this.type = type;
+      markModified();
       return true;
    }
 
@@ -657,10 +723,11 @@ public class Section extends Object implements Serializable, TreeNode {
     */
    public boolean setName(String name) {
       if (name == null || name.isEmpty()) {
-         System.out.println("Section.setName: name must not be null or empty");
+         Diagnostics.warning("Section.setName", this, "name must not be null or empty");
          return false;
       }
       this.name = name;
+      markModified();
       return true;
    }
 
@@ -673,6 +740,7 @@ public class Section extends Object implements Serializable, TreeNode {
     */
    public void setReference(String reference) {
       this.reference = reference;
+      markModified();
    }
 
 
@@ -693,6 +761,7 @@ public class Section extends Object implements Serializable, TreeNode {
     */
    public void setDefinition(String definition) {
       this.definition = definition;
+      markModified();
    }
 
 
@@ -717,13 +786,16 @@ public class Section extends Object implements Serializable, TreeNode {
           this.repositoryURL = new URL(url);
       } catch (Exception e) {
          this.repositoryURL = null;
-         System.out.println("An error occurred when setting the repository: " + e.getMessage());
+         Diagnostics.error("Section.setRepository", this, "An error occurred when setting the repository: "
+                 + e.getMessage());
       }
+      markModified();
    }
 
 
    public void setRepository(URL url) {
       this.repositoryURL = url;
+      markModified();
    }
 
 
@@ -820,30 +892,134 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return {@link Boolean} true if this section is linked to another section and has been merged otherwise false.
     */
    public boolean resolveLink() {
-      if (this.link != null) {
-         Section linkedSection = getSection(this.link);
-         if (linkedSection != null) {
-            linkedSection.resolveLink();
-         } else {
-            System.out.println("Section.resolveLink: could not find referenced section!");
-            return false;
-         }
-         this.merge(getSection(this.link), MERGE_THIS_OVERRIDES_OTHER);
+      // a single link is looked up in the tree, the path index only pays off for many links
+      return resolveLink(null, newSectionSet(), newSectionSet());
+   }
+
+
+   /**
+    * Resolves the link with the help of the path index. Each section is resolved only once, a link that leads back
+    * to a section that is being resolved is a cycle and is not followed.
+    * 
+    * @param index {@link Map}: the path index of the tree, see {@link #indexPaths(Section)}, or null to look the
+    *           linked sections up in the tree.
+    * @param resolved {@link Set}: the sections whose links are resolved.
+    * @param resolving {@link Set}: the sections whose links are being resolved.
+    * @return boolean: true if the link was resolved, false otherwise.
+    */
+   private boolean resolveLink(Map<String, Section> index, Set<Section> resolved, Set<Section> resolving) {
+      if (this.link == null) {
+         return false;
+      }
+      if (resolved.contains(this)) {
          return true;
-      } else {
+      }
+      if (!resolving.add(this)) {
+         Diagnostics.warning("Section.resolveLink", this, "link cycle detected at '" + this.getPath()
+               + "', the link is not followed!");
          return false;
       }
+      Section linkedSection = getLinkedSection(index);
+      if (linkedSection == null) {
+         Diagnostics.warning("Section.resolveLink", this, "could not find referenced section!");
+         resolving.remove(this);
+         return false;
+      }
+      linkedSection.resolveLink(index, resolved, resolving);
+      this.merge(linkedSection, MERGE_THIS_OVERRIDES_OTHER);
+      resolving.remove(this);
+      resolved.add(this);
+      return true;
    }
 
 
    /**
     * Cycles through all subsections and resolves all links. Uses resolveLink() recursively. Call it on
+    * the root section to resolve all links of the tree. The linked sections are looked up in an index of the paths,
+    * which is built once, and each of them is resolved only once.
     */
    public void resolveAllLinks() {
+      resolveAllLinks(null);
+   }
+
+
+   /**
+    * Resolves all links like {@link #resolveAllLinks()}, the token is checked before each section.
+    * 
+    * @param token {@link CancellationToken}: the token, may be null.
+    */
+   void resolveAllLinks(CancellationToken token) {
+      resolveAllLinks(indexPaths(getRootSection()), newSectionSet(), newSectionSet(), token);
+   }
+
+
+   private void resolveAllLinks(Map<String, Section> index, Set<Section> resolved, Set<Section> resolving,
+                                CancellationToken token) {
+      if (token != null) {
+         token.throwIfCancelled();
+      }
       for (int i = 0; i < sectionCount(); i++) {
-         getSection(i).resolveAllLinks();
+         getSection(i).resolveAllLinks(index, resolved, resolving, token);
+      }
+      this.resolveLink(index, resolved, resolving);
+   }
+
+
+   /**
+    * Returns the section the link of this section points to. The section is looked up in the index, sections that
+    * are not found there, e.g. because they were added after the index was built, are searched in the tree.
+    * 
+    * @param index {@link Map}: the path index of the tree, see {@link #indexPaths(Section)}, or null to search the
+    *           tree only.
+    * @return {@link Section}: the linked section or null if there is none.
+    */
+   Section getLinkedSection(Map<String, Section> index) {
+      if (this.link == null) {
+         return null;
+      }
+      if (index == null) {
+         return getSection(this.link);
+      }
+      String path = this.link.trim();
+      while (path.length() > 1 && path.endsWith("/")) {
+         path = path.substring(0, path.length() - 1);
       }
-      this.resolveLink();
+      if (!path.startsWith("/")) {
+         path = this.getPath() + "/" + path;
+      }
+      Section linkedSection = index.get(path.toLowerCase());
+      return linkedSection != null ? linkedSection : getSection(this.link);
+   }
+
+
+   /**
+    * Creates an index of the absolute paths of all sections in the tree, the keys are in lower case. Like
+    * {@link #getSection(String)} the index holds the first of several sections with the same name.
+    * 
+    * @param root {@link Section}: the root of the tree.
+    * @return {@link Map}: the sections by their path.
+    */
+   static Map<String, Section> indexPaths(Section root) {
+      Map<String, Section> index = new HashMap<String, Section>();
+      root.indexPaths("", index);
+      return index;
+   }
+
+
+   private void indexPaths(String path, Map<String, Section> index) {
+      for (int i = 0; i < sectionCount(); i++) {
+         Section subsection = getSection(i);
+         String subsectionPath = path + "/" + subsection.getName().toLowerCase();
+         if (!index.containsKey(subsectionPath)) {
+            index.put(subsectionPath, subsection);
+            subsection.indexPaths(subsectionPath, index);
+         }
+      }
+   }
+
+
+   private static Set<Section> newSectionSet() {
+      return Collections.newSetFromMap(new IdentityHashMap<Section, Boolean>());
    }
 
 
@@ -855,8 +1031,10 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return {@link Integer}: the index of the added property in the properties vector or -1 if command failed.
     */
    public int add(Property property) {
+      materialize();
       if (this.isRoot() && this.type == null) {
-         System.out.println("! property must not be added to the root section (level == 0 && type == null)!");
+         Diagnostics.warning("Section.add", this, "property must not be added to the root section (level == 0 && "
+                 + "type == null)!");
          return -1;
       }
       if (property == null) {
@@ -865,7 +1043,7 @@ public class Section extends Object implements Serializable, TreeNode {
       int index = indexOfProperty(property.getName());
       if (index > -1) {
          if (properties.get(index).equals(property)) {
-            System.out.println("! nothing added as identical property already existing"
+            Diagnostics.warning("Section.add", this, "nothing added as identical property already existing"
                   + "\n\tproperty details: "
                   + property.toString());
             return index;
@@ -875,6 +1053,7 @@ public class Section extends Object implements Serializable, TreeNode {
       } else {
          properties.add(property);
          property.setParent(this);
+         markModified();
       }
       return propertyCount() - 1;
    }
@@ -895,7 +1074,7 @@ public class Section extends Object implements Serializable, TreeNode {
       assert property != null : "Property must not be null!";
       Section parent = getSection(path);
       if (parent == null) {
-         System.out.println("!path is wrong! No valid parent found! (path '" + path
+         Diagnostics.warning("Section.add", this, "path is wrong! No valid parent found! (path '" + path
                + "')");
          return -1;
       }
@@ -924,11 +1103,12 @@ public class Section extends Object implements Serializable, TreeNode {
                   index = s.add(prop);
                }
                else{
-                  System.out.println("An error occurred adding property with path specification: " +name);
+                  Diagnostics.error("Section.addProperty", this, "An error occurred adding property with path "
+                          + "specification: " +name);
                }
             }
             else{
-               System.out.println("Section.addProperty: " + "specified path is not valid!");
+               Diagnostics.warning("Section.addProperty", this, "specified path is not valid!");
             }
          }
          else{
@@ -937,7 +1117,7 @@ public class Section extends Object implements Serializable, TreeNode {
          }
       }
       catch (Exception e) {
-         System.out.println(e.getLocalizedMessage());
+         Diagnostics.error("Section.addProperty", this, e.getLocalizedMessage());
       }
       return index;
    }
@@ -961,7 +1141,8 @@ public class Section extends Object implements Serializable, TreeNode {
                result = s.removeProperty(sp.getPropertyPart());
          }
          else{
-            System.out.println("Specified path is invalid or does not address a property.");
+            Diagnostics.warning("Section.removeProperty", this, "Specified path is invalid or does not address a "
+                    + "property.");
          }
       }
       else{
@@ -978,10 +1159,12 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return {@link Boolean} :true if operation succeeded and false otherwise.
     */
    public boolean removeProperty(int index) {
+      materialize();
       if (properties.size() < index || index < 0) {
          return false;
       } else {
          properties.removeElementAt(index);
+         markModified();
       }
       return true;
    }
@@ -993,6 +1176,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return String[] an array of Strings.
     */
    public String[] getPropertyNames() {
+      materialize();
       String[] names = new String[this.propertyCount()];
       for (int i = 0; i < this.propertyCount(); i++) {
          names[i] = this.properties.get(i).getName();
@@ -1007,6 +1191,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return int: the number of stored properties.
     */
    public int propertyCount() {
+      materialize();
       if (properties == null) {
          return 0;
       }
@@ -1021,10 +1206,11 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return {@link Property}: the property or null if index exceeds the propertyCount.
     */
    public Property getProperty(int index) {
+      materialize();
       if (index < properties.size()) {
          return properties.get(index);
       } else {
-         System.out.println("Index exceeds number of properties.");
+         Diagnostics.warning("Section.getProperty", this, "Index exceeds number of properties.");
          return null;
       }
    }
@@ -1161,6 +1347,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return {@link Property} the found property or null.
     */
    private Property getProperty(String name, boolean resolveLink) {
+      materialize();
       Property p = null;
       if(name == null || name.isEmpty()){
          return p;
@@ -1171,7 +1358,8 @@ public class Section extends Object implements Serializable, TreeNode {
             p = getSection(name).getProperty(sp.getPropertyPart());
          }
          else{
-            System.out.println("Section.getProperty: specified path is not valid or does not specify a property!");
+            Diagnostics.warning("Section.getProperty", this, "specified path is not valid or does not specify a "
+                    + "property!");
             return p;
          }
       }
@@ -1196,6 +1384,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return - Vector of {@link Property}: returns the properties Vector which may be empty.
     */
    public Vector<Property> getProperties() {
+      materialize();
       return properties;
    }
 
@@ -1247,21 +1436,21 @@ public class Section extends Object implements Serializable, TreeNode {
          return;
       }
       if (mergeOption < 0 || mergeOption > MERGE_COMBINE) {
-         System.out.println("Section.merge error: invalid mergeOption!");
+         Diagnostics.error("Section.merge", this, "invalid mergeOption!");
          return;
       }
       if (!this.type.equalsIgnoreCase(otherSection.getType())) {
-         System.out.println("Section.merge error: cannot merge sections of differnt types!");
+         Diagnostics.error("Section.merge", this, "cannot merge sections of differnt types!");
          return;
       }
       if ((this.getRepository() != null && otherSection.getRepository() != null)
             && !this.getRepository().sameFile(otherSection.getRepository())) {
-         System.out.println("Section.merge error: cannot merge sections based on different terminologies!");
+         Diagnostics.error("Section.merge", this, "cannot merge sections based on different terminologies!");
          return;
       }
       if ((this.getMapping() != null && otherSection.getMapping() != null)
             && !this.mapping.sameFile(otherSection.getMapping())) {
-         System.out.println("Section.merge error: cannot merge sections mapping to different sections!");
+         Diagnostics.error("Section.merge", this, "cannot merge sections mapping to different sections!");
          return;
       }
       for (int i = 0; i < otherSection.propertyCount(); i++) {
@@ -1269,10 +1458,10 @@ public class Section extends Object implements Serializable, TreeNode {
          try {
             temp = otherSection.getProperty(i).copy();
          } catch (Exception e) {
-            System.out.println(e.getMessage());
+            Diagnostics.error("Section.merge", this, e.getMessage());
          }
          if (temp == null) {
-            System.out.println("Section.merge error: cloning Property failed.");
+            Diagnostics.error("Section.merge", this, "cloning Property failed.");
             continue;
          }
          int index = this.contains(temp);
@@ -1287,10 +1476,10 @@ public class Section extends Object implements Serializable, TreeNode {
          try {
             temp = otherSection.getSection(i).copy();
          } catch (Exception e) {
-            System.out.println("Copying 'otherSection' failed!" + e.getMessage());
+            Diagnostics.error("Section.merge", this, "Copying 'otherSection' failed!" + e.getMessage());
          }
          if (temp == null) {
-            System.out.println("Section.merge error: cloning section failed.");
+            Diagnostics.error("Section.merge", this, "cloning section failed.");
             continue;
          }
          int index = this.indexOfSection(temp);
@@ -1359,6 +1548,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return boolean 
     */
    public boolean containsSection(String name){
+       materialize();
        for (Section subsection : subsections) {
            if (subsection.getName().equalsIgnoreCase(name)) {
                return true;
@@ -1388,6 +1578,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return integer: the index of the property if such a property already exists, -1 if not.
     */
    public int indexOfProperty(String propertyName) {
+      materialize();
       int index = -1;
       if (properties != null) {
          for (int i = 0; i < properties.size(); i++) {
@@ -1411,6 +1602,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return boolean: true if such a subsection exists, false otherwise.
     */
    public int indexOfSection(String sectionName, String sectionType) {
+      materialize();
       int index = -1;
       if (subsections != null) {
          for (int i = 0; i < subsections.size(); i++) {
@@ -1431,6 +1623,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * @return int the index
     */
    public int indexOfSection(String sectionName) {
+      materialize();
       int index = -1;
       if (subsections != null) {
          for (int i = 0; i < subsections.size(); i++) {
@@ -1495,6 +1688,156 @@ public class Section extends Object implements Serializable, TreeNode {
    }
 
 
+   /**
+    * Updates this section and its subsections in place to match the given section, e.g. a freshly loaded version of
+    * the same document. Subsections are matched by name, subsections that did not change are kept as they are, new
+    * ones are moved over from the source. Every section that was added, removed or whose own content, i.e. its
+    * attributes, properties or the order of its subsections, changed is added to the list of changes. Added and
+    * removed sections are reported once, not for each of their descendants.
+    *
+    * @param source {@link Section}: the section to take over, it is taken apart and must not be used afterwards.
+    * @param changes {@link List}: the list the changes are added to.
+    */
+   void patch(Section source, List<SectionChange> changes) {
+      materialize();
+      source.materialize();
+      boolean modified = !equalsShallow(source);
+      if (modified) {
+         type = source.type;
+         definition = source.definition;
+         reference = source.reference;
+         link = source.link;
+         include = source.include;
+         mapping = source.mapping;
+         repositoryURL = source.repositoryURL;
+         author = source.author;
+         version = source.version;
+         date = source.date;
+         properties = source.properties;
+         for (Property property : properties) {
+            property.setParent(this);
+         }
+         markModified();
+      }
+      // sections of the same name but different types may coexist, they are matched in order
+      Map<String, Deque<Section>> existing = new HashMap<String, Deque<Section>>();
+      for (Section subsection : subsections) {
+         Deque<Section> named = existing.get(subsection.name);
+         if (named == null) {
+            named = new ArrayDeque<Section>(1);
+            existing.put(subsection.name, named);
+         }
+         named.add(subsection);
+      }
+      Set<Section> matched = newSectionSet();
+      Vector<Section> patched = new Vector<Section>(source.subsections.size());
+      List<Section> kept = new ArrayList<Section>();
+      for (Section subsection : source.subsections) {
+         Deque<Section> named = existing.get(subsection.name);
+         Section old = named == null ? null : named.poll();
+         if (old == null) {
+            subsection.setParent(this);
+            patched.add(subsection);
+            changes.add(new SectionChange(SectionChange.Kind.ADDED, subsection.getPath(), subsection));
+         } else {
+            old.patch(subsection, changes);
+            patched.add(old);
+            kept.add(old);
+            matched.add(old);
+         }
+      }
+      int next = 0;
+      for (Section subsection : subsections) {
+         if (!matched.contains(subsection)) {
+            changes.add(new SectionChange(SectionChange.Kind.REMOVED, subsection.getPath(), subsection));
+            subsection.parent = null;
+         } else if (kept.get(next++) != subsection) {
+            // the remaining sections were reordered
+            modified = true;
+         }
+      }
+      subsections = patched;
+      if (modified) {
+         changes.add(new SectionChange(SectionChange.Kind.MODIFIED, getPath(), this));
+      }
+   }
+
+
+   /**
+    * Returns the serialization of this section's start tag, attributes and properties cached by an incremental
+    * {@link Writer}, see {@link Writer#setIncremental(boolean)}.
+    *
+    * @return {@link Writer.Fragment}: the cached serialization or null if the section was modified since.
+    */
+   Writer.Fragment getSerialized() {
+      return serialized;
+   }
+
+
+   void setSerialized(Writer.Fragment serialized) {
+      this.serialized = serialized;
+   }
+
+
+   /**
+    * Marks this section as modified, i.e. drops its cached serialization. Called whenever the attributes or the
+    * properties of the section, or their values, change.
+    */
+   void markModified() {
+      serialized = null;
+   }
+
+
+   /**
+    * Compares the own content of this and the other section, i.e. everything but the subsections.
+    */
+   private boolean equalsShallow(Section other) {
+      return eq(type, other.type) && eq(name, other.name) && eq(definition, other.definition)
+            && eq(reference, other.reference) && eq(link, other.link) && eq(include, other.include)
+            && eq(mapping, other.mapping) && eq(repositoryURL, other.repositoryURL) && eq(author, other.author)
+            && eq(version, other.version) && eq(date, other.date) && equalProperties(properties, other.properties);
+   }
+
+
+   /**
+    * Compares the properties and their values like {@link Property#equals(Object)} but without resolving the host
+    * names of URLs, see {@link #eq(Object, Object)}.
+    */
+   private static boolean equalProperties(List<Property> a, List<Property> b) {
+      if (a.size() != b.size()) {
+         return false;
+      }
+      for (int i = 0; i < a.size(); i++) {
+         Property p = a.get(i), q = b.get(i);
+         if (!eq(p.getName(), q.getName()) || !eq(p.getDefinition(), q.getDefinition())
+               || !eq(p.getDependency(), q.getDependency()) || !eq(p.getDependencyValue(), q.getDependencyValue())
+               || !eq(p.getMapping(), q.getMapping()) || p.valueCount() != q.valueCount()) {
+            return false;
+         }
+         for (int j = 0; j < p.valueCount(); j++) {
+            Value v = p.getWholeValue(j), w = q.getWholeValue(j);
+            if (!eq(v.getContent(), w.getContent()) || !eq(v.getUnit(), w.getUnit())
+                  || !eq(v.getUncertainty(), w.getUncertainty()) || !eq(v.getType(), w.getType())
+                  || !eq(v.getFilename(), w.getFilename()) || !eq(v.getDefinition(), w.getDefinition())
+                  || !eq(v.getReference(), w.getReference()) || !eq(v.getEncoder(), w.getEncoder())
+                  || !eq(v.getChecksum(), w.getChecksum())) {
+               return false;
+            }
+         }
+      }
+      return true;
+   }
+
+
+   private static boolean eq(Object a, Object b) {
+      if (a instanceof URL && b instanceof URL) {
+         // URL.equals would resolve the host names
+         return ((URL) a).toExternalForm().equals(((URL) b).toExternalForm());
+      }
+      return a == null ? b == null : a.equals(b);
+   }
+
+
    /**
     * Sets the mapping to the given one.
     * 
@@ -1504,6 +1847,7 @@ public class Section extends Object implements Serializable, TreeNode {
     */
    public void setMapping(URL mapping) {
       this.mapping = mapping;
+      markModified();
    }
 
 
@@ -1518,7 +1862,7 @@ public class Section extends Object implements Serializable, TreeNode {
       try {
          url = new URL(mapping);
       } catch (MalformedURLException m) {
-         System.out.println("getSectionMapping: " + m.getMessage());
+         Diagnostics.error("Section.setMapping", this, "getSectionMapping: " + m.getMessage());
       }
       this.setMapping(url);
    }
@@ -1529,6 +1873,7 @@ public class Section extends Object implements Serializable, TreeNode {
     */
    public void removeMapping() {
       this.mapping = null;
+      markModified();
    }
 
 
@@ -1564,7 +1909,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * Validate the whole metadata tree against the terminologies.
     */
    public void validateTree() {
-      System.out.println("Starting validation ...");
+      Diagnostics.info("Section.validateTree", this, "Starting validation ...");
       getRootSection().validateRecursively();
    }
 
@@ -1583,7 +1928,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * 
     */
    public void validate() {
-      System.out.println("Validating section " + this.getPath()
+      Diagnostics.info("Section.validate", this, "Validating section " + this.getPath()
             + " against terminology located in repository "
             + findRepositoryURL().toString());
       findTerminology();
@@ -1612,7 +1957,7 @@ public class Section extends Object implements Serializable, TreeNode {
          terminology = TerminologyManager.instance().loadTerminology(getRepository(), this.type);
       }
       if (this.terminology == null) {
-         System.out.println("Validation of section: " + this.getPath()
+         Diagnostics.info("Section.findTerminology", this, "Validation of section: " + this.getPath()
                + " aborted! Could not locate a terminology equivalent!");
          success = false;
       }
@@ -1633,7 +1978,7 @@ public class Section extends Object implements Serializable, TreeNode {
       for (int i = 0; i < root.sectionCount(); i++) {
          root.getSection(i).optimize();
       }
-      System.out.println("optimization done");
+      Diagnostics.info("Section.optimizeTree", this, "optimization done");
    }
 
 
@@ -1740,6 +2085,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * of subsections and number and names of appended properties
     */
    public String toStringExtended() {
+      materialize();
       String info = (this.type + "-section named '" + this.name + "', id (" + this.reference
             + ") on level: " + level
             + "; complete path: " + this.getPath() + "\n\t- ");
@@ -1773,6 +2119,7 @@ public class Section extends Object implements Serializable, TreeNode {
     * termURL, mappingURL + number and names of subsections and number and names of appended properties
     */
    public String toStringAllDetails() {
+      materialize();
       String info = (this.type + "-section named '" + this.name + "', id (" + this.reference
             + ") on level: " + level
             + "; full path: " + this.getPath() + "\n\t- ");
@@ -1819,6 +2166,7 @@ public class Section extends Object implements Serializable, TreeNode {
 
 
    private Vector<TreeNode> getTreeNodeSections() {
+      materialize();
       Vector<TreeNode> tnSections = new Vector<TreeNode>();
       for (int i = 0; i < (this.subsections).size(); i++) {
          tnSections.add(this.subsections.elementAt(i));
@@ -1853,7 +2201,8 @@ public class Section extends Object implements Serializable, TreeNode {
    @Override
    public TreeNode getChildAt(int arg0) {
       if (arg0 < 0 || arg0 > this.getChildCount()) {
-         System.out.println("index out of range! must be within 0 and " + this.getChildCount());
+         Diagnostics.warning("Section.getChildAt", this, "index out of range! must be within 0 and "
+                 + this.getChildCount());
          return null;
       }
       if (arg0 < this.sectionCount()) {
@@ -1887,7 +2236,7 @@ public class Section extends Object implements Serializable, TreeNode {
          }
          return -1;
       } else {
-         System.out.println("!should not happen as TreeNode can only be Section or Property! "
+         Diagnostics.warning("Section.getIndex", this, "should not happen as TreeNode can only be Section or Property! "
                + "Here we have: "
                + arg0.getClass());
          return -1;
@@ -1940,6 +2289,7 @@ public class Section extends Object implements Serializable, TreeNode {
    public void setLink(String link, boolean ignore) {
       if (link == null) {
          this.link = null;
+         markModified();
          return;
       }
       if (ignore) {
@@ -1947,24 +2297,26 @@ public class Section extends Object implements Serializable, TreeNode {
       } else {
 
          if (!link.startsWith("/")) {
-            System.out.println("Section.setLink: A link must be given as an absolute path " +
+            Diagnostics.warning("Section.setLink", this, "A link must be given as an absolute path " +
                     "in the tree, i.e. start with '/'.");
             link = "/" + link;
          }
          Section temp = this.getSection(link);
          if (temp == null) {
-            System.out.println("Section.setLink: The link is invalid. Referenced section does not exist. Link: "
+            Diagnostics.warning("Section.setLink", this, "The link is invalid. Referenced section does not exist. "
+                    + "Link: "
                     + link);
             return;
          }
          if (!temp.getType().equalsIgnoreCase(this.type)) {
-            System.out.println("Section.setLink: The link (" + link
+            Diagnostics.warning("Section.setLink", this, "The link (" + link
                     + ")is invalid! Section types (this: " + this.type
                     + "," + " link: " + temp.getType() + ")do not match!");
             return;
          }
          this.link = link;
       }
+      markModified();
    }
 
 
@@ -1987,6 +2339,7 @@ public class Section extends Object implements Serializable, TreeNode {
     */
    public void setInclude(String include) {
       this.include = include;
+      markModified();
    }
 
 
@@ -2008,7 +2361,8 @@ public class Section extends Object implements Serializable, TreeNode {
     */
    public void setDocumentAuthor(String author) {
       if (!this.isRoot()) {
-         System.out.println("Author information is only allowed in Root sections. Otherwise it will be ignored.");
+         Diagnostics.warning("Section.setDocumentAuthor", this, "Author information is only allowed in Root "
+                 + "sections. Otherwise it will be ignored.");
       }
       this.author = author;
    }
@@ -2032,7 +2386,8 @@ public class Section extends Object implements Serializable, TreeNode {
     */
    public void setDocumentVersion(String version) {
       if (!this.isRoot()) {
-         System.out.println("Version information is only allowed in Root sections. Otherwise it will be ignored.");
+         Diagnostics.warning("Section.setDocumentVersion", this, "Version information is only allowed in Root "
+                 + "sections. Otherwise it will be ignored.");
       }
       this.version = version;
    }
@@ -2057,7 +2412,8 @@ public class Section extends Object implements Serializable, TreeNode {
     */
    public void setDocumentDate(Date date) {
       if (!this.isRoot()) {
-         System.out.println("Version information is only allowed in Root sections. Otherwise it will be ignored.");
+         Diagnostics.warning("Section.setDocumentDate", this, "Version information is only allowed in Root "
+                 + "sections. Otherwise it will be ignored.");
       }
       this.date = date;
    }
@@ -2083,6 +2439,16 @@ public class Section extends Object implements Serializable, TreeNode {
     */
    //TODO TEST me!!!
    public void loadInclude() {
+      loadInclude(new IncludeCache());
+   }
+
+
+   /**
+    * Loads an included file, which is taken from the cache, into this section.
+    * 
+    * @param cache {@link IncludeCache}: the files included during the current load.
+    */
+   void loadInclude(IncludeCache cache) {
       if (this.include == null) {
          return;
       }
@@ -2091,14 +2457,16 @@ public class Section extends Object implements Serializable, TreeNode {
       URL fileUrl = getIncludeFileURL();
 
       if(fileUrl != null){
-         Section temp = loadIncludeFile(fileUrl);
-         assert temp != null : "loadIncludeFile returns empty section! Something is wrong with the include element.";
-         includeSection = locateIncludeSection(temp, includePath);
+         Section temp = cache.get(fileUrl);
+         if (temp != null) {
+            includeSection = locateIncludeSection(temp, includePath);
+         }
       }
       if (includeSection != null) {
          this.merge(includeSection, Section.MERGE_THIS_OVERRIDES_OTHER);
       }
       this.include = null;
+      markModified();
    }
 
    private Section locateIncludeSection(Section temp, String includePath) {
@@ -2106,9 +2474,9 @@ public class Section extends Object implements Serializable, TreeNode {
       if(s == null){
          Vector<Section> typeMatches = temp.findSectionsByType(this.getType());
          if(typeMatches.size() > 1){
-            System.out.println("Section.locateIncludeSection: Include statement is ambiguous!");
+            Diagnostics.warning("Section.locateIncludeSection", this, "Include statement is ambiguous!");
          }
-         else{
+         else if (typeMatches.size() == 1) {
             s = typeMatches.firstElement();
          }
       }
@@ -2116,19 +2484,6 @@ public class Section extends Object implements Serializable, TreeNode {
    }
 
 
-   private Section loadIncludeFile(URL fileUrl) {
-      Section includeRoot = null;
-      try {
-         Reader r = new Reader();
-         includeRoot = r.load(fileUrl, Reader.NO_CONVERSION, false);
-      } catch (Exception e) {
-         System.out.println("Section.loadIncludeFile: Could not read file from the include location: "
-                 + fileUrl);
-      }
-      return includeRoot;
-   }
-
-
    private String getIncludeSectionPath(){
       String sectionPath= "";
       if(this.getInclude() != null && this.getInclude().contains("#")){
@@ -2137,7 +2492,7 @@ public class Section extends Object implements Serializable, TreeNode {
       return sectionPath;
    }
 
-   private URL getIncludeFileURL(){
+   URL getIncludeFileURL(){
       URL url = null;
       if(this.getInclude() != null && this.getInclude().contains("#")){
          String urlPart = this.include.substring(0,this.getInclude().indexOf("#"));
@@ -2146,7 +2501,8 @@ public class Section extends Object implements Serializable, TreeNode {
             url = new File(new File(thisFile.getParent()), urlPart).toURI().toURL();
          }
          catch (Exception e) {
-            System.out.println("Section.getIncludeURL: Could not locate the file referenced with the include information!");
+            Diagnostics.error("Section.getIncludeFileURL", this, "Could not locate the file referenced with the "
+                    + "include information!");
          }
       }
       return url;
@@ -2154,12 +2510,59 @@ public class Section extends Object implements Serializable, TreeNode {
 
    /**
     * Loads includes from this section and cycles through all subsections. If you want to load all includes in the tree
-    * call this function on the rootSection.
+    * call this function on the rootSection. Each distinct file is parsed only once, the files known at the start are
+    * prefetched in parallel on a pool that is shut down when the method returns. Include cycles are detected and not
+    * followed.
     */
    public void loadAllIncludes() {
-      this.loadInclude();
+      IncludeCache cache = new IncludeCache();
+      Vector<URL> fileUrls = new Vector<URL>();
+      collectIncludeFiles(fileUrls);
+      cache.prefetch(fileUrls, null);
+      try {
+         loadAllIncludes(cache, new HashSet<String>());
+      } finally {
+         cache.close();
+      }
+   }
+
+
+   /**
+    * Loads the includes of this section and its subsections. The includes that are being expanded on the way from
+    * the section loadAllIncludes was called on are passed along, an include that is met again on this way is a cycle
+    * and is not followed.
+    */
+   private void loadAllIncludes(IncludeCache cache, Set<String> expanding) {
+      String target = null;
+      if (this.include != null) {
+         URL fileUrl = getIncludeFileURL();
+         target = (fileUrl == null ? "" : fileUrl.toExternalForm()) + "#" + getIncludeSectionPath();
+         if (expanding.add(target)) {
+            this.loadInclude(cache);
+         } else {
+            Diagnostics.warning("Section.loadAllIncludes", this, "Include cycle detected at '" + this.getPath()
+                    + "' including "
+                  + this.include + ", the include is ignored!");
+            this.include = null;
+            markModified();
+            target = null;
+         }
+      }
       for (int i = 0; i < sectionCount(); i++) {
-         this.getSection(i).loadAllIncludes();
+         this.getSection(i).loadAllIncludes(cache, expanding);
+      }
+      if (target != null) {
+         expanding.remove(target);
+      }
+   }
+
+
+   private void collectIncludeFiles(Vector<URL> fileUrls) {
+      if (this.include != null) {
+         fileUrls.add(getIncludeFileURL());
+      }
+      for (int i = 0; i < sectionCount(); i++) {
+         this.getSection(i).collectIncludeFiles(fileUrls);
       }
    }
 
@@ -2298,6 +2701,7 @@ public class Section extends Object implements Serializable, TreeNode {
      */
     @Override
     public int hashCode() {
+        materialize();
         final int prime = 31;
         int result = 1;
         result = prime * result + ((author == null) ? 0 : author.hashCode());
@@ -2334,6 +2738,8 @@ public class Section extends Object implements Serializable, TreeNode {
         if (obj == null) { return false; }
         if (getClass() != obj.getClass()) { return false; }
         Section other = (Section) obj;
+        materialize();
+        other.materialize();
         if (author == null) {
             if (other.author != null) { return false; }
         } else if (!author.equals(other.author)) { return false; }
@@ -2392,6 +2798,7 @@ public class Section extends Object implements Serializable, TreeNode {
 
 
     public Map<String, Object> getMap() {
+        materialize();
         Map<String, Object> self = new HashMap<String, Object>();
         self.put("type", type);
         self.put("definition", definition);
@@ -2409,4 +2816,36 @@ public class Section extends Object implements Serializable, TreeNode {
         self.put("section", _sections);
         return self;
     }
+
+
+    /**
+     * Writes this section and its subsections as a JSON object with the members of {@link #getMap()}.
+     *
+     * @param json {@link JsonOutput}: the output.
+     */
+    void writeJson(JsonOutput json) throws IOException {
+        materialize();
+        json.beginObject();
+        json.member("type", type);
+        json.member("definition", definition);
+        json.member("name", name);
+        json.member("reference", reference);
+        json.member("link", link);
+        json.member("include", include);
+        json.member("repository", repositoryURL);
+        json.member("mapping", mapping);
+        json.name("property");
+        json.beginArray();
+        for (Property property : properties) {
+            property.writeJson(json);
+        }
+        json.endArray();
+        json.name("section");
+        json.beginArray();
+        for (Section section : subsections) {
+            section.writeJson(json);
+        }
+        json.endArray();
+        json.endObject();
+    }
 }
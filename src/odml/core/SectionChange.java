@@ -0,0 +1,81 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+/**
+ * A {@link SectionChange} describes a section that was added, removed or modified when a watched document was
+ * reloaded by a {@link Watcher}. A section counts as modified if its own content changed, i.e. its attributes, its
+ * properties or the order of its subsections, changes of its subsections are reported on their own.
+ * 
+ * @see SectionChangeListener
+ */
+public class SectionChange {
+
+   /**
+    * The kind of a {@link SectionChange}.
+    */
+   public enum Kind {
+      ADDED, REMOVED, MODIFIED
+   }
+
+   private final Kind    kind;
+   private final String  path;
+   private final Section section;
+
+
+   SectionChange(Kind kind, String path, Section section) {
+      this.kind = kind;
+      this.path = path;
+      this.section = section;
+   }
+
+
+   /**
+    * Returns the kind of the change.
+    * 
+    * @return {@link Kind}: the kind.
+    */
+   public Kind getKind() {
+      return kind;
+   }
+
+
+   /**
+    * Returns the path of the changed section, the root section has the empty path.
+    * 
+    * @return {@link String}: the path.
+    */
+   public String getPath() {
+      return path;
+   }
+
+
+   /**
+    * Returns the changed section. For an added or modified section this is the section as it is now part of the
+    * tree, for a removed section it is the section that was detached from the tree.
+    * 
+    * @return {@link Section}: the section.
+    */
+   public Section getSection() {
+      return section;
+   }
+
+
+   @Override
+   public String toString() {
+      return kind + " " + (path.isEmpty() ? "/" : path);
+   }
+}
@@ -0,0 +1,35 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A {@link SectionChangeListener} is notified by a {@link Watcher} whenever a watched document was reloaded and its
+ * tree changed. Listeners are called from the thread of the watcher.
+ */
+public interface SectionChangeListener {
+
+   /**
+    * Called after the tree of a watched document was updated.
+    * 
+    * @param file {@link Path}: the reloaded file.
+    * @param root {@link Section}: the root section of the document, the same as before the reload.
+    * @param changes {@link List}: the changed sections, not empty.
+    */
+   void sectionsChanged(Path file, Section root, List<SectionChange> changes);
+}
@@ -0,0 +1,426 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@link SectionIndex} holds the byte ranges of the top-level sections, or of all sections, of an odML document.
+ * The document is scanned for markup only, no objects are created for its content. With the index the document can
+ * be split into the top-level sections, which can be parsed independently of each other, and the remaining skeleton
+ * with the document information. Of an index of all sections the content of a single section without its
+ * subsections can be extracted.
+ * 
+ * Sections are numbered in document order, the root element has the id {@link #ROOT}.
+ * 
+ * Only documents in an encoding that is compatible with ASCII in the markup characters, e.g. UTF-8 or ISO-8859-1,
+ * and without a document type declaration, which might define entities, can be indexed.
+ */
+final class SectionIndex {
+
+   static final int            ROOT        = -1, NONE = -1;
+   private static final String ASCII_PROBE = "<>/?!-[]=\"' \t\r\n";
+   private static final byte   STARTED     = 1, LATE_FIELDS = 2;
+   private final ByteBuffer    document;
+   private final int           rootEnd;
+   private final byte[]        rootClose;
+   private int[]               starts      = new int[16], ends = new int[16], nextSiblings = new int[16],
+         firstChildren = new int[16], lastChildren = new int[16];
+   private byte[]              flags       = new byte[16];
+   private int                 count       = 0, firstChild = NONE, lastChild = NONE;
+
+
+   private SectionIndex(ByteBuffer document, int rootEnd, byte[] rootClose) {
+      this.document = document;
+      this.rootEnd = rootEnd;
+      this.rootClose = rootClose;
+   }
+
+
+   /**
+    * Scans the document for its top-level sections.
+    * 
+    * @param document {@link ByteBuffer}: the document, positioned at its start.
+    * @return {@link SectionIndex}: the index or null if the document can not be indexed.
+    */
+   static SectionIndex scan(ByteBuffer document) {
+      return scan(document, false);
+   }
+
+
+   /**
+    * Scans the document for its top-level sections or for all sections.
+    * 
+    * @param document {@link ByteBuffer}: the document, positioned at its start.
+    * @param nested boolean: whether subsections are indexed, too.
+    * @return {@link SectionIndex}: the index or null if the document can not be indexed.
+    */
+   static SectionIndex scan(ByteBuffer document, boolean nested) {
+      document = document.slice();
+      Charset charset = declaredCharset(document);
+      if (charset == null) {
+         return null;
+      }
+      int length = document.limit();
+      int depth = 0, openCount = 0;
+      int[] open = new int[16], openDepths = new int[16];
+      SectionIndex index = null;
+      int i = 0;
+      while ((i = indexOf(document, "<", i)) >= 0) {
+         if (startsWith(document, i, "<?")) {
+            i = skipPast(document, i, "?>");
+         } else if (startsWith(document, i, "<!--")) {
+            i = skipPast(document, i, "-->");
+         } else if (startsWith(document, i, "<![CDATA[")) {
+            i = skipPast(document, i, "]]>");
+         } else if (startsWith(document, i, "<!")) {
+            // a document type declaration may define entities that fragments would not know
+            return null;
+         } else if (i + 1 < length && document.get(i + 1) == '/') {
+            int end = indexOf(document, ">", i);
+            if (end < 0) {
+               return null;
+            }
+            depth--;
+            if (openCount > 0 && openDepths[openCount - 1] == depth) {
+               index.ends[open[--openCount]] = end + 1;
+            }
+            i = end + 1;
+         } else {
+            int end = tagEnd(document, i);
+            if (end < 0) {
+               return null;
+            }
+            boolean empty = document.get(end - 1) == '/';
+            if (depth == 0) {
+               if (empty || index != null) {
+                  return null;
+               }
+               byte[] name = new byte[nameEnd(document, i + 1) - i - 1];
+               for (int j = 0; j < name.length; j++) {
+                  name[j] = document.get(i + 1 + j);
+               }
+               String rootName = new String(name, charset);
+               index = new SectionIndex(document, end + 1, ("</" + rootName + ">").getBytes(charset));
+            } else {
+               boolean section = nameEnd(document, i + 1) == i + 8 && startsWith(document, i + 1, "section");
+               boolean child = nested && openCount > 0 && openDepths[openCount - 1] == depth - 1;
+               if (child) {
+                  // note fields of the enclosing section that follow its first property or subsection
+                  int parent = open[openCount - 1];
+                  if (section || nameEnd(document, i + 1) == i + 9 && startsWith(document, i + 1, "property")) {
+                     index.flags[parent] |= STARTED;
+                  } else if ((index.flags[parent] & STARTED) != 0) {
+                     index.flags[parent] |= LATE_FIELDS;
+                  }
+               }
+               if (section && (depth == 1 || child)) {
+                  int id = index.add(i, depth == 1 ? ROOT : open[openCount - 1]);
+                  if (empty) {
+                     index.ends[id] = end + 1;
+                  } else {
+                     if (openCount == open.length) {
+                        open = Arrays.copyOf(open, 2 * openCount);
+                        openDepths = Arrays.copyOf(openDepths, 2 * openCount);
+                     }
+                     open[openCount] = id;
+                     openDepths[openCount++] = depth;
+                  }
+               }
+            }
+            if (!empty) {
+               depth++;
+            }
+            i = end + 1;
+         }
+         if (i < 0) {
+            return null;
+         }
+      }
+      return depth == 0 ? index : null;
+   }
+
+
+   /**
+    * Returns the number of indexed sections.
+    */
+   int size() {
+      return count;
+   }
+
+
+   /**
+    * Returns the first subsection of the section or of the root, {@link #NONE} if there is none.
+    */
+   int firstChild(int id) {
+      return id == ROOT ? firstChild : firstChildren[id];
+   }
+
+
+   /**
+    * Returns whether the section has fields that follow its first property or subsection. Only applies to an index
+    * of all sections.
+    */
+   boolean hasLateFields(int id) {
+      return (flags[id] & LATE_FIELDS) != 0;
+   }
+
+
+   /**
+    * Returns the next section with the same parent, {@link #NONE} if there is none.
+    */
+   int nextSibling(int id) {
+      return nextSiblings[id];
+   }
+
+
+   /**
+    * Returns the number of bytes of the top-level sections from (inclusive) to (exclusive). Only applies to an index
+    * of the top-level sections.
+    */
+   long length(int from, int to) {
+      return ends[to - 1] - starts[from];
+   }
+
+
+   /**
+    * Returns the document without the top-level sections, i.e. the root element with the document information.
+    */
+   InputStream skeleton() {
+      List<InputStream> parts = new ArrayList<InputStream>();
+      int position = 0;
+      for (int child = firstChild; child != NONE; child = nextSiblings[child]) {
+         parts.add(stream(document, position, starts[child]));
+         position = ends[child];
+      }
+      parts.add(stream(document, position, document.limit()));
+      return new SequenceInputStream(Collections.enumeration(parts));
+   }
+
+
+   /**
+    * Returns a document holding the top-level sections from (inclusive) to (exclusive) within the original root
+    * element. Anything between the sections, e.g. comments or whitespace, is retained. Only applies to an index of
+    * the top-level sections.
+    */
+   InputStream fragment(int from, int to) {
+      List<InputStream> parts = Arrays.asList(stream(document, 0, rootEnd),
+            stream(document, starts[from], ends[to - 1]), new ByteArrayInputStream(rootClose));
+      return new SequenceInputStream(Collections.enumeration(parts));
+   }
+
+
+   /**
+    * Returns a document holding the section within the original root element, but without its subsections.
+    */
+   InputStream content(int id) {
+      List<InputStream> parts = new ArrayList<InputStream>();
+      parts.add(stream(document, 0, rootEnd));
+      int position = starts[id];
+      for (int child = firstChildren[id]; child != NONE; child = nextSiblings[child]) {
+         parts.add(stream(document, position, starts[child]));
+         position = ends[child];
+      }
+      parts.add(stream(document, position, ends[id]));
+      parts.add(new ByteArrayInputStream(rootClose));
+      return new SequenceInputStream(Collections.enumeration(parts));
+   }
+
+
+   /**
+    * Returns a stream on the range of the buffer. The buffer itself is not modified.
+    */
+   static InputStream stream(ByteBuffer buffer, int from, int to) {
+      final ByteBuffer range = buffer.duplicate();
+      range.limit(to);
+      range.position(from);
+      return new InputStream() {
+         @Override
+         public int read() {
+            return range.hasRemaining() ? range.get() & 0xff : -1;
+         }
+
+
+         @Override
+         public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+               return 0;
+            }
+            if (!range.hasRemaining()) {
+               return -1;
+            }
+            len = Math.min(len, range.remaining());
+            range.get(b, off, len);
+            return len;
+         }
+
+
+         @Override
+         public int available() {
+            return range.remaining();
+         }
+      };
+   }
+
+
+   private int add(int start, int parent) {
+      if (count == starts.length) {
+         starts = Arrays.copyOf(starts, 2 * count);
+         ends = Arrays.copyOf(ends, 2 * count);
+         nextSiblings = Arrays.copyOf(nextSiblings, 2 * count);
+         firstChildren = Arrays.copyOf(firstChildren, 2 * count);
+         lastChildren = Arrays.copyOf(lastChildren, 2 * count);
+         flags = Arrays.copyOf(flags, 2 * count);
+      }
+      int id = count++;
+      starts[id] = start;
+      nextSiblings[id] = NONE;
+      firstChildren[id] = NONE;
+      lastChildren[id] = NONE;
+      flags[id] = 0;
+      int previous = parent == ROOT ? lastChild : lastChildren[parent];
+      if (previous == NONE) {
+         if (parent == ROOT) {
+            firstChild = id;
+         } else {
+            firstChildren[parent] = id;
+         }
+      } else {
+         nextSiblings[previous] = id;
+      }
+      if (parent == ROOT) {
+         lastChild = id;
+      } else {
+         lastChildren[parent] = id;
+      }
+      return id;
+   }
+
+
+   /**
+    * Returns the charset declared in the xml declaration, UTF-8 if there is none, or null if the document is not in
+    * an encoding that is compatible with ASCII in the markup characters.
+    */
+   private static Charset declaredCharset(ByteBuffer document) {
+      int length = document.limit();
+      if (length >= 2 && (document.get(0) == 0 || document.get(1) == 0
+            || (document.get(0) & 0xff) == 0xfe || (document.get(0) & 0xff) == 0xff)) {
+         return null;
+      }
+      int start = length >= 3 && (document.get(0) & 0xff) == 0xef ? 3 : 0;
+      if (!startsWith(document, start, "<?xml")) {
+         return StandardCharsets.UTF_8;
+      }
+      int end = indexOf(document, "?>", start);
+      if (end < 0) {
+         return null;
+      }
+      byte[] declaration = new byte[end - start];
+      for (int i = 0; i < declaration.length; i++) {
+         declaration[i] = document.get(start + i);
+      }
+      String text = new String(declaration, StandardCharsets.US_ASCII);
+      int encoding = text.indexOf("encoding");
+      if (encoding < 0) {
+         return StandardCharsets.UTF_8;
+      }
+      String[] parts = text.substring(encoding).split("[\"']");
+      if (parts.length < 2) {
+         return null;
+      }
+      try {
+         Charset charset = Charset.forName(parts[1].trim());
+         return Arrays.equals(ASCII_PROBE.getBytes(charset), ASCII_PROBE.getBytes(StandardCharsets.US_ASCII))
+               ? charset : null;
+      } catch (Exception e) {
+         return null;
+      }
+   }
+
+
+   private static boolean startsWith(ByteBuffer buffer, int position, String prefix) {
+      if (position + prefix.length() > buffer.limit()) {
+         return false;
+      }
+      for (int i = 0; i < prefix.length(); i++) {
+         if (buffer.get(position + i) != prefix.charAt(i)) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+
+   private static int indexOf(ByteBuffer buffer, String pattern, int from) {
+      byte first = (byte) pattern.charAt(0);
+      for (int i = from, last = buffer.limit() - pattern.length(); i <= last; i++) {
+         if (buffer.get(i) == first && startsWith(buffer, i, pattern)) {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+
+   private static int skipPast(ByteBuffer buffer, int from, String end) {
+      int position = indexOf(buffer, end, from + 2);
+      return position < 0 ? -1 : position + end.length();
+   }
+
+
+   /**
+    * Returns the position of the closing bracket of the tag starting at the given position, quoted attribute values
+    * may contain brackets.
+    */
+   private static int tagEnd(ByteBuffer buffer, int from) {
+      byte quote = 0;
+      for (int i = from + 1; i < buffer.limit(); i++) {
+         byte b = buffer.get(i);
+         if (quote != 0) {
+            if (b == quote) {
+               quote = 0;
+            }
+         } else if (b == '"' || b == '\'') {
+            quote = b;
+         } else if (b == '>') {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+
+   private static int nameEnd(ByteBuffer buffer, int from) {
+      int i = from;
+      while (i < buffer.limit()) {
+         byte b = buffer.get(i);
+         if (b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '/' || b == '>') {
+            break;
+         }
+         i++;
+      }
+      return i;
+   }
+}
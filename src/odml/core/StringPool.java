@@ -0,0 +1,67 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link StringPool} lets equal strings share one instance. A {@link Reader} that has a pool passes the names,
+ * types, units, definitions and references of the sections, properties and values it reads through the pool, which
+ * saves a lot of memory in documents that repeat them many times. Value contents are not pooled.
+ * <p>
+ * The pool is thread safe and may be shared by the readers of a batch, see
+ * {@link Reader#loadAll(java.util.Collection, java.util.concurrent.Executor, int, int, StringPool)}. It holds on to
+ * every string it has seen until it is cleared.
+ * 
+ * @see Reader#setStringPool(StringPool)
+ */
+public class StringPool {
+
+   private final ConcurrentHashMap<String, String> strings = new ConcurrentHashMap<String, String>();
+
+
+   /**
+    * Returns the pooled instance of the string. The string becomes the pooled instance if there is none yet.
+    * 
+    * @param string {@link String}: the string, may be null.
+    * @return {@link String}: the pooled instance that equals the string or null if the string is null.
+    */
+   public String intern(String string) {
+      if (string == null) {
+         return null;
+      }
+      String pooled = strings.putIfAbsent(string, string);
+      return pooled != null ? pooled : string;
+   }
+
+
+   /**
+    * Returns the number of distinct strings in the pool.
+    * 
+    * @return int: the number of strings.
+    */
+   public int size() {
+      return strings.size();
+   }
+
+
+   /**
+    * Removes all strings from the pool.
+    */
+   public void clear() {
+      strings.clear();
+   }
+}
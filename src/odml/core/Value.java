@@ -24,7 +24,6 @@ import java.io.*;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.zip.CRC32;
 
@@ -54,10 +53,6 @@ public class Value implements Serializable, Cloneable, TreeNode {
    private Object                        content, uncertainty;
    private String                        definition, filename, checksum, encoder;
    private Property                      parent;
-   private final static SimpleDateFormat dateFormat       = new SimpleDateFormat("yyyy-MM-dd");
-   private final static SimpleDateFormat datetimeFormat   = new SimpleDateFormat(
-                                                                "yyyy-MM-dd hh:mm:ss");
-   private final static SimpleDateFormat timeFormat       = new SimpleDateFormat("hh:mm:ss");
    private final static String           regExNTuple;
 
    static {
@@ -169,7 +164,7 @@ public class Value implements Serializable, Cloneable, TreeNode {
             this.uncertainty = uncertainty;
          } catch (Exception e) {
             this.uncertainty = "";
-            System.out.println(e.getMessage());
+            Diagnostics.warning("Value", null, e.getMessage());
          }
       }
       if (filename != null && !filename.isEmpty()) {
@@ -237,7 +232,7 @@ public class Value implements Serializable, Cloneable, TreeNode {
     */
    public static Object checkDatatype(Object content, String type) {
       if (content == null || content.toString().isEmpty()) {
-         System.out.println("Found empty content!!!");
+         Diagnostics.warning("Value.checkDatatype", null, "Found empty content!!!");
          return null;
       }
       if (type.matches("(?i)int.*")) {
@@ -254,7 +249,8 @@ public class Value implements Serializable, Cloneable, TreeNode {
          } else if (content instanceof Number) {
             return ((Number) content).intValue();
          } else {
-            System.out.println("Cannot convert value of class " + content.getClass().getSimpleName()
+            Diagnostics.error("Value.checkDatatype", null, "Cannot convert value of class "
+                    + content.getClass().getSimpleName()
                     + " to requested type: " + type);
             return null;
          }
@@ -264,7 +260,8 @@ public class Value implements Serializable, Cloneable, TreeNode {
          } else if (content instanceof java.lang.String) { // float could be masked as string
             return Float.parseFloat((String) content);
          } else {
-            System.out.println("Cannot convert value of class " + content.getClass().getSimpleName()
+            Diagnostics.error("Value.checkDatatype", null, "Cannot convert value of class "
+                    + content.getClass().getSimpleName()
                     + " to requested type " + type);
             return null;
          }
@@ -274,7 +271,7 @@ public class Value implements Serializable, Cloneable, TreeNode {
          } else if (content instanceof Character) {
             return content.toString();
          } else {
-            System.out.println("Error converting content of class: "
+            Diagnostics.error("Value.checkDatatype", null, "Error converting content of class: "
                     + content.getClass().getSimpleName() + " to requested type: " + type);
             return null;
          }
@@ -282,7 +279,7 @@ public class Value implements Serializable, Cloneable, TreeNode {
          if (content instanceof String && ((String) content).matches(regExNTuple)) {
             return content;
          } else {
-            System.out.println("Value does not match the n-tuple definition (regExp: "
+            Diagnostics.warning("Value.checkDatatype", null, "Value does not match the n-tuple definition (regExp: "
                     + regExNTuple + ")!");
             return null;
          }
@@ -290,20 +287,20 @@ public class Value implements Serializable, Cloneable, TreeNode {
          if (type.matches("(?i)date")) {
             if (content instanceof Date) {
                try {
-                  return dateFormat.parse(dateFormat.format(content));
+                  return DateCodec.DATE.parse(DateCodec.DATE.format(content));
                } catch (Exception e) {
-                  System.out.println(e.getMessage());
+                  Diagnostics.error("Value.checkDatatype", null, e.getMessage());
                }
             } else if (content instanceof String) {
                try {
-                  return dateFormat.parse((String) content);
+                  return DateCodec.DATE.parse((String) content);
                } catch (Exception e) {
-                  System.out.println("Cannot convert passed String : " + content
+                  Diagnostics.error("Value.checkDatatype", null, "Cannot convert passed String : " + content
                           + " to a date value!");
                   return null;
                }
             } else {
-               System.out.println("Cannot convert passed object of class: "
+               Diagnostics.error("Value.checkDatatype", null, "Cannot convert passed object of class: "
                        + content.getClass().getSimpleName()
                        + " to a date value!");
                return null;
@@ -311,18 +308,18 @@ public class Value implements Serializable, Cloneable, TreeNode {
          } else if (type.matches("(?i)time")) {
             if (content instanceof Date) {
                try {
-                  return timeFormat.parse(timeFormat.format(content));
+                  return DateCodec.TIME.parse(DateCodec.TIME.format(content));
                } catch (Exception e) {
-                  System.out.println(e.getMessage());
+                  Diagnostics.error("Value.checkDatatype", null, e.getMessage());
                }
             } else if (content instanceof String) {
                try {
-                  return timeFormat.parse((String) content);
+                  return DateCodec.TIME.parse((String) content);
                } catch (Exception e) {
-                  System.out.println(e.getLocalizedMessage());
+                  Diagnostics.error("Value.checkDatatype", null, e.getLocalizedMessage());
                }
             } else {
-               System.out.println("Cannot convert passed object of class: "
+               Diagnostics.error("Value.checkDatatype", null, "Cannot convert passed object of class: "
                        + content.getClass().getSimpleName()
                        + " to a time value!");
                return null;
@@ -330,18 +327,18 @@ public class Value implements Serializable, Cloneable, TreeNode {
          } else if (type.matches("(?i)datetime")) {
             if (content instanceof Date) {
                try {
-                  return datetimeFormat.parse(datetimeFormat.format(content));
+                  return DateCodec.DATETIME.parse(DateCodec.DATETIME.format(content));
                } catch (Exception e) {
-                  System.out.println(e.getLocalizedMessage());
+                  Diagnostics.error("Value.checkDatatype", null, e.getLocalizedMessage());
                }
             } else if (content instanceof String) {
                try {
-                  return datetimeFormat.parse((String) content);
+                  return DateCodec.DATETIME.parse((String) content);
                } catch (Exception e) {
-                  System.out.println(e.getLocalizedMessage());
+                  Diagnostics.error("Value.checkDatatype", null, e.getLocalizedMessage());
                }
             } else {
-               System.out.println("Cannot convert passed object of class: "
+               Diagnostics.error("Value.checkDatatype", null, "Cannot convert passed object of class: "
                        + content.getClass().getSimpleName()
                        + " to a datetime value!");
                return null;
@@ -352,7 +349,7 @@ public class Value implements Serializable, Cloneable, TreeNode {
             } else if (content instanceof String) {
                return Boolean.parseBoolean((String) content);
             } else {
-               System.out.println("Cannot convert object of class: "
+               Diagnostics.error("Value.checkDatatype", null, "Cannot convert object of class: "
                        + content.getClass().getSimpleName() + " to a " + type + ": value!");
                return null;
             }
@@ -363,10 +360,10 @@ public class Value implements Serializable, Cloneable, TreeNode {
                try {
                   return new URL((String) content);
                } catch (MalformedURLException e) {
-                  System.out.println(e.getLocalizedMessage());
+                  Diagnostics.error("Value.checkDatatype", null, e.getLocalizedMessage());
                }
             } else {
-               System.out.println("Could not convert " + content.getClass().getSimpleName()
+               Diagnostics.error("Value.checkDatatype", null, "Could not convert " + content.getClass().getSimpleName()
                        + " to required type: " + type);
                return null;
             }
@@ -376,14 +373,16 @@ public class Value implements Serializable, Cloneable, TreeNode {
                        || content instanceof URL || content instanceof URI) {
                   return content;
                } else {
-                  System.out.println("Binary (String), File, URL, or URI content expected, "
+                  Diagnostics.warning("Value.checkDatatype", null, "Binary (String), File, URL, or URI content "
+                          + "expected, "
                           + content.getClass().getSimpleName() + " found!");
                   return null;
                }
             } else {
                if (type.matches("(?i)person")) {
                   if (!(content instanceof String)) {
-                     System.out.println("Expect a person to be of class expected, not " + content.getClass());
+                     Diagnostics.warning("Value.checkDatatype", null, "Expect a person to be of class expected, not "
+                             + content.getClass());
                      return null;
                   } else {
                      return content;
@@ -471,7 +470,7 @@ public class Value implements Serializable, Cloneable, TreeNode {
       try {
          os = new FileOutputStream(outFile);
       } catch (Exception e) {
-         System.out.println(e.getMessage());
+         Diagnostics.error("Value.writeBinaryToDisc", null, e.getMessage());
          throw e;
       }
       Base64 base = new Base64();
@@ -487,8 +486,19 @@ public class Value implements Serializable, Cloneable, TreeNode {
    }
 
 
+   /**
+    * Marks the section of the property this value belongs to as modified, see {@link Section#markModified()}.
+    */
+   private void markModified() {
+      if (parent != null) {
+         parent.markModified();
+      }
+   }
+
+
    protected void setContent(Object content) {
       this.content = content;
+      markModified();
    }
 
 
@@ -499,6 +509,7 @@ public class Value implements Serializable, Cloneable, TreeNode {
 
    protected void setUnit(String unit) {
       this.unit = unit;
+      markModified();
    }
 
 
@@ -509,6 +520,7 @@ public class Value implements Serializable, Cloneable, TreeNode {
 
    protected void setUncertainty(Object uncertainty) {
       this.uncertainty = uncertainty;
+      markModified();
    }
 
 
@@ -519,6 +531,7 @@ public class Value implements Serializable, Cloneable, TreeNode {
 
    protected void setType(String type) {
       this.type = type;
+      markModified();
    }
 
 
@@ -529,6 +542,7 @@ public class Value implements Serializable, Cloneable, TreeNode {
 
    protected void setFilename(String filename) {
       this.filename = filename;
+      markModified();
    }
 
 
@@ -539,6 +553,7 @@ public class Value implements Serializable, Cloneable, TreeNode {
 
    protected void setDefinition(String comment) {
       this.definition = comment;
+      markModified();
    }
 
 
@@ -549,6 +564,7 @@ public class Value implements Serializable, Cloneable, TreeNode {
 
    protected void setReference(String reference) {
       this.reference = reference;
+      markModified();
    }
 
 
@@ -562,6 +578,7 @@ public class Value implements Serializable, Cloneable, TreeNode {
          this.encoder = "";
       else
          this.encoder = encoder;
+      markModified();
    }
 
 
@@ -575,6 +592,7 @@ public class Value implements Serializable, Cloneable, TreeNode {
          this.checksum = "";
       else
          this.checksum = checksum;
+      markModified();
    }
 
 
@@ -607,7 +625,7 @@ public class Value implements Serializable, Cloneable, TreeNode {
    public void validate(Property terminologyProperty) {
       if (this.type != null && !this.type.isEmpty()) {
          if (!this.type.equalsIgnoreCase(terminologyProperty.getType())) {
-            System.out.println("Value type (" + this.type
+            Diagnostics.warning("Value.validate", this, "Value type (" + this.type
                     + ") does not match the one given in the terminology("
                     + terminologyProperty.getType()
                     + ")! To guarantee interoperability please ckeck. However, kept provided type.");
@@ -616,16 +634,17 @@ public class Value implements Serializable, Cloneable, TreeNode {
          try {
             checkDatatype(this.content, terminologyProperty.getType());
             this.setType(terminologyProperty.getType());
-            System.out.println("Added type information to value.");
+            Diagnostics.info("Value.validate", this, "Added type information to value.");
          } catch (Exception e) {
-            System.out.println("Value is not compatible with the type information the terminology suggests ("
+            Diagnostics.warning("Value.validate", this, "Value is not compatible with the type information the "
+                    + "terminology suggests ("
                     + terminologyProperty.getType()
                     + "). Did not change anything, but please check");
          }
       }
       if (this.unit != null && !this.unit.isEmpty()) {
          if (!this.unit.equalsIgnoreCase(terminologyProperty.getUnit(0))) {
-            System.out.println("Value unit (" + this.unit
+            Diagnostics.warning("Value.validate", this, "Value unit (" + this.unit
                     + ") does not match the one given in the terminology("
                     + terminologyProperty.getUnit()
                     + ")! To guarantee interoperability please ckeck. However, kept provided unit.");
@@ -633,7 +652,8 @@ public class Value implements Serializable, Cloneable, TreeNode {
       } else {
          if (terminologyProperty.getUnit() != null && !terminologyProperty.getUnit(0).isEmpty()) {
             this.setUnit(terminologyProperty.getUnit(0));
-            System.out.println("Added unit " + terminologyProperty.getUnit() + " information to value.");
+            Diagnostics.info("Value.validate", this, "Added unit " + terminologyProperty.getUnit()
+                    + " information to value.");
          }
       }
    }
@@ -661,7 +681,9 @@ public class Value implements Serializable, Cloneable, TreeNode {
       if (content == null) {
          return null;
       }
-      System.out.println("Encoding content: " + content.toString());
+      if (Diagnostics.isEnabled()) {
+         Diagnostics.info("Value.encodeContent", this, "Encoding content: " + content.toString());
+      }
       String encoded = null;
       File file;
       if (content instanceof String) {
@@ -675,20 +697,22 @@ public class Value implements Serializable, Cloneable, TreeNode {
          try {
             file = new File(((URL) content).toURI());
          } catch (Exception e) {
-            System.out.println("Could not create a file from the specified URL: " + content.toString());
+            Diagnostics.error("Value.encodeContent", this, "Could not create a file from the specified URL: "
+                    + content.toString());
             file = null;
          }
       } else if (content instanceof URI) {
          try {
             file = new File((URI) content);
          } catch (Exception e) {
-            System.out.println("Could not create a file from the specified URI: " + content.toString());
+            Diagnostics.error("Value.encodeContent", this, "Could not create a file from the specified URI: "
+                    + content.toString());
             file = null;
          }
       } else if (content instanceof File) {
          file = (File) content;
       } else {
-         System.out.println("Could not create a File from input! Class: "
+         Diagnostics.error("Value.encodeContent", this, "Could not create a File from input! Class: "
                  + content.getClass().getSimpleName() + " Content: " + content.toString());
          file = null;
       }
@@ -707,7 +731,8 @@ public class Value implements Serializable, Cloneable, TreeNode {
          this.setEncoder("Base64");
          encoded = new String(bytes, "UTF-8");
       } catch (Exception e) {
-         System.out.println("An error occurred during encoding: " + e.getLocalizedMessage());
+         Diagnostics.error("Value.encodeContent", this, "An error occurred during encoding: "
+                 + e.getLocalizedMessage());
       }
       return encoded;
    }
@@ -855,4 +880,27 @@ public class Value implements Serializable, Cloneable, TreeNode {
         self.put("checksum", checksum);
         return self;
     }
+
+
+    /**
+     * Writes this value as a JSON object with its content and the members of {@link #getMap()}. Numbers and booleans
+     * are written as literals, dates in the format of their type and other content as text, as in the XML
+     * serialization. The content is always written, the other members only if they are not empty.
+     *
+     * @param json {@link JsonOutput}: the output.
+     */
+    void writeJson(JsonOutput json) throws IOException {
+        json.beginObject();
+        json.name("content");
+        json.value(content instanceof Date ? Writer.formatDate(this, content) : content);
+        json.member("type", type);
+        json.member("uncertainty", uncertainty == null ? null : Writer.formatDate(this, uncertainty).toString());
+        json.member("unit", unit);
+        json.member("reference", reference);
+        json.member("definition", definition);
+        json.member("filename", filename);
+        json.member("encoder", encoder);
+        json.member("checksum", checksum);
+        json.endObject();
+    }
 }
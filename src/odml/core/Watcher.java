@@ -0,0 +1,363 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Watcher} keeps the trees of a number of odML files up to date with the files on disk. The directories of
+ * the watched files are observed with a {@link WatchService}; a file is reloaded once no further change to it has been
+ * seen for the quiet period, thus a burst of writes results in a single reload. Only files whose modification time or
+ * size changed are reloaded.
+ * 
+ * Instead of handing out a new tree, the watcher updates the tree returned by {@link #watch(Path)} in place: sections
+ * that did not change are kept, and the {@link SectionChangeListener}s are told which sections were added, removed or
+ * modified. The update is done while holding the lock of the root section, other threads that read the tree while
+ * the watcher is running should synchronize on it as well:
+ * 
+ * <pre>
+ * Watcher watcher = new Watcher();
+ * Section root = watcher.watch(file);
+ * watcher.addListener(listener);
+ * watcher.start();
+ * ...
+ * synchronized (root) {
+ *    ...
+ * }
+ * </pre>
+ */
+public class Watcher implements Closeable {
+
+   private static final long                         MIN_RETRY   = TimeUnit.MILLISECONDS.toNanos(10);
+   private final Reader                              reader;
+   private final int                                 option;
+   private final long                                quietPeriod;
+   private final WatchService                        service;
+   private final Map<Path, WatchedFile>              files       = new ConcurrentHashMap<Path, WatchedFile>();
+   private final Map<WatchKey, Path>                 directories = new ConcurrentHashMap<WatchKey, Path>();
+   private final List<SectionChangeListener>         listeners   = new CopyOnWriteArrayList<SectionChangeListener>();
+   private Thread                                    thread      = null;
+   private volatile boolean                          closed      = false;
+
+
+   /**
+    * Creates a watcher that loads the files without conversion and reloads them after a quiet period of 200 ms.
+    * 
+    * @throws IOException
+    */
+   public Watcher() throws IOException {
+      this(new Reader(), Reader.NO_CONVERSION, 200, TimeUnit.MILLISECONDS);
+   }
+
+
+   /**
+    * Creates a watcher.
+    * 
+    * @param reader {@link Reader}: the reader used to load the files, it must not be used elsewhere.
+    * @param option int: the load option as described in {@link Reader#load(String, int)}.
+    * @param quietPeriod long: the time without further changes after which a changed file is reloaded.
+    * @param unit {@link TimeUnit}: the unit of the quiet period.
+    * @throws IOException
+    */
+   public Watcher(Reader reader, int option, long quietPeriod, TimeUnit unit) throws IOException {
+      if (quietPeriod < 0) {
+         throw new IllegalArgumentException("Watcher: the quiet period must not be negative!");
+      }
+      this.reader = reader;
+      this.option = option;
+      this.quietPeriod = unit.toNanos(quietPeriod);
+      this.service = FileSystems.getDefault().newWatchService();
+   }
+
+
+   /**
+    * Loads the file and watches it for changes. A file that is already watched is not loaded again.
+    * 
+    * @param file {@link Path}: the file.
+    * @return {@link Section}: the root section of the file, it is updated whenever the file changes.
+    * @throws Exception if the file could not be loaded.
+    */
+   public synchronized Section watch(Path file) throws Exception {
+      Path path = file.toAbsolutePath().normalize();
+      WatchedFile watched = files.get(path);
+      if (watched != null) {
+         return watched.root;
+      }
+      watched = new WatchedFile(path);
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      watched.modified = attributes.lastModifiedTime();
+      watched.size = attributes.size();
+      // the file is watched before it is loaded, thus a change while loading leads to a reload
+      files.put(path, watched);
+      Section root;
+      try {
+         register(path.getParent());
+         root = load(path);
+         if (root == null) {
+            throw new IOException("Watcher.watch: could not load " + path + "!");
+         }
+      } catch (Exception e) {
+         files.remove(path);
+         throw e;
+      }
+      watched.root = root;
+      return root;
+   }
+
+
+   /**
+    * Stops watching the file. Its tree is no longer updated.
+    * 
+    * @param file {@link Path}: the file.
+    * @return boolean: true if the file was watched, false otherwise.
+    */
+   public boolean unwatch(Path file) {
+      return files.remove(file.toAbsolutePath().normalize()) != null;
+   }
+
+
+   /**
+    * Returns the root section of a watched file.
+    * 
+    * @param file {@link Path}: the file.
+    * @return {@link Section}: the root section or null if the file is not watched.
+    */
+   public Section getRootSection(Path file) {
+      WatchedFile watched = files.get(file.toAbsolutePath().normalize());
+      return watched != null ? watched.root : null;
+   }
+
+
+   /**
+    * Adds a listener that is notified about the changes of reloaded files.
+    * 
+    * @param listener {@link SectionChangeListener}: the listener.
+    */
+   public void addListener(SectionChangeListener listener) {
+      listeners.add(listener);
+   }
+
+
+   /**
+    * Removes a listener.
+    * 
+    * @param listener {@link SectionChangeListener}: the listener.
+    */
+   public void removeListener(SectionChangeListener listener) {
+      listeners.remove(listener);
+   }
+
+
+   /**
+    * Starts watching in a daemon thread. Calling start more than once has no effect.
+    */
+   public synchronized void start() {
+      if (closed) {
+         throw new IllegalStateException("Watcher.start: the watcher has been closed!");
+      }
+      if (thread == null) {
+         thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+               watchLoop();
+            }
+         }, "odML watcher");
+         thread.setDaemon(true);
+         thread.start();
+      }
+   }
+
+
+   /**
+    * Stops watching. The trees of the files are kept but no longer updated.
+    */
+   @Override
+   public void close() throws IOException {
+      closed = true;
+      service.close();
+   }
+
+
+   private synchronized void register(Path directory) throws IOException {
+      if (!directories.containsValue(directory)) {
+         WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+               StandardWatchEventKinds.ENTRY_MODIFY);
+         directories.put(key, directory);
+      }
+   }
+
+
+   private Section load(Path path) throws Exception {
+      synchronized (reader) {
+         return reader.load(path, option, false);
+      }
+   }
+
+
+   private void watchLoop() {
+      try {
+         while (!closed) {
+            long wait = nextReload();
+            WatchKey key = wait < 0 ? service.take() : service.poll(wait, TimeUnit.NANOSECONDS);
+            while (key != null) {
+               schedule(key);
+               key = service.poll();
+            }
+            reloadDue();
+         }
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+         // the watcher was closed
+      }
+   }
+
+
+   /**
+    * Postpones the reload of all watched files the events of the key refer to.
+    */
+   private void schedule(WatchKey key) {
+      Path directory = directories.get(key);
+      long due = System.nanoTime() + quietPeriod;
+      for (WatchEvent<?> event : key.pollEvents()) {
+         if (directory == null) {
+            continue;
+         }
+         if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            for (WatchedFile watched : files.values()) {
+               if (watched.path.getParent().equals(directory)) {
+                  watched.due = due;
+               }
+            }
+         } else {
+            WatchedFile watched = files.get(directory.resolve((Path) event.context()));
+            if (watched != null) {
+               watched.due = due;
+            }
+         }
+      }
+      if (!key.reset()) {
+         directories.remove(key);
+      }
+   }
+
+
+   /**
+    * Returns the time until the next scheduled reload in nanoseconds or -1 if there is none.
+    */
+   private long nextReload() {
+      long now = System.nanoTime(), wait = -1;
+      for (WatchedFile watched : files.values()) {
+         if (watched.due != 0) {
+            long remaining = Math.max(watched.due - now, 0);
+            if (wait < 0 || remaining < wait) {
+               wait = remaining;
+            }
+         }
+      }
+      return wait;
+   }
+
+
+   private void reloadDue() {
+      long now = System.nanoTime();
+      for (WatchedFile watched : files.values()) {
+         if (watched.due != 0 && watched.due - now <= 0) {
+            if (watched.root == null) {
+               // still being loaded by watch, checked again after the quiet period
+               watched.due = now + Math.max(quietPeriod, MIN_RETRY);
+               continue;
+            }
+            watched.due = 0;
+            reload(watched);
+         }
+      }
+   }
+
+
+   /**
+    * Reloads a file if it changed and updates its tree. If the file cannot be read, e.g. while it is being replaced,
+    * the previous tree is kept until the next change.
+    */
+   private void reload(WatchedFile watched) {
+      BasicFileAttributes attributes;
+      try {
+         attributes = Files.readAttributes(watched.path, BasicFileAttributes.class);
+      } catch (IOException e) {
+         return;
+      }
+      if (attributes.lastModifiedTime().equals(watched.modified) && attributes.size() == watched.size) {
+         return;
+      }
+      Section loaded;
+      try {
+         loaded = load(watched.path);
+      } catch (Exception e) {
+         loaded = null;
+      }
+      if (loaded == null) {
+         Diagnostics.warning("Watcher.reload", null, "could not reload " + watched.path
+               + ", the previous tree is kept.");
+         return;
+      }
+      watched.modified = attributes.lastModifiedTime();
+      watched.size = attributes.size();
+      List<SectionChange> changes = new ArrayList<SectionChange>();
+      synchronized (watched.root) {
+         watched.root.patch(loaded, changes);
+      }
+      if (changes.isEmpty()) {
+         return;
+      }
+      for (SectionChangeListener listener : listeners) {
+         try {
+            listener.sectionsChanged(watched.path, watched.root, changes);
+         } catch (RuntimeException e) {
+            Diagnostics.error("Watcher.reload", null, "a listener failed: " + e.getMessage(), e);
+         }
+      }
+   }
+
+
+   private static class WatchedFile {
+
+      private final Path        path;
+      private volatile Section  root;
+      private FileTime          modified;
+      private long              size;
+      private volatile long     due = 0;
+
+
+      WatchedFile(Path path) {
+         this.path = path;
+      }
+   }
+}
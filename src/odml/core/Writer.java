@@ -18,20 +18,27 @@ package odml.core;
  * along with this software. If not, see <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
  */
 
-import org.jdom2.Document;
-import org.jdom2.Element;
-import org.jdom2.ProcessingInstruction;
-import org.jdom2.output.Format;
-import org.jdom2.output.XMLOutputter;
-
 import java.io.*;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.net.URL;
-import java.text.SimpleDateFormat;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-
-import static java.lang.System.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * The {@link Writer} class provides the tools to write
@@ -43,22 +50,29 @@ import static java.lang.System.*;
  *
  */
 public class Writer implements Serializable {
+
+   /**
+    * The compression of the written documents.
+    */
+   public enum Compression {
+      NONE, GZIP, DEFLATE
+   }
+
    private static final long             serialVersionUID = 146L;
    private final boolean                 asTerminology;
-   private Document                      doc;
    private final File                    file;
    private Section                       odmlTree         = null;
+   private CancellationToken             cancellation     = null;
+   private ProgressListener              progressListener = null;
+   private Progress                      progress         = null;
+   private ForkJoinPool                  parallel         = null;
+   private boolean                       compact          = false;
+   private Compression                   compression      = Compression.NONE;
+   private int                           compressionLevel = Deflater.DEFAULT_COMPRESSION;
+   private int                           bufferSize       = 1 << 16;
+   private boolean                       durable          = false;
+   private boolean                       incremental      = false;
 
-   private final static SimpleDateFormat dateFormat       = new SimpleDateFormat("yyyy-MM-dd");
-   private final static SimpleDateFormat datetimeFormat   = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
-   private final static SimpleDateFormat timeFormat       = new SimpleDateFormat("hh:mm:ss");
-
-   private String[] section_fields = {"type","name", "definition", "repository", "mapping", "link",
-           "include", "reference" };
-   private String[] property_fields = {"name", "definition", "dependency", "dependencyValue", "mapping"};
-
-   private String[] value_fields = {"content", "type", "unit", "uncertainty", "definition", "reference",
-           "filename", "encoder", "checksum"};
 
    /**
     * Creates a writer instance. Lets the Writer write only those properties that have values.
@@ -134,6 +148,125 @@ public class Writer implements Serializable {
       this.asTerminology = asTerminology;
    }
 
+   /**
+    * Sets the token that is checked before each section is serialized and while the document is written. A write
+    * whose token is cancelled stops with a {@link CancellationException}. A file then keeps its previous content, as
+    * it is only replaced by a complete document, whereas a stream holds an incomplete document. Default is null,
+    * i.e. writes cannot be cancelled.
+    *
+    * @param token {@link CancellationToken}: the token or null.
+    */
+   public void setCancellationToken(CancellationToken token) {
+      this.cancellation = token;
+   }
+
+
+   /**
+    * Sets the listener that is notified about the {@link Progress} of each write. Default is null.
+    *
+    * @param listener {@link ProgressListener}: the listener or null.
+    */
+   public void setProgressListener(ProgressListener listener) {
+      this.progressListener = listener;
+   }
+
+
+   /**
+    * Switches compact output on or off. Compact documents contain neither line breaks nor indentation, they are
+    * meant for exchange between programs rather than for reading, and their text is written unchanged, i.e. it is
+    * not trimmed. Default is false, i.e. the output is indented.
+    *
+    * @param compact boolean: true for compact output, false for indented output.
+    */
+   public void setCompact(boolean compact) {
+      this.compact = compact;
+   }
+
+
+   /**
+    * Sets the compression of the output with the default compression level. Gzip and deflate (zlib) compressed
+    * documents are recognized by the {@link Reader}. Default is {@link Compression#NONE}.
+    *
+    * @param compression {@link Compression}: the compression.
+    */
+   public void setCompression(Compression compression) {
+      setCompression(compression, Deflater.DEFAULT_COMPRESSION);
+   }
+
+
+   /**
+    * Sets the compression of the output.
+    *
+    * @param compression {@link Compression}: the compression.
+    * @param level int: the compression level from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+    *           or {@link Deflater#DEFAULT_COMPRESSION}.
+    */
+   public void setCompression(Compression compression, int level) {
+      if (level != Deflater.DEFAULT_COMPRESSION
+            && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+         throw new IllegalArgumentException("Writer.setCompression: invalid compression level " + level + "!");
+      }
+      this.compression = compression != null ? compression : Compression.NONE;
+      this.compressionLevel = level;
+   }
+
+
+   /**
+    * Sets the size of the buffers through which the document is encoded and compressed. Larger buffers mean fewer
+    * writes to the underlying stream. Default is 64 KiB.
+    *
+    * @param size int: the buffer size in bytes, at least 1.
+    */
+   public void setBufferSize(int size) {
+      if (size < 1) {
+         throw new IllegalArgumentException("Writer.setBufferSize: the buffer size must be positive!");
+      }
+      this.bufferSize = size;
+   }
+
+
+   /**
+    * Switches durable file writes on or off. When writing to a file, the document is always written to a temporary
+    * file next to the destination that then replaces it, so that a failed write never leaves a truncated document.
+    * If durable, the temporary file and the directory are additionally synced to the disk, so that the new document
+    * also survives a system crash. Default is false.
+    *
+    * @param durable boolean: true to sync written files to the disk.
+    */
+   public void setDurable(boolean durable) {
+      this.durable = durable;
+   }
+
+
+   /**
+    * Switches incremental serialization on or off. An incremental writer keeps the serialization of each section's
+    * start tag, attributes and properties in the section and reuses it in later writes until the section is
+    * modified, so that saving a large document after a few changes only serializes the modified sections. The
+    * sections track modifications made through the methods of {@link Section}, {@link Property} and their values.
+    * The cached serializations take about twice the size of the document in memory and are kept until the sections
+    * are modified or dropped. Default is false.
+    *
+    * @param incremental boolean: true to reuse the serializations of unmodified sections.
+    */
+   public void setIncremental(boolean incremental) {
+      this.incremental = incremental;
+   }
+
+
+   /**
+    * Switches parallel serialization on or off. In parallel mode the top-level sections are serialized concurrently
+    * by {@link ForkJoinTask}s on the given pool into separate buffers, which are written to the stream in document
+    * order. The output is identical to that of sequential serialization. At most twice as many sections as the pool
+    * has threads are buffered at a time.
+    *
+    * @param pool {@link ForkJoinPool}: the pool on which the sections are serialized, e.g.
+    *            {@link ForkJoinPool#commonPool()}, null to serialize on the calling thread.
+    */
+   public void setParallel(ForkJoinPool pool) {
+      this.parallel = pool;
+   }
+
+
    /**
     * Writes the odML serialization to a file with the given name.
     *
@@ -143,21 +276,34 @@ public class Writer implements Serializable {
     */
    public boolean write(String fileName) {
       if (odmlTree == null) {
-         System.out.println("Writer.write error: there is no metadata to write!");
+         Diagnostics.error("Writer.write", null, "there is no metadata to write!");
          return false;
       }
-      createDom(odmlTree, asTerminology);
-      try {
-         FileOutputStream stream = new FileOutputStream(fileName);
-         return writeToStream(stream);
-      } catch (FileNotFoundException e) {
-         System.out.println(e.getMessage());
+      return writeToFile(Paths.get(fileName));
+   }
+
+
+   /**
+    * Writes the odML serialization to the given file. The document is written to a temporary file in the same
+    * directory which then atomically replaces the file, an existing file thus either keeps its old content or
+    * receives the complete new document, see also {@link #setDurable(boolean)}.
+    *
+    * @param file {@link Path}: the output file.
+    * @return {@link Boolean} true if operation was successful, false otherwise.
+    *
+    */
+   public boolean write(Path file) {
+      if (odmlTree == null) {
+         Diagnostics.error("Writer.write", null, "there is no metadata to write!");
          return false;
       }
+      return writeToFile(file);
    }
 
    /**
-    * Writes the odML serialization to the given output stream.
+    * Writes the odML serialization to the given output stream. Writing does not change the tree, empty values and
+    * properties are skipped rather than removed, so several writers may export the same tree concurrently as long
+    * as it is not modified meanwhile.
     *
     * @param stream {@link OutputStream}: output stream to which to write the document
     * @return {@link Boolean} true if operation was successful, false otherwise.
@@ -165,14 +311,49 @@ public class Writer implements Serializable {
     */
    public boolean write(OutputStream stream) {
       if (odmlTree == null) {
-         System.out.println("Writer.write error: there is no metadata to write!");
+         Diagnostics.error("Writer.write", null, "there is no metadata to write!");
          return false;
       }
-      createDom(odmlTree, asTerminology);
       return writeToStream(stream);
    }
 
 
+   /**
+    * Writes the odML serialization to the given output stream asynchronously on the given {@link Executor}, see
+    * {@link #write(OutputStream)}. Cancelling the returned future stops writing at the next write to the stream,
+    * the stream then holds an incomplete document. The tree must not be changed until the future is completed.
+    *
+    * @param stream {@link OutputStream}: output stream to which to write the document
+    * @param executor {@link Executor}: the executor on which the document is written.
+    * @return {@link CompletableFuture}: the future result, true if writing succeeded, false otherwise.
+    *
+    */
+   public CompletableFuture<Boolean> writeAsync(OutputStream stream, Executor executor) {
+      final Cancellation token = new Cancellation(cancellation);
+      final CompletableFuture<Boolean> future = token.newFuture();
+      final OutputStream cancellable = token.wrap(stream);
+      Runnable task = new Runnable() {
+         @Override
+         public void run() {
+            if (future.isDone()) {
+               return;
+            }
+            try {
+               future.complete(write(cancellable));
+            } catch (RuntimeException e) {
+               future.completeExceptionally(e);
+            }
+         }
+      };
+      try {
+         executor.execute(task);
+      } catch (RuntimeException e) {
+         future.completeExceptionally(e);
+      }
+      return future;
+   }
+
+
    /**
     * Writes the odML serialization to the given output stream. The odML tree can be optimized
     * (linked sections are simplified to reduce redundancy) and validated against terminologies before
@@ -225,17 +406,14 @@ public class Writer implements Serializable {
    @Deprecated
    public boolean write() {
       if (odmlTree == null) {
-         out.println("Writer.write error: there is no metadata to write!");
+         Diagnostics.error("Writer.write", null, "there is no metadata to write!");
          return false;
       }
-      try {
-         FileOutputStream stream = new FileOutputStream(file);
-         createDom(odmlTree, asTerminology);
-         return (write(stream));
-      } catch (Exception e) {
-         System.out.println(e.getMessage());
+      if (file == null) {
+         Diagnostics.error("Writer.write", null, "there is no file to write to!");
          return false;
       }
+      return writeToFile(file.toPath());
    }
 
    public Map<String, Object> getMap() {
@@ -250,227 +428,503 @@ public class Writer implements Serializable {
 
 
    /**
-    * Creates the Dom document from the section.
+    * Writes the document for the given section. The elements are written while the tree is traversed, no document
+    * is built in memory.
     *
-    * @param rootSection {@link Section}: the section to start the dom creation.
+    * @param xml {@link XmlOutput}: the output.
+    * @param rootSection {@link Section}: the section to start the serialization.
     * @param asTerminology {@link boolean}: flag to indicate whether Template is used or not
     *
     */
-   private void createDom(Section rootSection, boolean asTerminology) {
-      doc = new Document();
-      ProcessingInstruction instruction;
-      ProcessingInstruction alternativeInstruction;
+   private void writeDocument(XmlOutput xml, Section rootSection, boolean asTerminology) throws IOException {
+      String instruction;
+      String alternativeInstruction;
       if (asTerminology) {
-         alternativeInstruction = new ProcessingInstruction("xml-stylesheet",
-                 "type=\"text/xsl\" href=\"odml.xsl\"");
-         instruction = new ProcessingInstruction("xml-stylesheet",
-                 "type=\"text/xsl\" href=\"odmlTerms.xsl\"");
-      } else {
-         alternativeInstruction = new ProcessingInstruction("xml-stylesheet",
-                 "type=\"text/xsl\" href=\"odmlTerms.xsl\"");
-         instruction = new ProcessingInstruction("xml-stylesheet", "type=\"text/xsl\" href=\"odml.xsl\"");
-      }
-      doc.addContent(instruction);
-      doc.addContent(alternativeInstruction);
-      Element rootElement = new Element("odML");
-      rootElement.setAttribute("version", "1");
-      doc.setRootElement(rootElement);
-
-      Section dummyRoot;
-      if (rootSection.propertyCount() != 0) {
-         dummyRoot = new Section();
-         dummyRoot.add(rootSection);
-         dummyRoot.setDocumentAuthor(rootSection.getDocumentAuthor());
-         dummyRoot.setDocumentDate(rootSection.getDocumentDate());
-         dummyRoot.setDocumentVersion(rootSection.getDocumentVersion());
-         dummyRoot.setRepository(rootSection.getRepository());
+         alternativeInstruction = "type=\"text/xsl\" href=\"odml.xsl\"";
+         instruction = "type=\"text/xsl\" href=\"odmlTerms.xsl\"";
       } else {
-         dummyRoot = rootSection;
-      }
-      String author = dummyRoot.getDocumentAuthor();
-      if (author != null) {
-         Element authorElement = new Element("author");
-         authorElement.setText(author);
-         rootElement.addContent(authorElement);
-      }
-      String version = dummyRoot.getDocumentVersion();
-      if (version != null) {
-         Element versionElement = new Element("version");
-         versionElement.setText(version);
-         rootElement.addContent(versionElement);
+         alternativeInstruction = "type=\"text/xsl\" href=\"odmlTerms.xsl\"";
+         instruction = "type=\"text/xsl\" href=\"odml.xsl\"";
       }
+      xml.declaration();
+      xml.processingInstruction("xml-stylesheet", instruction);
+      xml.processingInstruction("xml-stylesheet", alternativeInstruction);
+      xml.start("odML");
+      xml.attribute("version", "1");
+
+      addElement(xml, "author", rootSection.getDocumentAuthor());
+      addElement(xml, "version", rootSection.getDocumentVersion());
       String dateString;
-      Date date = dummyRoot.getDocumentDate();
-      SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+      Date date = rootSection.getDocumentDate();
       if (date != null) {
-         dateString = sdf.format(date);
+         dateString = DateCodec.DATE.format(date);
       } else {
          date = new Date(Calendar.getInstance().getTimeInMillis());
-         dateString = sdf.format(date);
+         dateString = DateCodec.DATE.format(date);
       }
-      Element dateElement = new Element("date");
-      dateElement.setText(dateString);
-      rootElement.addContent(dateElement);
-      URL repository = dummyRoot.getRepository();
+      xml.textElement("date", dateString);
+      URL repository = rootSection.getRepository();
       if (repository != null) {
-         Element repElement = new Element("repository");
-         repElement.setText(repository.toString());
-         rootElement.addContent(repElement);
+         xml.textElement("repository", repository.toString());
       }
-      for (int i = 0; i < dummyRoot.sectionCount(); i++) {
-         appendSection(rootElement, dummyRoot.getSection(i), asTerminology);
+      if (rootSection.propertyCount() != 0) {
+         // a root with properties is written as the only section of the document, the tree is not changed
+         appendSection(xml, rootSection, asTerminology);
+      } else if (parallel != null && rootSection.sectionCount() > 1) {
+         appendSections(xml, rootSection, asTerminology);
+      } else {
+         for (int i = 0; i < rootSection.sectionCount(); i++) {
+            appendSection(xml, rootSection.getSection(i), asTerminology);
+         }
       }
+      xml.end("odML");
    }
 
+
    /**
-    * Add a new {@link org.jdom2.Element} to a parent Element. If content is not null or empty the toString method is
-    * invoked to store the content.
+    * Serializes the subsections of the root concurrently on the pool and appends them in order. Only a limited
+    * number of sections is serialized ahead of the one that is appended next.
     *
-    * @param parent - {@link org.jdom2.Element} the parent Element.
-    * @param name - {@link java.lang.String} the new elements name.
-    * @param content - {@link java.util.Objects} the content.
+    * @param xml {@link XmlOutput}: the output.
+    * @param root {@link Section}: the root section.
+    * @param asTemplate {@link boolean}: flag to indicate whether template or not.
     */
-   private void addElement(Element parent, String name, Object content) {
-      if (content == null || content.toString().isEmpty()) {
-         return;
+   private void appendSections(XmlOutput xml, Section root, boolean asTemplate) throws IOException {
+      int window = 2 * parallel.getParallelism(), next = 0;
+      Deque<SerializeTask> pending = new ArrayDeque<SerializeTask>(window);
+      try {
+         while (next < root.sectionCount() || !pending.isEmpty()) {
+            while (next < root.sectionCount() && pending.size() < window) {
+               SerializeTask task = new SerializeTask(root.getSection(next++), asTemplate);
+               parallel.execute(task);
+               pending.add(task);
+            }
+            xml.append(pending.poll().join());
+         }
+      } finally {
+         for (SerializeTask task : pending) {
+            task.cancel(false);
+         }
       }
-      Element element = new Element(name);
-      element.setText(content.toString());
-      parent.addContent(element);
    }
 
 
    /**
-    * Returns the value of a field specified by the field name. Assuming a getter pattern like getFieldName
-    *
-    * @param entity - {@link java.lang.Object} the entity
-    * @param fieldName - {@link java.lang.String} the field name
-    * @return Object the value or null.
+    * Serializes a top-level section into a buffer.
     */
-   private Object getFieldValue(Object entity, String fieldName) {
-      for (Method method : entity.getClass().getDeclaredMethods()) {
-         if (method.getName().toLowerCase().equals(("get" + fieldName).toLowerCase())) {
-            try {
-               return method.invoke(entity);
-            } catch (IllegalAccessException e) {
-               System.out.println("Could not invoke method: " + method.getName() + "on entity " +
-                       entity.getClass().toString());
-            } catch (InvocationTargetException e) {
-               System.out.println("Could not invoke method: " + method.getName() + "on entity " +
-                       entity.getClass().toString());
-            }
+   private class SerializeTask extends RecursiveTask<CharArrayWriter> {
+
+      private static final long serialVersionUID = 1L;
+      private final Section     section;
+      private final boolean     asTemplate;
+
+
+      SerializeTask(Section section, boolean asTemplate) {
+         this.section = section;
+         this.asTemplate = asTemplate;
+      }
+
+
+      @Override
+      protected CharArrayWriter compute() {
+         CharArrayWriter fragment = new CharArrayWriter();
+         try {
+            appendSection(new XmlOutput(fragment, compact, 0), section, asTemplate);
+         } catch (IOException e) {
+            // a CharArrayWriter does not throw
+            throw new IllegalStateException(e);
          }
+         return fragment;
       }
-      System.out.println("Could not find method " + "get" + fieldName + " in entity of type " +
-              entity.getClass().toString() + " !");
-      return null;
+   }
+
+   /**
+    * Writes an element with the given content. If content is not null or empty the toString method is invoked
+    * to get the text of the element.
+    *
+    * @param xml - {@link XmlOutput} the output.
+    * @param name - {@link java.lang.String} the new elements name.
+    * @param content - {@link java.util.Objects} the content.
+    */
+   private void addElement(XmlOutput xml, String name, Object content) throws IOException {
+      if (content == null || content.toString().isEmpty()) {
+         return;
+      }
+      xml.textElement(name, content.toString());
    }
 
 
    /**
-    * Method to append a section-element to the dom-tree.
-    * @param parent {@link Element}: the parent where the section shall be appended
-    * @param section {@link Section}: the section to append to the parent-element
+    * Method to write a section-element to the output.
+    * @param xml {@link XmlOutput}: the output.
+    * @param section {@link Section}: the section to write
     * @param asTemplate {@link boolean}: flag to indicate whether template or not; if template then also writing 
     * value-information (e.g. unit or type) without having actual value-content
     */
-   private void appendSection(Element parent, Section section, boolean asTemplate) {
-      Element sectionElement = new Element("section");
-      for (String section_field : section_fields) {
-         addElement(sectionElement, section_field, getFieldValue(section, section_field));
+   private void appendSection(XmlOutput xml, Section section, boolean asTemplate) throws IOException {
+      checkCancelled();
+      if (progress != null) {
+         progress.addSection();
       }
-      for (int i = 0; i < section.propertyCount(); i++) {
-         appendProperty(sectionElement, section.getProperty(i), asTemplate);
+      if (incremental) {
+         appendSerializedStart(xml, section, asTemplate);
+      } else {
+         appendSectionStart(xml, section, asTemplate);
       }
       for (int i = 0; i < section.sectionCount(); i++) {
-         appendSection(sectionElement, section.getSection(i), asTemplate);
+         appendSection(xml, section.getSection(i), asTemplate);
+      }
+      xml.end("section");
+   }
+
+
+   /**
+    * Writes the start tag, the attributes and the properties of a section element, the start of the element that is
+    * cached by incremental writers.
+    *
+    * @param xml {@link XmlOutput}: the output.
+    * @param section {@link Section}: the section to write
+    * @param asTemplate {@link boolean}: flag to indicate whether template or not.
+    */
+   private void appendSectionStart(XmlOutput xml, Section section, boolean asTemplate) throws IOException {
+      xml.start("section");
+      addElement(xml, "type", section.getType());
+      addElement(xml, "name", section.getName());
+      addElement(xml, "definition", section.getDefinition());
+      addElement(xml, "repository", section.getRepository());
+      addElement(xml, "mapping", section.getMapping());
+      addElement(xml, "link", section.getLink());
+      addElement(xml, "include", section.getInclude());
+      addElement(xml, "reference", section.getReference());
+      for (int i = 0; i < section.propertyCount(); i++) {
+         appendProperty(xml, section.getProperty(i), asTemplate);
+      }
+   }
+
+
+   /**
+    * Writes the start of a section element from the serialization cached in the section. If the section was
+    * modified since, or was written in another format, position or with another inherited repository, the start is
+    * serialized anew and cached.
+    *
+    * @param xml {@link XmlOutput}: the output.
+    * @param section {@link Section}: the section to write
+    * @param asTemplate {@link boolean}: flag to indicate whether template or not.
+    */
+   private void appendSerializedStart(XmlOutput xml, Section section, boolean asTemplate) throws IOException {
+      int format = xml.getDepth() << 2 | (compact ? 2 : 0) | (asTemplate ? 1 : 0);
+      // the repository is inherited from the parent sections if the section has none
+      URL repository = section.getRepository();
+      Fragment start = section.getSerialized();
+      if (start == null || start.format != format || start.repository != repository) {
+         CharArrayWriter buffer = new CharArrayWriter();
+         XmlOutput fragment = new XmlOutput(buffer, compact, xml.getDepth());
+         appendSectionStart(fragment, section, asTemplate);
+         start = new Fragment(buffer.toCharArray(), fragment.isOpen(), format, repository);
+         section.setSerialized(start);
+      } else if (progress != null) {
+         for (int i = 0; i < section.propertyCount(); i++) {
+            progress.addProperty(section.getProperty(i).valueCount());
+         }
       }
-      parent.addContent(sectionElement);
+      xml.appendStart(start.content, start.open);
    }
 
 
    /**
-    * Appends a property elements to the dom tree. Empty properties (those with no values) 
+    * The serialization of the start of a section element, i.e. its start tag, attributes and properties, that an
+    * incremental writer caches in the section, see {@link #setIncremental(boolean)}.
+    */
+   static final class Fragment {
+
+      private final char[]  content;
+      private final boolean open;
+      private final int     format;
+      private final URL     repository;
+
+
+      private Fragment(char[] content, boolean open, int format, URL repository) {
+         this.content = content;
+         this.open = open;
+         this.format = format;
+         this.repository = repository;
+      }
+   }
+
+
+   /**
+    * Writes a property element. Empty properties (those with no values) 
     * will only be written to file if the file is to become a terminology.
     *
-    * @param parent {@link Element}: the parent Element to which the properties belong.
-    * @param property {@link Property}: the property to append.
+    * @param xml {@link XmlOutput}: the output.
+    * @param property {@link Property}: the property to write.
     * @param asTerminology boolean: defines whether the file will be a terminology.
     */
-   private void appendProperty(Element parent, Property property, boolean asTerminology) {
+   private void appendProperty(XmlOutput xml, Property property, boolean asTerminology) throws IOException {
       if (!asTerminology) {
-         property.removeEmptyValues();
+         // empty values are skipped by appendValue, the tree is not changed
          if (property.isEmpty()) {
-            out.println("Writer.appendProperty: Property " + property.getName()
-                    + "is empty and will not be written to file!");
+            Diagnostics.warning("Writer.appendProperty", property, "property " + property.getName()
+                  + " is empty and will not be written to file!");
             return;
          }
       }
-      Element propertyElement = new Element("property");
-      for (String property_field : property_fields) {
-         addElement(propertyElement, property_field, getFieldValue(property, property_field));
-      }
+      xml.start("property");
+      addElement(xml, "name", property.getName());
+      addElement(xml, "definition", property.getDefinition());
+      addElement(xml, "dependency", property.getDependency());
+      addElement(xml, "dependencyValue", property.getDependencyValue());
+      addElement(xml, "mapping", property.getMapping());
       for (int i = 0; i < property.valueCount(); i++) {
-         appendValue(propertyElement, property.getWholeValue(i), asTerminology);
+         appendValue(xml, property.getWholeValue(i), asTerminology);
       }
-      parent.addContent(propertyElement);
+      if (progress != null) {
+         progress.addProperty(property.valueCount());
+      }
+      xml.end("property");
    }
 
 
    /**
-    * Appends a value element to the dom tree.
+    * Writes a value element.
     *
-    * @param parent {@link Element}: the parent Element to which the values belong.
-    * @param value {@link Value}: the value to append.
+    * @param xml {@link XmlOutput}: the output.
+    * @param value {@link Value}: the value to write.
     * @param asTemplate defines whether to save as template, i.e. empty values are accepted.
     */
-   private void appendValue(Element parent, Value value, boolean asTemplate) {
+   private void appendValue(XmlOutput xml, Value value, boolean asTemplate) throws IOException {
       if (!asTemplate) {
          if (value.getContent() == null || value.getContent().toString().isEmpty()) { return; }
       }
-      Element valueElement = new Element("value");
-      for (String value_field : value_fields) {
-         Object content = getFieldValue(value, value_field);
-         if (content instanceof Date) {
-            if (value.getType().equalsIgnoreCase("date")) {
-               content = dateFormat.format(content);
-            } else if (value.getType().equalsIgnoreCase("datetime")) {
-               content = datetimeFormat.format(content);
-            } else if (value.getType().equalsIgnoreCase("time")) {
-               content = timeFormat.format(content);
-            } else {
-               content = datetimeFormat.format(content);
-            }
+      xml.start("value");
+      addElement(xml, "content", formatDate(value, value.getContent()));
+      addElement(xml, "type", value.getType());
+      addElement(xml, "unit", value.getUnit());
+      addElement(xml, "uncertainty", formatDate(value, value.getUncertainty()));
+      addElement(xml, "definition", value.getDefinition());
+      addElement(xml, "reference", value.getReference());
+      addElement(xml, "filename", value.getFilename());
+      addElement(xml, "encoder", value.getEncoder());
+      addElement(xml, "checksum", value.getChecksum());
+      xml.end("value");
+   }
+
+
+   /**
+    * Formats dates according to the type of the value, other content is returned as it is.
+    *
+    * @param value {@link Value}: the value.
+    * @param content {@link Object}: the content or uncertainty of the value.
+    * @return {@link Object}: the formatted date or the content.
+    */
+   static Object formatDate(Value value, Object content) {
+      if (content instanceof Date) {
+         if (value.getType().equalsIgnoreCase("date")) {
+            return DateCodec.DATE.format(content);
+         } else if (value.getType().equalsIgnoreCase("datetime")) {
+            return DateCodec.DATETIME.format(content);
+         } else if (value.getType().equalsIgnoreCase("time")) {
+            return DateCodec.TIME.format(content);
+         } else {
+            return DateCodec.DATETIME.format(content);
          }
-         addElement(valueElement, value_field, content);
       }
-      parent.addContent(valueElement);
+      return content;
    }
 
 
    /**
-    * Writes the dom tree to the given output stream.
+    * Serializes the tree to the given output stream.
     *
     * @param stream the output stream
-    * @return true if the dom tree was successfully written to the stream, false otherwise
+    * @return true if the tree was successfully written to the stream, false otherwise
     *
     */
    private boolean writeToStream(OutputStream stream) {
-      if (doc == null) {
-         System.out.println("Writing to Stream failed, document is empty!");
-         return false;
+      progress = progressListener != null ? new Progress(progressListener, Progress.Phase.WRITE) : null;
+      if (progress != null) {
+         progress.setPhase(Progress.Phase.WRITE);
+         stream = progress.wrap(stream);
+      }
+      if (cancellation != null) {
+         stream = cancellation.wrap(stream);
       }
       try {
-         org.jdom2.output.Format format = org.jdom2.output.Format.getPrettyFormat().setIndent("    ");
-         XMLOutputter outputter = new XMLOutputter();
-         outputter.setFormat(Format.getPrettyFormat());
-         outputter.output(doc, stream);
+         OutputStream target = compress(stream);
+         XmlOutput xml = new XmlOutput(target, bufferSize, compact);
+         writeDocument(xml, odmlTree, asTerminology);
+         xml.flush();
+         if (target != stream) {
+            // finishes the compressed stream, the given stream is left open
+            target.close();
+         }
       } catch (IOException ie) {
-         System.out.println("Write to file failed: " + ie.getMessage());
+         checkCancelled();
+         Diagnostics.error("Writer.writeToStream", null, "write failed: " + ie.getMessage(), ie);
          return false;
       }
-      System.out.println("Writing to file successful!");
+      if (progress != null) {
+         progress.setPhase(Progress.Phase.DONE);
+      }
       return true;
    }
 
+
+   /**
+    * Serializes the tree to a temporary file next to the given file and moves it over the file once the document
+    * is complete. The temporary file is deleted if writing fails.
+    *
+    * @param file {@link Path}: the output file.
+    * @return true if the tree was successfully written to the file, false otherwise
+    */
+   private boolean writeToFile(Path file) {
+      Path temp = null;
+      try {
+         Path target = Files.isSymbolicLink(file) ? file.toRealPath() : file.toAbsolutePath();
+         Path directory = target.getParent();
+         boolean written;
+         temp = createTempFile(target);
+         try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            written = writeToStream(Channels.newOutputStream(channel));
+            if (written && durable) {
+               channel.force(true);
+            }
+         }
+         if (!written) {
+            return false;
+         }
+         copyPermissions(target, temp);
+         try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+         } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+         }
+         temp = null;
+         if (durable) {
+            syncDirectory(directory);
+         }
+         return true;
+      } catch (IOException e) {
+         Diagnostics.error("Writer.writeToFile", file, "write to file failed: " + e.getMessage(), e);
+         return false;
+      } finally {
+         if (temp != null) {
+            try {
+               Files.deleteIfExists(temp);
+            } catch (IOException e) {
+               Diagnostics.warning("Writer.writeToFile", null, "could not delete " + temp + ": " + e.getMessage());
+            }
+         }
+      }
+   }
+
+
+   /**
+    * Creates an empty temporary file in the directory of the given file. Unlike
+    * {@link Files#createTempFile(Path, String, String, java.nio.file.attribute.FileAttribute...)} the file gets the
+    * default permissions of new files rather than being readable by the owner only.
+    *
+    * @param file {@link Path}: the file that is to be replaced.
+    * @return {@link Path}: the temporary file.
+    */
+   private static Path createTempFile(Path file) throws IOException {
+      Random random = new Random();
+      while (true) {
+         String name = "." + file.getFileName() + "." + Integer.toHexString(random.nextInt()) + ".tmp";
+         Path temp = file.resolveSibling(name);
+         try {
+            return Files.createFile(temp);
+         } catch (FileAlreadyExistsException e) {
+            // try another name
+         }
+      }
+   }
+
+
+   /**
+    * Gives the temporary file the POSIX permissions of the file it replaces, if the file exists and the file
+    * system supports them.
+    *
+    * @param file {@link Path}: the file that is to be replaced.
+    * @param temp {@link Path}: the temporary file.
+    */
+   private static void copyPermissions(Path file, Path temp) throws IOException {
+      if (!Files.exists(file)) {
+         return;
+      }
+      try {
+         Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(file));
+      } catch (UnsupportedOperationException e) {
+         // not a POSIX file system
+      }
+   }
+
+
+   /**
+    * Syncs the directory to the disk, so that a rename in it is durable. Not every platform can open directories,
+    * a failure is therefore ignored.
+    *
+    * @param directory {@link Path}: the directory.
+    */
+   private static void syncDirectory(Path directory) {
+      try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+         channel.force(true);
+      } catch (IOException e) {
+         // e.g. on Windows, where directories cannot be opened
+      }
+   }
+
+
+   /**
+    * Wraps the stream according to the compression. Closing the returned stream finishes the compressed data but
+    * does not close the given stream.
+    *
+    * @param stream {@link OutputStream}: the destination.
+    * @return {@link OutputStream}: the compressing stream or the given stream if the output is not compressed.
+    */
+   private OutputStream compress(OutputStream stream) throws IOException {
+      if (compression == Compression.NONE) {
+         return stream;
+      }
+      OutputStream destination = new FilterOutputStream(stream) {
+         @Override
+         public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+         }
+
+
+         @Override
+         public void close() throws IOException {
+            out.flush();
+         }
+      };
+      if (compression == Compression.GZIP) {
+         return new GZIPOutputStream(destination, bufferSize) {
+            {
+               def.setLevel(compressionLevel);
+            }
+         };
+      }
+      return new DeflaterOutputStream(destination, new Deflater(compressionLevel), bufferSize) {
+         @Override
+         public void close() throws IOException {
+            try {
+               super.close();
+            } finally {
+               def.end();
+            }
+         }
+      };
+   }
+
+
+   /**
+    * Throws a {@link CancellationException} if the token of this writer has been cancelled.
+    */
+   private void checkCancelled() {
+      if (cancellation != null) {
+         cancellation.throwIfCancelled();
+      }
+   }
+
 }
@@ -0,0 +1,304 @@
+package odml.core;
+
+
+/************************************************************************
+ * odML - open metadata Markup Language - Copyright (C) 2009, 2010 Jan Grewe, Jan Benda
+ * 
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser General
+ * Public License (LGPL) as published by the Free Software Foundation; either version 3 of the License, or (at your
+ * option) any later version.
+ * 
+ * odML is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License along with this software. If not, see
+ * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
+ */
+
+import org.jdom2.IllegalDataException;
+import org.jdom2.Verifier;
+
+import java.io.BufferedWriter;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The {@link XmlOutput} writes an XML document element by element to a stream, without building the document in
+ * memory first. The output is laid out exactly like that of the JDOM {@code XMLOutputter} with its pretty format,
+ * i.e. UTF-8, CRLF line separators, an indent of two spaces, trimmed text and {@code <name />} for empty elements,
+ * so documents written either way are byte-identical. In compact mode neither line separators nor indentation
+ * are written and text is written unchanged. Parts of a document can be written to fragments concurrently and are then appended in order.
+ */
+final class XmlOutput {
+
+   private static final String  EOL    = "\r\n";
+   private static final String  INDENT = "  ";
+   private final Writer         out;
+   private final boolean        compact;
+   private final String         eol, indent;
+   private int                  depth  = -1;
+   private boolean              open   = false;
+
+
+   XmlOutput(OutputStream stream, int bufferSize, boolean compact) {
+      this(new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), bufferSize), compact);
+   }
+
+
+   /**
+    * Creates an output for a fragment of the document, i.e. for children of an element at the given depth that are
+    * appended to the document with {@link #append(CharArrayWriter)} or {@link #appendStart(char[], boolean)}. The
+    * root element is at depth 0.
+    */
+   XmlOutput(CharArrayWriter fragment, boolean compact, int depth) {
+      this((Writer) fragment, compact);
+      this.depth = depth;
+   }
+
+
+   private XmlOutput(Writer out, boolean compact) {
+      this.out = out;
+      this.compact = compact;
+      this.eol = compact ? "" : EOL;
+      this.indent = compact ? "" : INDENT;
+   }
+
+
+   /**
+    * Writes the XML declaration.
+    */
+   void declaration() throws IOException {
+      out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+      out.write(eol);
+   }
+
+
+   /**
+    * Writes a processing instruction in front of the root element.
+    */
+   void processingInstruction(String target, String data) throws IOException {
+      out.write("<?");
+      out.write(target);
+      out.write(' ');
+      out.write(data);
+      out.write("?>");
+      out.write(eol);
+   }
+
+
+   /**
+    * Starts an element, its start tag is completed when the first child or the end is written.
+    */
+   void start(String name) throws IOException {
+      beginLine();
+      out.write('<');
+      out.write(name);
+      open = true;
+   }
+
+
+   /**
+    * Adds an attribute to the element just started.
+    */
+   void attribute(String name, String value) throws IOException {
+      out.write(' ');
+      out.write(name);
+      out.write("=\"");
+      escape(value, true);
+      out.write('"');
+   }
+
+
+   /**
+    * Ends the current element. An element without children is written as an empty element.
+    */
+   void end(String name) throws IOException {
+      if (open) {
+         out.write(" />");
+         open = false;
+      } else {
+         out.write(eol);
+         indent(depth);
+         out.write("</");
+         out.write(name);
+         out.write('>');
+      }
+      depth--;
+      if (depth < 0) {
+         out.write(eol);
+      }
+   }
+
+
+   /**
+    * Writes an element that only contains the given text. Leading and trailing whitespace is removed unless the
+    * output is compact, an element without text is written as an empty element.
+    * 
+    * @throws IllegalDataException if the text contains characters that are not allowed in XML.
+    */
+   void textElement(String name, String text) throws IOException {
+      String reason = Verifier.checkCharacterData(text);
+      if (reason != null) {
+         throw new IllegalDataException("The data \"" + text + "\" is not legal for a JDOM character content: "
+               + reason + ".");
+      }
+      String content = compact ? text : trim(text);
+      beginLine();
+      out.write('<');
+      out.write(name);
+      if (content.isEmpty()) {
+         out.write(" />");
+      } else {
+         out.write('>');
+         escape(content, false);
+         out.write("</");
+         out.write(name);
+         out.write('>');
+      }
+      depth--;
+   }
+
+
+   /**
+    * Appends a fragment with children of the current element.
+    */
+   void append(CharArrayWriter fragment) throws IOException {
+      if (open) {
+         out.write('>');
+         open = false;
+      }
+      fragment.writeTo(out);
+   }
+
+
+   /**
+    * Appends a fragment that holds the start of a child of the current element, i.e. its start tag and its leading
+    * children, written by an output for fragments at the current depth. The child becomes the current element, as
+    * if it had been written by {@link #start(String)} and the following calls.
+    *
+    * @param open whether the start tag of the child is still open, i.e. the fragment ends with the start tag.
+    */
+   void appendStart(char[] fragment, boolean open) throws IOException {
+      if (this.open) {
+         out.write('>');
+      }
+      out.write(fragment);
+      this.open = open;
+      depth++;
+   }
+
+
+   /**
+    * Returns the depth of the current element, the root element is at depth 0.
+    */
+   int getDepth() {
+      return depth;
+   }
+
+
+   /**
+    * Returns whether the start tag of the current element is still open, i.e. the element has no children yet.
+    */
+   boolean isOpen() {
+      return open;
+   }
+
+
+   void flush() throws IOException {
+      out.flush();
+   }
+
+
+   /**
+    * Completes the start tag of the parent, if needed, and moves to the line of a new child.
+    */
+   private void beginLine() throws IOException {
+      if (open) {
+         out.write('>');
+         open = false;
+      }
+      depth++;
+      if (depth > 0) {
+         out.write(eol);
+         indent(depth);
+      }
+   }
+
+
+   private void indent(int level) throws IOException {
+      for (int i = 0; i < level && !compact; i++) {
+         out.write(indent);
+      }
+   }
+
+
+   /**
+    * Writes the text with the markup characters escaped, line feeds in text are written as line separators unless
+    * the output is compact.
+    * Characters outside the basic multilingual plane are written as character references, as JDOM does.
+    */
+   private void escape(String text, boolean attribute) throws IOException {
+      int start = 0;
+      for (int i = 0; i < text.length(); i++) {
+         String replacement;
+         char c = text.charAt(i);
+         if (Character.isHighSurrogate(c) && i + 1 < text.length()
+               && Character.isLowSurrogate(text.charAt(i + 1))) {
+            out.write(text, start, i - start);
+            out.write("&#x" + Integer.toHexString(Character.toCodePoint(c, text.charAt(i + 1))) + ";");
+            start = ++i + 1;
+            continue;
+         }
+         switch (c) {
+            case '&':
+               replacement = "&amp;";
+               break;
+            case '<':
+               replacement = "&lt;";
+               break;
+            case '>':
+               replacement = "&gt;";
+               break;
+            case '\r':
+               replacement = "&#xD;";
+               break;
+            case '"':
+               replacement = attribute ? "&quot;" : null;
+               break;
+            case '\t':
+               replacement = attribute ? "&#x9;" : null;
+               break;
+            case '\n':
+               replacement = attribute ? "&#xA;" : compact ? null : EOL;
+               break;
+            default:
+               replacement = null;
+         }
+         if (replacement != null) {
+            out.write(text, start, i - start);
+            out.write(replacement);
+            start = i + 1;
+         }
+      }
+      out.write(text, start, text.length() - start);
+   }
+
+
+   /**
+    * Removes leading and trailing XML whitespace, i.e. spaces, tabs, carriage returns and line feeds.
+    */
+   private static String trim(String text) {
+      int begin = 0, end = text.length();
+      while (begin < end && Verifier.isXMLWhitespace(text.charAt(begin))) {
+         begin++;
+      }
+      while (end > begin && Verifier.isXMLWhitespace(text.charAt(end - 1))) {
+         end--;
+      }
+      return text.substring(begin, end);
+   }
+}
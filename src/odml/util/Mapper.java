@@ -14,12 +14,15 @@ package odml.util;
  * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
  */
 
+import odml.core.CancellationToken;
+import odml.core.Diagnostics;
 import odml.core.Property;
 import odml.core.Section;
 
 import java.io.IOException;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.concurrent.CancellationException;
 
 /**
  * The {@link Mapper} controls the mapping procedure. Mapping information can be given for {@link Property} and
@@ -37,6 +40,7 @@ public class Mapper {
    private Section                       original   = null, mapped = null;
    private final HashMap<String, String> forwardMap = new HashMap<String, String>();
    private final HashMap<String, String> reverseMap = new HashMap<String, String>();
+   private CancellationToken             cancellation = null;
 
 
    /**
@@ -49,14 +53,27 @@ public class Mapper {
    }
 
 
+   /**
+    * Sets the token that is checked before each section is mapped. Default is null, i.e. the mapping cannot be
+    * cancelled.
+    * 
+    * @param token {@link CancellationToken}: the token or null.
+    */
+   public void setCancellationToken(CancellationToken token) {
+      this.cancellation = token;
+   }
+
+
    /**
     * Apply the mapping information and return a converted tree.
     * 
     * @return {@link Section} the converted tree.
+    * @throws CancellationException if the token of this mapper was cancelled.
     */
    public Section map() {
       if (original.getRepository() == null || original.getRepository().toString().isEmpty()) {
-         System.out.println("Cannot perform mapping procedure on section " + original.toString() +
+         Diagnostics.error("Mapper.map", original, "Cannot perform mapping procedure on section "
+                 + original.toString() +
                "! No repository for terminologies specified!");
       }
       try {
@@ -79,8 +96,10 @@ public class Mapper {
          mapped.optimizeTree(); // optimize the tree, i.e. remove empty
          // properties and section that may result
          // from loading terminologies etc.
+      } catch (CancellationException e) {
+         throw e;
       } catch (Exception e) {
-         e.printStackTrace();
+         Diagnostics.error("Mapper.map", null, e.toString(), e);
       }
       // mapped.optimizeTree();
       return mapped;
@@ -105,6 +124,7 @@ public class Mapper {
     * @param section the {@link Section} to fill up.
     */
    private void fillMappings(Section section) {
+      checkCancelled();
       // load the terminology
       Section terminology = TerminologyManager.instance().loadTerminology(section.getRepository(),
             section.getType());
@@ -130,6 +150,13 @@ public class Mapper {
    }
 
 
+   private void checkCancelled() {
+      if (cancellation != null) {
+         cancellation.throwIfCancelled();
+      }
+   }
+
+
    /**
     * Controls the mapping of a {@link Section}.
     * 
@@ -138,6 +165,7 @@ public class Mapper {
     * @throws Exception
     */
    private void mapSection(Section origin, Section mappedParent) throws Exception {
+      checkCancelled();
       Section dest = null; // the destination
       if (origin.getMapping() == null) {// no mapping information could be
          // found just create a copy
@@ -166,7 +194,7 @@ public class Mapper {
                dest.setName(origin.getName());
                dest.setReference(origin.getReference());
             } else {// error, not unique, raise an error
-               System.out.println("\tMapper.mapSection(): cannot uniquely map section: "
+               Diagnostics.error("Mapper.mapSection", origin, "cannot uniquely map section: "
                            + origin.getName()
                            + ". Section skipped! Extend the desired section type to the mapping url as reference (#someType)");
                dest = null;
@@ -197,6 +225,7 @@ public class Mapper {
     * @param sec {@link Section} the section.
     */
    private void mapProperties(Section sec) {
+      checkCancelled();
       // map the Properties of this section
       for (int i = 0; i < sec.propertyCount(); i++) {
          mapProperty(sec.getProperty(i));
@@ -219,9 +248,9 @@ public class Mapper {
       try {
          myCopy = p.copy();
       } catch (IOException e) {
-         e.printStackTrace();
+         Diagnostics.error("Mapper.mapProperty", p, e.toString(), e);
       } catch (ClassNotFoundException e) {
-         e.printStackTrace();
+         Diagnostics.error("Mapper.mapProperty", p, e.toString(), e);
       }
 
       Section parentDest = mapped.getSection(forwardMap.get(p.getParent().getPath()));// find the destination
@@ -235,12 +264,14 @@ public class Mapper {
          String destType = null;
          String mapName = null;
          if (ref == null || ref.isEmpty()) {// mapping has no reference part
-            System.out.println("Property mapping does not containt reference information! Just appending to current section!");
+            Diagnostics.warning("Mapper.mapProperty", p, "Property mapping does not containt reference information! "
+                    + "Just appending to current section!");
             parentDest.add(myCopy);
          } else if (!ref.contains(":")) {// there is a reference part but no
             // section type
             mapName = ref;
-            System.out.println("Property.mapProperty: reference part of mapping does not indicate the type of destination section! Please change!");
+            Diagnostics.warning("Mapper.mapProperty", p, "reference part of mapping does not indicate the type of "
+                    + "destination section! Please change!");
             Section temp = TerminologyManager.instance().loadTerminology(p.getMapping(), null); // load the
             // terminology
 
@@ -248,11 +279,13 @@ public class Mapper {
                myCopy.setName(mapName);
             else
                // otherwise, keep it
-               System.out.println("Property.mapProperty: terminology does not contain a property with the name specidied in the mapping!");
+               Diagnostics.warning("Mapper.mapProperty", p, "terminology does not contain a property with the name "
+                       + "specidied in the mapping!");
 
             if (temp.sectionCount() > 1) {
                // there is more than one section type defined in the terminology --> not unique assignment possible
-               System.out.println("Property.mapProperty: Could not uniquely map the property due to missing section type in reference part of mapping url.");
+               Diagnostics.error("Mapper.mapProperty", p, "Could not uniquely map the property due to missing "
+                       + "section type in reference part of mapping url.");
             } else {// only one type: assuming that this will be the target
                destType = temp.getSection(0).getType();
                if (parentDest.getType().equalsIgnoreCase(destType)) {
@@ -260,17 +293,13 @@ public class Mapper {
                   parentDest.add(myCopy);// add to destination section
                } else if (parentDest.getSectionsByType(destType).size() > 0) {
                   if (parentDest.getSectionsByType(destType).size() > 1)
-                     System.out.println("Cannot uniquely assign property: " + p.getName()
-                           + " in section: "
-                           + p.getParent().getPath());
+                     Diagnostics.error("Mapper.mapProperty", p, "Cannot uniquely assign property: " + p.getName());
                   else {
                      parentDest.getSectionByType(destType).add(myCopy);
                   }
                } else if (parentDest.getParent().getSectionByType(destType) != null) {
                   if (parentDest.getParent().getSectionsByType(destType).size() > 1)
-                     System.out.println("Cannot uniquely assign property: " + p.getName()
-                           + " in section: "
-                           + p.getParent().getPath());
+                     Diagnostics.error("Mapper.mapProperty", p, "Cannot uniquely assign property: " + p.getName());
                   else {// check if there are multiple dependencies,
                      // create subsection and create a link
                      Section destSection = parentDest.getParent().getSectionByType(destType);
@@ -312,7 +341,8 @@ public class Mapper {
             if (termSection.getProperty(mapName) != null)
                myCopy.setName(mapName);
             else
-               System.out.println("Property.mapProperty: terminology does not contain a property with the name specified in the mapping!");
+               Diagnostics.warning("Mapper.mapProperty", p, "terminology does not contain a property with the name "
+                       + "specified in the mapping!");
             // figure out the right destination
             if (parentDest.getType().equalsIgnoreCase(type)) { // if it is
                // the
@@ -324,15 +354,13 @@ public class Mapper {
                parentDest.add(myCopy);
             } else if (parentDest.getSectionsByType(type).size() > 0) {
                if (parentDest.getSectionsByType(type).size() > 1)
-                  System.out.println("Cannot uniquely assign property: " + p.getName() + " in section: "
-                        + p.getParent().getPath());
+                  Diagnostics.error("Mapper.mapProperty", p, "Cannot uniquely assign property: " + p.getName());
                else {
                   parentDest.getSectionByType(type).add(myCopy);
                }
             } else if (parentDest.getParent().getSectionByType(type) != null) {
                if (parentDest.getParent().getSectionsByType(type).size() > 1)
-                  System.out.println("Cannot uniquely assign property: " + p.getName() + " in section: "
-                        + p.getParent().getPath());
+                  Diagnostics.error("Mapper.mapProperty", p, "Cannot uniquely assign property: " + p.getName());
                else {// check if there are unique or multiple dependencies
                   Section destSection = parentDest.getParent().getSectionByType(type);
                   if (destSection.getRelatedSections(parentDest.getType()).size() > 1) {// there are
@@ -351,7 +379,7 @@ public class Mapper {
                   temp.add(myCopy);
                   parentDest.getParent().add(temp);
                } else {
-                  System.out.println("Property.mapProperty: could not find section of type: " + type
+                  Diagnostics.warning("Mapper.mapProperty", p, "could not find section of type: " + type
                         + " in the mapped terminology!");
                }
             }
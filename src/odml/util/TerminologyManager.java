@@ -14,6 +14,7 @@ package odml.util;
  * <a href="http://gnu.org/licenses">http://gnu.org/licenses</a>.
  */
 
+import odml.core.Diagnostics;
 import odml.core.Reader;
 import odml.core.Section;
 
@@ -22,8 +23,6 @@ import java.net.URL;
 import java.util.HashMap;
 import java.util.Properties;
 
-import static java.lang.System.out;
-
 public class TerminologyManager {
 
    private static TerminologyManager      instance           = null;
@@ -64,11 +63,9 @@ public class TerminologyManager {
          localTerminologies = new Properties();
          localTerminologies.load(new FileInputStream(userFile));
       } catch (NullPointerException e) {
-         out.println(e.toString());
-         e.printStackTrace();
+         Diagnostics.error("TerminologyManager", null, e.toString(), e);
       } catch (IOException e) {
-         out.println(e.toString());
-         e.printStackTrace();
+         Diagnostics.error("TerminologyManager", null, e.toString(), e);
       }
       try {
          // user configuration
@@ -83,11 +80,9 @@ public class TerminologyManager {
          redirections = new Properties();
          redirections.load(new FileInputStream(redirectFile));
       } catch (NullPointerException e) {
-         out.println(e.toString());
-         e.printStackTrace();
+         Diagnostics.error("TerminologyManager", null, e.toString(), e);
       } catch (IOException e) {
-         out.println(e.toString());
-         e.printStackTrace();
+         Diagnostics.error("TerminologyManager", null, e.toString(), e);
       }
    }
 
@@ -117,7 +112,7 @@ public class TerminologyManager {
          URL u = new URL(url);
          s = loadTerminology(u, type);
       } catch (Exception e) {
-         System.out.println("invalid url");
+         Diagnostics.error("TerminologyManager.loadTerminology", null, "invalid url");
       }
       return s;
    }
@@ -184,7 +179,7 @@ public class TerminologyManager {
             rep = r.getRootSection();
             urlSectionHash.put(key, rep);
          } catch (Exception e) {
-            e.printStackTrace();
+            Diagnostics.error("TerminologyManager.getRepository", null, e.toString(), e);
          }
       }
       return rep;
@@ -225,9 +220,9 @@ public class TerminologyManager {
          localTerminologies.store(new FileOutputStream(userFile), "");
          redirections.store(new FileOutputStream(redirectFile), "");
       } catch (FileNotFoundException e) {
-         e.printStackTrace();
+         Diagnostics.error("TerminologyManager.store", null, e.toString(), e);
       } catch (IOException e) {
-         e.printStackTrace();
+         Diagnostics.error("TerminologyManager.store", null, e.toString(), e);
       }
    }
 
@@ -242,7 +237,7 @@ public class TerminologyManager {
          try {
             localTerminologies.store(new FileOutputStream(userFile), COMMENT);
          } catch (IOException e) {
-            System.out.println(e.getMessage());
+            Diagnostics.error("TerminologyManager.finalize", null, e.getMessage());
          }
       }
    }
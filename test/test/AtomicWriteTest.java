@@ -0,0 +1,124 @@
+package test;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CancellationException;
+
+import odml.core.CancellationToken;
+import odml.core.Diagnostic;
+import odml.core.DiagnosticListener;
+import odml.core.Diagnostics;
+import odml.core.Progress;
+import odml.core.ProgressListener;
+import odml.core.Reader;
+import odml.core.Section;
+import odml.core.Writer;
+
+/**
+ * Checks the writing of files through a temporary file. A complete write must replace the file, a write that is
+ * cancelled or fails must leave the file unchanged and must not leave the temporary file behind. A failed write
+ * must be reported through {@link Diagnostics} with its cause.
+ *
+ * Usage: AtomicWriteTest
+ */
+public class AtomicWriteTest {
+
+   private static final int SECTIONS = 2000;
+
+
+   public static void main(String[] args) throws Exception {
+      Checks.silence();
+      Path directory = Files.createTempDirectory("write");
+      Path file = directory.resolve("document.xml");
+      Path blocked = directory.resolve("blocked.xml");
+      Section root = new Section();
+      for (int i = 0; i < SECTIONS; i++) {
+         Section section = new Section("Section" + i, "t");
+         section.addProperty("index", i);
+         root.add(section);
+      }
+      try {
+         // a complete write replaces the file
+         byte[] previous = "previous content".getBytes("UTF-8");
+         Files.write(file, previous);
+         Checks.check("written", true, new Writer(root).write(file));
+         Section written = new Reader().load(file, Reader.NO_CONVERSION, false);
+         Checks.check("written sections", SECTIONS, written.sectionCount());
+         Checks.check("files after writing", Arrays.asList("document.xml"), list(directory));
+
+         // a cancelled write leaves the file unchanged
+         Files.write(file, previous);
+         final CancellationToken token = new CancellationToken();
+         Writer writer = new Writer(root);
+         writer.setBufferSize(1024);
+         writer.setCancellationToken(token);
+         writer.setProgressListener(new ProgressListener() {
+            @Override
+            public void progress(Progress progress) {
+               if (progress.getBytes() > 0) {
+                  token.cancel();
+               }
+            }
+         });
+         try {
+            writer.write(file);
+            Checks.check("cancelled write", CancellationException.class.getSimpleName(), "no exception");
+         } catch (CancellationException e) {
+            // expected
+         }
+         Checks.check("file after a cancelled write", previous, Files.readAllBytes(file));
+         Checks.check("files after a cancelled write", Arrays.asList("document.xml"), list(directory));
+
+         // a write whose file cannot be replaced, a directory that is not empty, fails
+         Files.createDirectory(blocked);
+         Files.write(blocked.resolve("content"), previous);
+         final List<Diagnostic> errors = new CopyOnWriteArrayList<Diagnostic>();
+         DiagnosticListener listener = new DiagnosticListener() {
+            @Override
+            public void report(Diagnostic diagnostic) {
+               errors.add(diagnostic);
+            }
+         };
+         Diagnostics.addListener(listener);
+         try {
+            Checks.check("failed write", false, new Writer(root).write(blocked));
+         } finally {
+            Diagnostics.removeListener(listener);
+         }
+         Checks.check("reported failure", "Writer.writeToFile", errors.isEmpty() ? null : errors.get(0).getCode());
+         Checks.check("cause of the failure", true, !errors.isEmpty() && errors.get(0).getCause() != null);
+         Checks.check("blocking directory", previous, Files.readAllBytes(blocked.resolve("content")));
+         Checks.check("files after a failed write", Arrays.asList("blocked.xml", "document.xml"), list(directory));
+      } finally {
+         Files.deleteIfExists(blocked.resolve("content"));
+         try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path path : files) {
+               Files.delete(path);
+            }
+         }
+         Files.delete(directory);
+      }
+      Checks.finish("atomic writes");
+   }
+
+
+   /**
+    * Returns the sorted names of the files in the directory, temporary files included.
+    */
+   private static List<String> list(Path directory) throws Exception {
+      List<String> names = new ArrayList<String>();
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+         for (Path path : files) {
+            names.add(path.getFileName().toString());
+         }
+      }
+      Collections.sort(names);
+      return names;
+   }
+}
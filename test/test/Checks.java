@@ -0,0 +1,63 @@
+package test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Objects;
+
+/**
+ * The assertions shared by the main-runnable checks. A check silences the messages the library prints while it
+ * runs, compares the results with {@link #check(String, Object, Object)} and ends with {@link #finish(String)}, which
+ * reports the number of failed checks and exits with status 1 if there were any.
+ */
+final class Checks {
+
+   private static final PrintStream OUT    = System.out;
+   private static int               failed = 0;
+
+
+   private Checks() {
+   }
+
+
+   /**
+    * Discards everything written to {@link System#out} until {@link #finish(String)} is called.
+    */
+   static void silence() {
+      System.setOut(new PrintStream(new OutputStream() {
+         @Override
+         public void write(int b) {
+         }
+      }));
+   }
+
+
+   /**
+    * Compares the actual with the expected result, arrays are compared by their elements.
+    */
+   static void check(String name, Object expected, Object actual) {
+      if (!Objects.deepEquals(expected, actual)) {
+         fail(expected instanceof byte[] ? name + ": the documents differ"
+               : name + ": expected " + expected + " but got " + actual);
+      }
+   }
+
+
+   static void fail(String message) {
+      System.err.println(message);
+      failed++;
+   }
+
+
+   /**
+    * Restores {@link System#out}, prints the number of failed checks and exits with status 1 if there were any.
+    *
+    * @param what {@link String}: what was checked.
+    */
+   static void finish(String what) {
+      System.setOut(OUT);
+      System.out.println(what + ": " + failed + " checks failed.");
+      if (failed > 0) {
+         System.exit(1);
+      }
+   }
+}
@@ -0,0 +1,135 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import odml.core.BatchLoad;
+import odml.core.LoadResult;
+import odml.core.Reader;
+import odml.core.Section;
+import odml.core.Writer;
+
+/**
+ * Stress test for loading and writing documents on several threads. A document with many date, time and datetime
+ * values is loaded and written again on a single thread and concurrently on a pool. The values must be written as
+ * they were read and all copies must be identical. A batch load of the document, a malformed and a missing file must
+ * explain why the latter two failed.
+ * 
+ * Usage: ConcurrentLoadTest [threads] [rounds]
+ */
+public class ConcurrentLoadTest {
+
+   public static void main(String[] args) throws Exception {
+      int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+      int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+      Checks.silence();
+      List<String> contents = new ArrayList<String>();
+      final byte[] document = createDocument(contents).getBytes("UTF-8");
+
+      byte[] expected = roundTrip(document);
+      String written = new String(expected, "UTF-8");
+      for (String content : contents) {
+         Checks.check("value " + content, true, written.contains("<content>" + content + "</content>"));
+      }
+      List<Callable<byte[]>> tasks = new ArrayList<Callable<byte[]>>();
+      for (int i = 0; i < rounds; i++) {
+         tasks.add(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+               return roundTrip(document);
+            }
+         });
+      }
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      try {
+         int round = 0;
+         for (Future<byte[]> result : pool.invokeAll(tasks)) {
+            Checks.check("round trip " + round++, expected, result.get());
+         }
+         batch(document, pool);
+      } finally {
+         pool.shutdown();
+      }
+      Checks.finish(rounds + " round trips on " + threads + " threads");
+   }
+
+
+   private static void batch(byte[] document, ExecutorService pool) throws Exception {
+      Path directory = Files.createTempDirectory("batch");
+      Path valid = Files.write(directory.resolve("valid.xml"), document);
+      Path malformed = Files.write(directory.resolve("malformed.xml"), "<odML><section>".getBytes("UTF-8"));
+      Path missing = directory.resolve("missing.xml");
+      try {
+         BatchLoad batch = Reader.loadAll(Arrays.asList(valid, malformed, missing), pool);
+         while (batch.hasNext()) {
+            LoadResult result = batch.next();
+            String name = "batch " + result.getFile().getFileName();
+            Checks.check(name + " loaded", result.getFile() == valid, result.isSuccessful());
+            Checks.check(name + " report", true, result.getReport() != null);
+            if (result.getFile() == valid) {
+               Checks.check(name + " errors", false, result.getReport().hasErrors());
+            } else {
+               Checks.check(name + " cause", true, result.getError().getCause() != null);
+            }
+            if (result.getFile() == missing) {
+               Checks.check(name + " missing", true, result.getError().getCause() instanceof NoSuchFileException);
+            }
+         }
+      } finally {
+         Files.delete(valid);
+         Files.delete(malformed);
+         Files.delete(directory);
+      }
+   }
+
+
+   private static String createDocument(List<String> contents) {
+      StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<odML version=\"1\">\n");
+      xml.append("  <date>2011-03-04</date>\n");
+      for (int i = 0; i < 20; i++) {
+         xml.append("  <section>\n    <type>recording</type>\n    <name>Recording").append(i).append("</name>\n");
+         for (int j = 0; j < 25; j++) {
+            String day = String.format("20%02d-%02d-%02d", j % 30, j % 12 + 1, j % 28 + 1);
+            String time = String.format("%02d:%02d:%02d", j % 24, (j * 7) % 60, (j * 13) % 60);
+            appendProperty(xml, "date" + j, day, "date");
+            appendProperty(xml, "time" + j, time, "time");
+            appendProperty(xml, "datetime" + j, day + " " + time, "datetime");
+            contents.add(day);
+            contents.add(time);
+            contents.add(day + " " + time);
+         }
+         xml.append("  </section>\n");
+      }
+      return xml.append("</odML>\n").toString();
+   }
+
+
+   private static void appendProperty(StringBuilder xml, String name, String content, String type) {
+      xml.append("    <property>\n      <name>").append(name).append("</name>\n");
+      xml.append("      <value>").append(content).append("<type>").append(type).append("</type></value>\n");
+      xml.append("    </property>\n");
+   }
+
+
+   private static byte[] roundTrip(byte[] document) throws Exception {
+      Section root = new Reader().load(new ByteArrayInputStream(document), false);
+      return serialize(root);
+   }
+
+
+   private static byte[] serialize(Section root) {
+      ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      new Writer(root).write(stream);
+      return stream.toByteArray();
+   }
+}
@@ -0,0 +1,109 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import odml.core.OdmlEventReader;
+import odml.core.Reader;
+import odml.core.Section;
+
+/**
+ * Checks the partial loading of documents by section paths and types. Selected sections must be loaded with their
+ * properties and whole subtree, their ancestors without properties, and all other sections must be skipped. The
+ * {@link OdmlEventReader} must issue the same sections as the {@link Reader} builds.
+ *
+ * Usage: FilterTest
+ */
+public class FilterTest {
+
+   public static void main(String[] args) throws Exception {
+      Checks.silence();
+      byte[] document = createDocument().getBytes("UTF-8");
+
+      checkFilter("path", document, new String[] { "/Recording/Stimulus" }, null,
+            "/Recording:0", "/Recording/Stimulus:2", "/Recording/Stimulus/Pulse:1");
+      checkFilter("path case", document, new String[] { "/recording/stimulus/" }, null,
+            "/Recording:0", "/Recording/Stimulus:2", "/Recording/Stimulus/Pulse:1");
+      checkFilter("type", document, null, new String[] { "stimulus" },
+            "/Recording:0", "/Recording/Stimulus:2", "/Recording/Stimulus/Pulse:1", "/Sine:1");
+      checkFilter("path and type", document, new String[] { "/Recording/Cell" }, new String[] { "stimulus" },
+            "/Recording:0", "/Recording/Stimulus:2", "/Recording/Stimulus/Pulse:1", "/Recording/Cell:1", "/Sine:1");
+      checkFilter("nothing", document, new String[] { "/Missing" }, null);
+      checkFilter("unfiltered", document, null, null,
+            "/Recording:1", "/Recording/Stimulus:2", "/Recording/Stimulus/Pulse:1", "/Recording/Cell:1", "/Sine:1",
+            "/Other:1");
+      Checks.finish("filtered loads");
+   }
+
+
+   private static String createDocument() {
+      StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<odML version=\"1\">\n");
+      xml.append("<section><type>recording</type><name>Recording</name>").append(property("date"));
+      xml.append("<section><type>stimulus</type><name>Stimulus</name>").append(property("amplitude"));
+      xml.append(property("duration"));
+      xml.append("<section><type>pulse</type><name>Pulse</name>").append(property("width")).append("</section>");
+      xml.append("</section>");
+      xml.append("<section><type>cell</type><name>Cell</name>").append(property("type")).append("</section>");
+      xml.append("</section>");
+      xml.append("<section><type>stimulus/sine</type><name>Sine</name>").append(property("frequency"));
+      xml.append("</section>");
+      xml.append("<section><type>other</type><name>Other</name>").append(property("comment")).append("</section>");
+      return xml.append("</odML>\n").toString();
+   }
+
+
+   private static String property(String name) {
+      return "<property><name>" + name + "</name><value>1<type>int</type></value></property>";
+   }
+
+
+   /**
+    * Compares the sections of the loaded tree, given as path:number of properties in document order, with the
+    * expected ones and with the events of an {@link OdmlEventReader} using the same filter.
+    */
+   private static void checkFilter(String name, byte[] document, String[] paths, String[] types, String... expected)
+         throws Exception {
+      Reader reader = new Reader();
+      reader.setSectionFilter(paths, types);
+      Section root = reader.load(new ByteArrayInputStream(document), Reader.NO_CONVERSION, false);
+      List<String> sections = new ArrayList<String>();
+      collect(root, sections);
+      if (!sections.equals(Arrays.asList(expected))) {
+         Checks.fail(name + ": expected " + Arrays.asList(expected) + " but loaded " + sections);
+      }
+      List<String> events = new ArrayList<String>();
+      OdmlEventReader eventReader = new OdmlEventReader(new ByteArrayInputStream(document));
+      eventReader.setSectionFilter(paths, types);
+      int properties = 0;
+      while (eventReader.hasNext()) {
+         int event = eventReader.next();
+         if (event == OdmlEventReader.SECTION_START) {
+            events.add(eventReader.getPath());
+         } else if (event == OdmlEventReader.PROPERTY) {
+            properties++;
+         }
+      }
+      eventReader.close();
+      List<String> loaded = new ArrayList<String>();
+      int loadedProperties = 0;
+      for (String section : sections) {
+         loaded.add(section.substring(0, section.lastIndexOf(':')));
+         loadedProperties += Integer.parseInt(section.substring(section.lastIndexOf(':') + 1));
+      }
+      if (!events.equals(loaded) || properties != loadedProperties) {
+         Checks.fail(name + ": events " + events + " with " + properties + " properties differ from "
+               + sections);
+      }
+   }
+
+
+   private static void collect(Section section, List<String> sections) {
+      for (int i = 0; i < section.sectionCount(); i++) {
+         Section subsection = section.getSection(i);
+         sections.add(subsection.getPath() + ":" + subsection.propertyCount());
+         collect(subsection, sections);
+      }
+   }
+}
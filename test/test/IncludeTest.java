@@ -0,0 +1,232 @@
+package test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import odml.core.CancellationToken;
+import odml.core.Diagnostic;
+import odml.core.DiagnosticListener;
+import odml.core.Diagnostics;
+import odml.core.Progress;
+import odml.core.ProgressListener;
+import odml.core.Reader;
+import odml.core.Section;
+
+/**
+ * Checks the loading of included files. Sections including several files must get the content of the included
+ * sections, the files must be prefetched on the executor of the reader and prefetching must have ended when the
+ * load returns, also when it is cancelled. A cancelled load must not report errors for its includes. Includes that
+ * include each other must not be followed endlessly.
+ *
+ * Usage: IncludeTest
+ */
+public class IncludeTest {
+
+   public static void main(String[] args) throws Exception {
+      Checks.silence();
+      Path directory = Files.createTempDirectory("include");
+      ExecutorService pool = Executors.newFixedThreadPool(4);
+      try {
+         for (String part : new String[] { "b", "c", "d" }) {
+            write(directory, part + ".xml", section("part", "Part", null, part));
+         }
+         write(directory, "main.xml", section("part", "S1", "b.xml#/Part", null)
+               + section("part", "S2", "c.xml#/Part", null) + section("part", "S3", "d.xml#/Part", null)
+               + section("part", "S4", "b.xml#/Part", null));
+         write(directory, "x.xml", section("loop", "X", "y.xml#/Y", "x"));
+         write(directory, "y.xml", section("loop", "Y", "x.xml#/X", "y"));
+
+         // included content, prefetched on the executor of the reader
+         CountingExecutor executor = new CountingExecutor(pool, null);
+         Reader reader = new Reader();
+         reader.setIncludeExecutor(executor);
+         Section root = reader.load(directory.resolve("main.xml"), Reader.LOAD_AND_RESOLVE, false);
+         String[] expected = { "b", "c", "d", "b" };
+         for (int i = 0; i < expected.length; i++) {
+            Section section = root.getSection("S" + (i + 1));
+            Checks.check("content of S" + (i + 1), expected[i], section == null || section.getProperty("from") == null
+                  ? null : section.getProperty("from").getValue());
+         }
+         Checks.check("prefetched files", 3, executor.executed.get());
+         Checks.check("prefetches running after the load", 0, executor.active.get());
+
+         // the own pool of a load without executor
+         root = new Reader().load(directory.resolve("main.xml"), Reader.LOAD_AND_RESOLVE, false);
+         Checks.check("content without executor", "d", root.getSection("S3").getProperty("from").getValue());
+
+         // cancelled while prefetching
+         CancellationToken token = new CancellationToken();
+         executor = new CountingExecutor(pool, token);
+         reader = new Reader();
+         reader.setIncludeExecutor(executor);
+         reader.setCancellationToken(token);
+         cancelledLoad("cancelled while prefetching", reader, directory.resolve("main.xml"));
+         Checks.check("prefetches running after the cancelled load", 0, executor.active.get());
+
+         // cancelled while an include is read
+         StringBuilder parts = new StringBuilder();
+         for (int i = 0; i < 50000; i++) {
+            parts.append(section("part", "Part" + i, null, String.valueOf(i)));
+         }
+         write(directory, "large.xml", parts.toString());
+         write(directory, "including.xml", section("part", "Part0", "large.xml#/Part0", null));
+         final CancellationToken delayed = new CancellationToken();
+         reader = new Reader();
+         reader.setCancellationToken(delayed);
+         reader.setProgressListener(new ProgressListener() {
+            private boolean started = false;
+
+
+            @Override
+            public void progress(Progress progress) {
+               if (progress.getPhase() == Progress.Phase.INCLUDES && !started) {
+                  started = true;
+                  cancelLater(delayed);
+               }
+            }
+         });
+         cancelledLoad("cancelled while reading an include", reader, directory.resolve("including.xml"));
+
+         // include cycle
+         final Section loop = new Reader().load(directory.resolve("x.xml"), Reader.NO_CONVERSION, false);
+         Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+               loop.loadAllIncludes();
+            }
+         });
+         thread.setDaemon(true);
+         thread.start();
+         thread.join(10000);
+         Checks.check("include cycle ends", false, thread.isAlive());
+         if (!thread.isAlive()) {
+            // the own property overrides the included one
+            Checks.check("include cycle content", "x", loop.getSection("X").getProperty("from").getValue());
+            Checks.check("include cycle resolved", null, loop.getSection("X").getInclude());
+         }
+      } finally {
+         pool.shutdown();
+         for (String file : new String[] { "b", "c", "d", "main", "x", "y", "large", "including" }) {
+            Files.deleteIfExists(directory.resolve(file + ".xml"));
+         }
+         Files.delete(directory);
+      }
+      Checks.finish("includes");
+   }
+
+
+   /**
+    * Loads a file with a reader whose token is cancelled during the load. The load must stop with a
+    * {@link CancellationException} and the cancellation must not be reported as an error.
+    */
+   private static void cancelledLoad(String name, Reader reader, Path file) throws Exception {
+      final List<String> errors = new CopyOnWriteArrayList<String>();
+      DiagnosticListener listener = new DiagnosticListener() {
+         @Override
+         public void report(Diagnostic diagnostic) {
+            if (diagnostic.getSeverity() == Diagnostic.Severity.ERROR) {
+               errors.add(diagnostic.getCode());
+            }
+         }
+      };
+      Diagnostics.addListener(listener);
+      try {
+         reader.load(file, Reader.LOAD_AND_RESOLVE, false);
+         Checks.check(name, CancellationException.class.getSimpleName(), "no exception");
+      } catch (CancellationException e) {
+         // expected
+      } finally {
+         Diagnostics.removeListener(listener);
+      }
+      Checks.check(name + " errors", "[]", errors.toString());
+   }
+
+
+   /**
+    * Cancels the token shortly after, while the load goes on.
+    */
+   private static void cancelLater(final CancellationToken token) {
+      Thread thread = new Thread(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               Thread.sleep(20);
+            } catch (InterruptedException e) {
+               // cancel right away
+            }
+            token.cancel();
+         }
+      });
+      thread.setDaemon(true);
+      thread.start();
+   }
+
+
+   /**
+    * Returns a section element, the property "from" is only written if a value is given.
+    */
+   private static String section(String type, String name, String include, String from) {
+      StringBuilder xml = new StringBuilder("  <section>\n    <type>").append(type).append("</type>\n    <name>");
+      xml.append(name).append("</name>\n");
+      if (include != null) {
+         xml.append("    <include>").append(include).append("</include>\n");
+      }
+      if (from != null) {
+         xml.append("    <property>\n      <name>from</name>\n      <value>").append(from);
+         xml.append("<type>string</type></value>\n    </property>\n");
+      }
+      return xml.append("  </section>\n").toString();
+   }
+
+
+   private static void write(Path directory, String name, String sections) throws Exception {
+      String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<odML version=\"1\">\n" + sections + "</odML>\n";
+      Files.write(directory.resolve(name), xml.getBytes("UTF-8"));
+   }
+
+
+
+   /**
+    * Counts the tasks it runs and those running at the moment. If a token is given it is cancelled with the first
+    * task.
+    */
+   private static class CountingExecutor implements Executor {
+
+      private final Executor          executor;
+      private final CancellationToken token;
+      private final AtomicInteger     executed = new AtomicInteger(), active = new AtomicInteger();
+
+
+      private CountingExecutor(Executor executor, CancellationToken token) {
+         this.executor = executor;
+         this.token = token;
+      }
+
+
+      @Override
+      public void execute(final Runnable task) {
+         if (token != null) {
+            token.cancel();
+         }
+         executor.execute(new Runnable() {
+            @Override
+            public void run() {
+               active.incrementAndGet();
+               try {
+                  executed.incrementAndGet();
+                  task.run();
+               } finally {
+                  active.decrementAndGet();
+               }
+            }
+         });
+      }
+   }
+}
@@ -0,0 +1,77 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import odml.core.JsonReader;
+import odml.core.JsonWriter;
+import odml.core.Reader;
+import odml.core.Section;
+import odml.core.Writer;
+
+/**
+ * Checks that a tree written by the {@link JsonWriter} is read back by the {@link JsonReader} into an identical tree,
+ * i.e. one that gives the same XML and JSON documents, in the indented and in the compact format. The document has
+ * nested sections and values of several types with text that needs escaping.
+ *
+ * Usage: JsonTest
+ */
+public class JsonTest {
+
+   public static void main(String[] args) throws Exception {
+      Checks.silence();
+      Section tree = new Reader().load(new ByteArrayInputStream(createDocument().getBytes("UTF-8")),
+            Reader.NO_CONVERSION, false);
+      byte[] xml = serialize(tree);
+      for (boolean compact : new boolean[] { false, true }) {
+         String format = compact ? "compact" : "indented";
+         byte[] json = json(tree, compact);
+         Section read = new JsonReader().load(new ByteArrayInputStream(json));
+         Checks.check(format + " tree", xml, read == null ? null : serialize(read));
+         Checks.check(format + " document", json, read == null ? null : json(read, compact));
+      }
+      Checks.finish("json round trips");
+   }
+
+
+   private static String createDocument() {
+      StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<odML version=\"1\">\n");
+      xml.append("  <author>A &amp; B \"quoted\"</author>\n  <date>2011-03-04</date>\n  <version>1.2</version>\n");
+      xml.append("  <section>\n    <type>recording</type>\n    <name>Recording</name>\n");
+      xml.append("    <definition>tab\tbackslash \\ unicode \u00e9\u4e2d \ud83d\ude00</definition>\n");
+      xml.append("    <reference>ref</reference>\n");
+      appendProperty(xml, "count", "<value>42<type>int</type><unit>n</unit></value>");
+      appendProperty(xml, "gain", "<value>0.25<type>float</type><uncertainty>0.01</uncertainty>"
+            + "<definition>a gain</definition></value><value>-1.5e3<type>float</type></value>");
+      appendProperty(xml, "day", "<value>2011-03-04<type>date</type></value>");
+      appendProperty(xml, "text", "<value>&lt;line&gt;\nnext &amp; \"more\"<type>string</type></value>");
+      xml.append("    <section>\n      <type>cell</type>\n      <name>Cell</name>\n");
+      appendProperty(xml, "alive", "<value>true<type>boolean</type></value>");
+      xml.append("    </section>\n  </section>\n");
+      xml.append("  <section>\n    <type>recording</type>\n    <name>Link</name>\n    <link>/Recording</link>\n");
+      xml.append("  </section>\n");
+      return xml.append("</odML>\n").toString();
+   }
+
+
+   private static void appendProperty(StringBuilder xml, String name, String values) {
+      xml.append("    <property>\n      <name>").append(name).append("</name>\n      ").append(values);
+      xml.append("\n      <definition>property ").append(name).append("</definition>\n    </property>\n");
+   }
+
+
+   private static byte[] serialize(Section root) {
+      ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      new Writer(root).write(stream);
+      return stream.toByteArray();
+   }
+
+
+   private static byte[] json(Section root, boolean compact) {
+      ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      JsonWriter writer = new JsonWriter(root);
+      writer.setCompact(compact);
+      writer.write(stream);
+      return stream.toByteArray();
+   }
+}
@@ -0,0 +1,127 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import odml.core.Reader;
+import odml.core.Section;
+import odml.core.Writer;
+
+/**
+ * Checks the lazy loading of documents. A document with nested sections, late fields, i.e. fields that follow the
+ * first property, and escaped text is loaded completely and lazily, from a file and from a stream. Sections that
+ * are accessed directly and the whole materialized tree must equal the completely loaded ones, also when the
+ * sections are materialized concurrently. Documents whose links are resolved must be loaded completely.
+ *
+ * Usage: LazyLoadTest
+ */
+public class LazyLoadTest {
+
+   private static final int SECTIONS = 40;
+
+
+   public static void main(String[] args) throws Exception {
+      Checks.silence();
+      byte[] document = createDocument().getBytes("UTF-8");
+      Path file = Files.createTempFile("lazy", ".xml");
+      try {
+         Files.write(file, document);
+         Section eager = new Reader().load(new ByteArrayInputStream(document), Reader.NO_CONVERSION, false);
+         byte[] expected = serialize(eager);
+
+         Section lazy = lazyReader().load(file, Reader.NO_CONVERSION, false);
+         String path = "/Recording" + (SECTIONS - 3) + "/Cell/Channel";
+         Checks.check("direct access", serialize(eager.getSection(path)), serialize(lazy.getSection(path)));
+         Checks.check("late field", eager.getSection(path).getDefinition(), lazy.getSection(path).getDefinition());
+         Checks.check("file", expected, serialize(lazy));
+         Checks.check("stream", expected, serialize(lazyReader().load(new ByteArrayInputStream(document),
+               Reader.NO_CONVERSION, false)));
+
+         final Section shared = lazyReader().load(file, Reader.NO_CONVERSION, false);
+         List<Callable<byte[]>> tasks = new ArrayList<Callable<byte[]>>();
+         for (int i = 0; i < SECTIONS; i++) {
+            final int index = i;
+            tasks.add(new Callable<byte[]>() {
+               @Override
+               public byte[] call() throws Exception {
+                  return serialize(shared.getSection("/Recording" + index));
+               }
+            });
+         }
+         ExecutorService pool = Executors.newFixedThreadPool(8);
+         try {
+            List<Future<byte[]>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < SECTIONS; i++) {
+               Checks.check("concurrent " + i, serialize(eager.getSection("/Recording" + i)), results.get(i).get());
+            }
+         } finally {
+            pool.shutdown();
+         }
+         Checks.check("concurrent tree", expected, serialize(shared));
+
+         // documents whose links are resolved are loaded completely
+         StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<odML version=\"1\">\n");
+         xml.append("  <section>\n    <type>t</type>\n    <name>A</name>\n    <link>/B</link>\n  </section>\n");
+         xml.append("  <section>\n    <type>t</type>\n    <name>B</name>\n");
+         appendProperty(xml, "gain", "2", "int");
+         xml.append("  </section>\n  <section>\n    <type>t</type>\n    <name>C</name>\n");
+         xml.append("    <link>/Missing</link>\n  </section>\n</odML>\n");
+         byte[] linked = xml.toString().getBytes("UTF-8");
+         Section resolved = lazyReader().load(new ByteArrayInputStream(linked), Reader.LOAD_AND_RESOLVE, false);
+         Checks.check("resolved link", 2, resolved.getSection("A").getProperty("gain") == null ? null
+               : resolved.getSection("A").getProperty("gain").getValue());
+         Checks.check("resolved", serialize(new Reader().load(new ByteArrayInputStream(linked),
+               Reader.LOAD_AND_RESOLVE, false)), serialize(resolved));
+      } finally {
+         Files.delete(file);
+      }
+      Checks.finish("lazy loads");
+   }
+
+
+   private static Reader lazyReader() {
+      Reader reader = new Reader();
+      reader.setLazy(true);
+      return reader;
+   }
+
+
+   private static String createDocument() {
+      StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<odML version=\"1\">\n");
+      xml.append("  <author>A &amp; B</author>\n  <date>2011-03-04</date>\n");
+      for (int i = 0; i < SECTIONS; i++) {
+         xml.append("  <section>\n    <type>recording</type>\n    <name>Recording").append(i).append("</name>\n");
+         appendProperty(xml, "comment", "&lt;first&gt; &amp; <![CDATA[<second>]]>", "string");
+         xml.append("    <definition>defined after the first property</definition>\n");
+         xml.append("    <section>\n      <type>cell</type>\n      <name>Cell</name>\n");
+         appendProperty(xml, "potential", String.valueOf(-70 + i), "int");
+         xml.append("      <section>\n        <type>channel</type>\n        <name>Channel</name>\n");
+         appendProperty(xml, "gain", String.valueOf(0.5 * i), "float");
+         xml.append("        <!-- a comment -->\n        <definition>channel ").append(i).append("</definition>\n");
+         xml.append("      </section>\n    </section>\n  </section>\n");
+      }
+      return xml.append("</odML>\n").toString();
+   }
+
+
+   private static void appendProperty(StringBuilder xml, String name, String content, String type) {
+      xml.append("    <property>\n      <name>").append(name).append("</name>\n");
+      xml.append("      <value>").append(content).append("<type>").append(type).append("</type></value>\n");
+      xml.append("    </property>\n");
+   }
+
+
+   private static byte[] serialize(Section section) {
+      ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      new Writer(section).write(stream);
+      return stream.toByteArray();
+   }
+}
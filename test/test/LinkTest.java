@@ -0,0 +1,81 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+
+import odml.core.Reader;
+import odml.core.Section;
+
+/**
+ * Checks the resolution of links. Links to existing sections of the same type must be kept and resolved, also when
+ * the path differs in case, links to missing sections or to sections of another type must be removed when the
+ * document is loaded, and sections that link each other must not be followed endlessly.
+ *
+ * Usage: LinkTest
+ */
+public class LinkTest {
+
+   public static void main(String[] args) throws Exception {
+      Checks.silence();
+      String document = section("t", "A", "/b", null) + section("t", "B", null, "b")
+            + section("t", "C", "/Missing", null) + section("other", "D", "/B", null);
+      Section root = load(document, Reader.LOAD_AND_RESOLVE);
+      Checks.check("link kept", "/b", root.getSection("A").getLink());
+      Checks.check("link resolved", "b", value(root.getSection("A"), "b"));
+      Checks.check("missing target removed", null, root.getSection("C").getLink());
+      Checks.check("other type removed", null, root.getSection("D").getLink());
+      Checks.check("other type not resolved", null, value(root.getSection("D"), "b"));
+
+      // a single link
+      root = load(document, Reader.NO_CONVERSION);
+      Checks.check("single link resolved", true, root.getSection("A").resolveLink());
+      Checks.check("single link content", "b", value(root.getSection("A"), "b"));
+      Checks.check("single missing link", false, root.getSection("C").resolveLink());
+
+      // sections linking each other
+      final Section loop = load(section("t", "X", "/Y", "x") + section("t", "Y", "/X", "y"), Reader.NO_CONVERSION);
+      Thread thread = new Thread(new Runnable() {
+         @Override
+         public void run() {
+            loop.resolveAllLinks();
+         }
+      });
+      thread.setDaemon(true);
+      thread.start();
+      thread.join(10000);
+      Checks.check("link cycle ends", false, thread.isAlive());
+      if (!thread.isAlive()) {
+         Checks.check("link cycle content of X", "y", value(loop.getSection("X"), "y"));
+         Checks.check("link cycle content of Y", "x", value(loop.getSection("Y"), "x"));
+      }
+      Checks.finish("links");
+   }
+
+
+   private static Section load(String sections, int option) throws Exception {
+      String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<odML version=\"1\">\n" + sections + "</odML>\n";
+      return new Reader().load(new ByteArrayInputStream(xml.getBytes("UTF-8")), option, false);
+   }
+
+
+   /**
+    * Returns a section element, the property named like the value is only written if a value is given.
+    */
+   private static String section(String type, String name, String link, String value) {
+      StringBuilder xml = new StringBuilder("  <section>\n    <type>").append(type).append("</type>\n    <name>");
+      xml.append(name).append("</name>\n");
+      if (link != null) {
+         xml.append("    <link>").append(link).append("</link>\n");
+      }
+      if (value != null) {
+         xml.append("    <property>\n      <name>").append(value).append("</name>\n      <value>").append(value);
+         xml.append("<type>string</type></value>\n    </property>\n");
+      }
+      return xml.append("  </section>\n").toString();
+   }
+
+
+   private static Object value(Section section, String property) {
+      return section == null || section.getProperty(property) == null ? null
+            : section.getProperty(property).getValue();
+   }
+}
@@ -0,0 +1,76 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import odml.core.OdmlEventReader;
+import odml.core.Reader;
+import odml.core.Section;
+import odml.core.Writer;
+
+/**
+ * Checks the streaming load. A document whose sections have their fields in any order, e.g. the type after the
+ * first property or subsection, must give the same tree when it is loaded via DOM, streamed and parsed in parallel,
+ * and the {@link OdmlEventReader} must issue the sections with their complete paths.
+ *
+ * Usage: StreamLoadTest
+ */
+public class StreamLoadTest {
+
+   public static void main(String[] args) throws Exception {
+      Checks.silence();
+      byte[] document = createDocument().getBytes("UTF-8");
+      byte[] expected = serialize(new Reader().load(new ByteArrayInputStream(document), Reader.NO_CONVERSION,
+            false));
+      Reader streaming = new Reader();
+      streaming.setStreaming(true);
+      Checks.check("streamed", expected, serialize(streaming.load(new ByteArrayInputStream(document),
+            Reader.NO_CONVERSION, false)));
+      Reader parallel = new Reader();
+      parallel.setParallel(ForkJoinPool.commonPool());
+      Checks.check("parallel", expected, serialize(parallel.load(new ByteArrayInputStream(document),
+            Reader.NO_CONVERSION, false)));
+
+      List<String> paths = new ArrayList<String>();
+      OdmlEventReader events = new OdmlEventReader(new ByteArrayInputStream(document));
+      while (events.hasNext()) {
+         if (events.next() == OdmlEventReader.SECTION_START) {
+            paths.add(events.getPath() + ":" + events.getSection().getType());
+         }
+      }
+      events.close();
+      Checks.check("events", "[/Recording:recording, /Recording/Cell:cell, /Recording/Cell/Channel:channel, "
+            + "/Stimulus:stimulus]", paths.toString());
+      Checks.finish("streamed loads");
+   }
+
+
+   private static String createDocument() {
+      StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<odML version=\"1\">\n");
+      xml.append("<section><name>Recording</name>").append(property("date"));
+      xml.append("<section>").append(property("potential"));
+      xml.append("<section><name>Channel</name><type>channel</type>").append(property("gain"));
+      xml.append("<definition>late</definition></section>");
+      xml.append("<type>cell</type><name>Cell</name></section>");
+      xml.append("<type>recording</type></section>");
+      xml.append("<section><name>Untyped</name>").append(property("lost")).append("</section>");
+      xml.append("<section><type>stimulus</type><name>Stimulus</name>").append(property("amplitude"));
+      xml.append("</section>");
+      return xml.append("</odML>\n").toString();
+   }
+
+
+   private static String property(String name) {
+      return "<property><name>" + name + "</name><value>1<type>int</type></value></property>";
+   }
+
+
+   private static byte[] serialize(Section root) {
+      ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      new Writer(root).write(stream);
+      return stream.toByteArray();
+   }
+}
@@ -0,0 +1,131 @@
+package test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import odml.core.Reader;
+import odml.core.Section;
+import odml.core.SectionChange;
+import odml.core.SectionChangeListener;
+import odml.core.Watcher;
+
+/**
+ * Checks the {@link Watcher}. When a watched file changes its tree must be patched in place: unchanged sections are
+ * kept, and the listeners are told which sections were added, removed or modified. A change of the file while it is
+ * loaded by {@link Watcher#watch(Path)} must lead to a reload.
+ *
+ * Usage: WatcherTest
+ */
+public class WatcherTest {
+
+   public static void main(String[] args) throws Exception {
+      Checks.silence();
+      Path directory = Files.createTempDirectory("watch");
+      final Path file = directory.resolve("watched.xml");
+      Path changing = directory.resolve("changing.xml");
+      final String changed = section("A", "p", "1") + section("B", "q", "2") + section("D", "r", "1");
+      try {
+         // a changed file is patched
+         write(file, section("A", "p", "1") + section("B", "q", "1") + section("C", "r", "1"));
+         Watcher watcher = new Watcher(new Reader(), Reader.NO_CONVERSION, 50, TimeUnit.MILLISECONDS);
+         Recorder recorder = new Recorder();
+         try {
+            watcher.addListener(recorder);
+            Section root = watcher.watch(file);
+            Section a = root.getSection("A"), b = root.getSection("B");
+            watcher.start();
+            write(file, changed);
+            Checks.check("patched", true, recorder.latch.await(10, TimeUnit.SECONDS));
+            Checks.check("changes", "[MODIFIED /B, ADDED /D, REMOVED /C]", recorder.changes.toString());
+            Checks.check("root kept", root, watcher.getRootSection(file));
+            Checks.check("unchanged section kept", a, root.getSection("A"));
+            Checks.check("modified section kept", b, root.getSection("B"));
+            Checks.check("modified content", 2, root.getSection("B").getProperty("q").getValue());
+            Checks.check("removed section", null, root.getSection("C"));
+            Checks.check("added content", 1, root.getSection("D") == null ? null
+                  : root.getSection("D").getProperty("r").getValue());
+         } finally {
+            watcher.close();
+         }
+
+         // the file changes while it is loaded by watch
+         write(changing, section("A", "p", "1"));
+         final Path target = changing;
+         Reader reader = new Reader() {
+            private boolean first = true;
+
+
+            @Override
+            public Section load(Path path, int option, boolean validate) throws Exception {
+               Section root = super.load(path, option, validate);
+               if (first) {
+                  first = false;
+                  write(target, changed);
+                  // the watcher sees the change before watch returns
+                  Thread.sleep(500);
+               }
+               return root;
+            }
+         };
+         watcher = new Watcher(reader, Reader.NO_CONVERSION, 50, TimeUnit.MILLISECONDS);
+         recorder = new Recorder();
+         try {
+            watcher.addListener(recorder);
+            watcher.start();
+            Section root = watcher.watch(changing);
+            Checks.check("reloaded after a change while loading", true, recorder.latch.await(10, TimeUnit.SECONDS));
+            Checks.check("content after a change while loading", 2, root.getSection("B") == null ? null
+                  : root.getSection("B").getProperty("q").getValue());
+         } finally {
+            watcher.close();
+         }
+      } finally {
+         Files.deleteIfExists(file);
+         Files.deleteIfExists(changing);
+         Files.delete(directory);
+      }
+      Checks.finish("watcher");
+   }
+
+
+   /**
+    * Returns a section element with a property that maps to a host that cannot be resolved.
+    */
+   private static String section(String name, String property, String value) {
+      return "  <section>\n    <type>t</type>\n    <name>" + name + "</name>\n    <property>\n      <name>" + property
+            + "</name>\n      <value>" + value + "<type>int</type></value>\n"
+            + "      <mapping>http://unknown.invalid/terminology.xml</mapping>\n    </property>\n  </section>\n";
+   }
+
+
+   private static void write(Path file, String sections) throws Exception {
+      String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<odML version=\"1\">\n" + sections + "</odML>\n";
+      Files.write(file, xml.getBytes("UTF-8"));
+   }
+
+
+
+   /**
+    * Records the changes of the first notification.
+    */
+   private static class Recorder implements SectionChangeListener {
+
+      private final CountDownLatch latch   = new CountDownLatch(1);
+      private final List<String>   changes = new ArrayList<String>();
+
+
+      @Override
+      public void sectionsChanged(Path file, Section root, List<SectionChange> changes) {
+         if (latch.getCount() > 0) {
+            for (SectionChange change : changes) {
+               this.changes.add(change.getKind() + " " + change.getPath());
+            }
+            latch.countDown();
+         }
+      }
+   }
+}
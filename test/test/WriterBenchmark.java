@@ -0,0 +1,97 @@
+package test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ForkJoinPool;
+
+import odml.core.Property;
+import odml.core.Section;
+import odml.core.Writer;
+
+/**
+ * Measures the serialization throughput of the {@link Writer}. A tree with the given number of sections, each with
+ * 50 properties of 10 values, i.e. about one million values by default, is written repeatedly to a stream that
+ * discards the bytes. The time of each round and the throughput of the fastest round are reported. If a number
+ * of threads greater than 0 is given, the top-level sections are serialized in parallel on a pool of that size. In
+ * incremental mode the serializations of unmodified sections are reused and one value is changed before each
+ * round but the first, as an editor would do between saves.
+ *
+ * Usage: WriterBenchmark [sections] [rounds] [threads] [incremental]
+ */
+public class WriterBenchmark {
+
+   private static final int PROPERTIES = 50, VALUES = 10;
+
+
+   public static void main(String[] args) throws Exception {
+      int sections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+      int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+      int threads = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+      ForkJoinPool pool = threads > 0 ? new ForkJoinPool(threads) : null;
+      boolean incremental = args.length > 3 && Boolean.parseBoolean(args[3]);
+      PrintStream out = System.out;
+      System.setOut(new PrintStream(new OutputStream() {
+         @Override
+         public void write(int b) {
+         }
+      }));
+      Section root = createTree(sections);
+      long values = (long) sections * PROPERTIES * VALUES, best = Long.MAX_VALUE, bytes = 0;
+      for (int i = 0; i < rounds; i++) {
+         if (incremental && i > 0) {
+            root.getSection(i % sections).getProperty(0).setValueAt(0.25 * i, 0);
+         }
+         CountingStream stream = new CountingStream();
+         long start = System.nanoTime();
+         Writer writer = new Writer(root);
+         writer.setParallel(pool);
+         writer.setIncremental(incremental);
+         writer.write(stream);
+         long time = System.nanoTime() - start;
+         out.println("round " + (i + 1) + ": " + time / 1000000 + " ms");
+         best = Math.min(best, time);
+         bytes = stream.count;
+      }
+      System.setOut(out);
+      double seconds = best / 1e9;
+      System.out.println(String.format("%d values, %.1f MB: %.0f values/s, %.1f MB/s", values, bytes / 1e6,
+            values / seconds, bytes / 1e6 / seconds));
+   }
+
+
+   private static Section createTree(int sections) throws Exception {
+      Section root = new Section();
+      for (int i = 0; i < sections; i++) {
+         Section section = new Section("Recording" + i, "recording");
+         section.setDefinition("A recording of the experiment.");
+         for (int j = 0; j < PROPERTIES; j++) {
+            Property property = new Property("property" + j, 0.5 * j, "mV", null, "float");
+            property.setDefinition("The property " + j + ".");
+            for (int k = 1; k < VALUES; k++) {
+               property.addValue(0.5 * j + k, "mV");
+            }
+            section.add(property);
+         }
+         root.add(section);
+      }
+      return root;
+   }
+
+
+   private static class CountingStream extends OutputStream {
+
+      private long count = 0;
+
+
+      @Override
+      public void write(int b) {
+         count++;
+      }
+
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+         count += len;
+      }
+   }
+}